@@ -0,0 +1,93 @@
+package com.softinite.spam.benchmark;
+
+import com.softinite.spam.encrdecr.EncryptionManager;
+import com.softinite.spam.encrdecr.FileProxy;
+import com.softinite.spam.store.VaultStore;
+import com.softinite.spam.store.VaultStoreType;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Responsible for measuring what compressing a chunked vault costs on save and unlock against the bytes it saves.
+ * The vault size is reported next to every score, the break-even is where the time saved writing and reading the
+ * smaller file covers the time spent deflating and inflating it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompressionBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    private int entries;
+
+    @Param({"0", "1", "6"})
+    private int level;
+
+    private Path directory;
+    private String vaultFileName;
+    private FileProxy vaultFile;
+    private VaultStore store;
+    private EncryptionManager encryptionManager;
+
+    @Setup(Level.Trial)
+    public void createVault() throws Exception {
+        SyntheticVault.silenceLogging();
+        directory = SyntheticVault.tempDirectory();
+        vaultFileName = directory.resolve("vault.spam").toString();
+        vaultFile = SyntheticVault.fileProxy(directory.resolve("vault.spam"));
+        store = SyntheticVault.store(entries, VaultStoreType.SINGLE_THREADED);
+        encryptionManager = new EncryptionManager();
+        encryptionManager.setCompressionLevel(level);
+        encryptionManager.encryptChunked(store, SyntheticVault.PASSWORD, vaultFileName);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteVault() {
+        SyntheticVault.delete(directory);
+    }
+
+    @Benchmark
+    public FileProxy encrypt(VaultSize size) throws Exception {
+        FileProxy written = encryptionManager.encryptChunked(store, SyntheticVault.PASSWORD, vaultFileName);
+        size.bytes = written.length();
+        return written;
+    }
+
+    @Benchmark
+    public VaultStore decrypt(VaultSize size) throws Exception {
+        size.bytes = vaultFile.length();
+        return encryptionManager.decryptChunked(vaultFile, SyntheticVault.PASSWORD, VaultStoreType.SINGLE_THREADED.create(entries));
+    }
+
+    /**
+     * Size of the vault file the iteration wrote or read.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class VaultSize {
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+}
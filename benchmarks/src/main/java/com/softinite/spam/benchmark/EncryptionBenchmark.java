@@ -0,0 +1,83 @@
+package com.softinite.spam.benchmark;
+
+import com.softinite.spam.encrdecr.CipherBackends;
+import com.softinite.spam.encrdecr.EncryptionManager;
+import com.softinite.spam.encrdecr.FileProxy;
+import com.softinite.spam.store.VaultStore;
+import com.softinite.spam.store.VaultStoreType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Responsible for measuring how long saving and unlocking a whole vault takes, per format and cipher backend.
+ * The cipher backend only applies to the legacy format, chunked vaults always use AES-GCM.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EncryptionBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    private int entries;
+
+    @Param({"LEGACY", "CHUNKED"})
+    private String format;
+
+    @Param({"jce", "bouncycastle"})
+    private String backend;
+
+    private Path directory;
+    private String vaultFileName;
+    private FileProxy vaultFile;
+    private VaultStore store;
+    private EncryptionManager encryptionManager;
+
+    @Setup(Level.Trial)
+    public void createVault() throws Exception {
+        SyntheticVault.silenceLogging();
+        directory = SyntheticVault.tempDirectory();
+        vaultFileName = directory.resolve("vault.spam").toString();
+        vaultFile = SyntheticVault.fileProxy(directory.resolve("vault.spam"));
+        store = SyntheticVault.store(entries, VaultStoreType.SINGLE_THREADED);
+        encryptionManager = new EncryptionManager();
+        encryptionManager.setCipherBackend(CipherBackends.byName(backend));
+        encrypt();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteVault() {
+        SyntheticVault.delete(directory);
+    }
+
+    @Benchmark
+    public FileProxy encrypt() throws Exception {
+        return "CHUNKED".equals(format)
+                ? encryptionManager.encryptChunked(store, SyntheticVault.PASSWORD, vaultFileName)
+                : encryptionManager.encrypt(store, SyntheticVault.PASSWORD, vaultFileName);
+    }
+
+    @Benchmark
+    public VaultStore decrypt() throws Exception {
+        VaultStore target = VaultStoreType.SINGLE_THREADED.create(entries);
+        return "CHUNKED".equals(format)
+                ? encryptionManager.decryptChunked(vaultFile, SyntheticVault.PASSWORD, target)
+                : encryptionManager.decrypt(vaultFile, SyntheticVault.PASSWORD, target);
+    }
+}
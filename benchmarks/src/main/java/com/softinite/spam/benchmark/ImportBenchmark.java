@@ -0,0 +1,65 @@
+package com.softinite.spam.benchmark;
+
+import com.softinite.spam.encrdecr.FileProxy;
+import com.softinite.spam.encrdecr.PasswordContainer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Responsible for measuring imports into a vault that already holds as many accounts as the import file,
+ * a quarter of the imported names collide with existing ones and get renamed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImportBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    private int entries;
+
+    private Path directory;
+    private FileProxy importFile;
+    private PasswordContainer container;
+
+    @Setup(Level.Trial)
+    public void createImportFile() throws Exception {
+        SyntheticVault.silenceLogging();
+        directory = SyntheticVault.tempDirectory();
+        Path importPath = directory.resolve("import.txt");
+        SyntheticVault.writeImportFile(importPath, entries - entries / 4, entries);
+        importFile = SyntheticVault.fileProxy(importPath);
+    }
+
+    @Setup(Level.Invocation)
+    public void createContainer() {
+        container = SyntheticVault.container(entries);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteImportFile() {
+        SyntheticVault.delete(directory);
+    }
+
+    @Benchmark
+    public PasswordContainer importAccounts() throws Exception {
+        container.importAccounts(importFile);
+        return container;
+    }
+}
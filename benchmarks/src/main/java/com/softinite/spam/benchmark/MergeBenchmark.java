@@ -0,0 +1,65 @@
+package com.softinite.spam.benchmark;
+
+import com.softinite.spam.encrdecr.PasswordContainer;
+import com.softinite.spam.store.VaultStore;
+import com.softinite.spam.store.VaultStoreType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Responsible for measuring the merge of a second vault of the same size: half of its accounts are new,
+ * the other half already exist and every other one of those holds a different secret.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MergeBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    private int entries;
+
+    private PasswordContainer other;
+    private PasswordContainer container;
+
+    @Setup(Level.Trial)
+    public void createOtherVault() {
+        SyntheticVault.silenceLogging();
+        VaultStore existing = SyntheticVault.store(entries, VaultStoreType.SINGLE_THREADED);
+        VaultStore store = VaultStoreType.SINGLE_THREADED.create(entries);
+        Random random = new Random(7);
+        for (int i = entries / 2; i < entries + entries / 2; i++) {
+            String name = SyntheticVault.name(i);
+            boolean sameSecret = i < entries && i % 2 == 0;
+            store.put(name, sameSecret ? existing.get(name) : SyntheticVault.secret(random));
+        }
+        other = new PasswordContainer();
+        other.setStore(store);
+    }
+
+    @Setup(Level.Invocation)
+    public void createContainer() {
+        container = SyntheticVault.container(entries);
+    }
+
+    @Benchmark
+    public PasswordContainer mergeFrom() {
+        container.mergeFrom(other);
+        return container;
+    }
+}
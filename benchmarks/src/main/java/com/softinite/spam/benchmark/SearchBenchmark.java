@@ -0,0 +1,120 @@
+package com.softinite.spam.benchmark;
+
+import com.softinite.spam.SPAManager;
+import com.softinite.spam.cli.UserInteraction;
+import com.softinite.spam.encrdecr.PasswordContainer;
+import org.apache.commons.lang3.StringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Responsible for measuring SEARCH_SECRET and LIST_SECRETS, through SPAManager as the user drives them
+ * and against the full scan and sort they replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    private int entries;
+
+    /**
+     * A selective pattern matching a handful of accounts and a broad one matching an eighth of them.
+     */
+    @Param({"0000042", "github"})
+    private String pattern;
+
+    private PasswordContainer container;
+    private SearchingManager manager;
+
+    @Setup(Level.Trial)
+    public void createVault() {
+        SyntheticVault.silenceLogging();
+        container = SyntheticVault.container(entries);
+        manager = new SearchingManager(pattern);
+        manager.setPasswordContainer(container);
+    }
+
+    @Benchmark
+    public List<String> indexedSearch() {
+        return container.searchAccounts(pattern);
+    }
+
+    @Benchmark
+    public List<String> scanningSearch() {
+        return container.loadKeys().stream()
+                .filter(accountName -> StringUtils.containsIgnoreCase(accountName, pattern))
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public void searchThroughManager(Blackhole blackhole) {
+        manager.search(blackhole);
+    }
+
+    @Benchmark
+    public void listInOrder(Blackhole blackhole) {
+        container.listAccounts().forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    public void listWithPrefix(Blackhole blackhole) {
+        container.listAccounts("github-00001").forEach(blackhole::consume);
+    }
+
+    /**
+     * Drives the interactive search with a fixed pattern and hands the matches to JMH instead of the console.
+     */
+    static class SearchingManager extends SPAManager {
+        private final BlackholeInteraction interaction;
+
+        SearchingManager(String pattern) {
+            interaction = new BlackholeInteraction(pattern);
+            setUserInteraction(interaction);
+        }
+
+        void search(Blackhole blackhole) {
+            interaction.blackhole = blackhole;
+            searchAccounts();
+        }
+    }
+
+    static class BlackholeInteraction extends UserInteraction {
+        private final String pattern;
+        private Blackhole blackhole;
+
+        BlackholeInteraction(String pattern) {
+            this.pattern = pattern;
+        }
+
+        @Override
+        public String readSearchPattern() {
+            return pattern;
+        }
+
+        @Override
+        public void showToUser(String text) {
+            blackhole.consume(text);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.softinite.spam.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Responsible for tracking the cold start of short commands: every invocation launches a fresh JVM on the application jar
+ * and waits for it to exit, with and without the class data sharing archive of the 'cds' profile.
+ * Record the results with '-rf json' to compare them across versions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 10)
+@Fork(1)
+public class StartupBenchmark {
+
+    public static final String JAR_PROPERTY = "spam.jar";
+    public static final String ARCHIVE_PROPERTY = "spam.jsa";
+    private static final String PASSWORD_VARIABLE = "SPAM_BENCHMARK_PASSWORD";
+    private static final String VAULT = "startup.spam";
+    private static final String DUMP = "startup.txt";
+    private static final String BATCH = "startup.batch";
+
+    @Param({"plain", "cds"})
+    private String launch;
+
+    @Param({"1000"})
+    private int entries;
+
+    private Path directory;
+    private Path jar;
+    private List<String> jvmOptions;
+
+    @Setup(Level.Trial)
+    public void createVault() throws IOException, InterruptedException {
+        jar = Paths.get(System.getProperty(JAR_PROPERTY, "../target/SPAM-jar-with-dependencies.jar")).toAbsolutePath().normalize();
+        if (!Files.exists(jar)) {
+            throw new IllegalStateException("Could not locate " + jar + ", build the application first or pass -D" + JAR_PROPERTY);
+        }
+        directory = SyntheticVault.tempDirectory();
+        jvmOptions = new ArrayList<>();
+        if ("cds".equals(launch)) {
+            jvmOptions.add("-XX:SharedArchiveFile=" + archive());
+        }
+        SyntheticVault.writeImportFile(directory.resolve("startup.import"), 0, entries);
+        Files.write(directory.resolve(BATCH), List.of("get " + SyntheticVault.name(entries / 2)), StandardCharsets.UTF_8);
+        launch(List.of(), "-file", VAULT, "-create");
+        launch(List.of(), "-file", VAULT, "-import", "startup.import");
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteDump() throws IOException {
+        Files.deleteIfExists(directory.resolve(DUMP));
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteVault() {
+        SyntheticVault.delete(directory);
+    }
+
+    @Benchmark
+    public int help() throws IOException, InterruptedException {
+        return launch(jvmOptions);
+    }
+
+    @Benchmark
+    public int dump() throws IOException, InterruptedException {
+        return launch(jvmOptions, "-file", VAULT, "-dump", DUMP);
+    }
+
+    @Benchmark
+    public int batchGet() throws IOException, InterruptedException {
+        return launch(jvmOptions, "-file", VAULT, "-batch", BATCH);
+    }
+
+    /**
+     * An archive is silently ignored once the jar changes, so unless one is passed explicitly a fresh one is trained.
+     */
+    private Path archive() throws IOException, InterruptedException {
+        String configured = System.getProperty(ARCHIVE_PROPERTY);
+        if (configured != null) {
+            return Paths.get(configured).toAbsolutePath();
+        }
+        Path trained = directory.resolve("startup.jsa");
+        run(List.of(java(), "-XX:ArchiveClassesAtExit=" + trained, "-cp", jar.toString(), "com.softinite.spam.StartupTraining"));
+        return trained;
+    }
+
+    private int launch(List<String> options, String... arguments) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(java());
+        command.addAll(options);
+        command.add("-jar");
+        command.add(jar.toString());
+        command.addAll(Arrays.asList(arguments));
+        command.add("-passwordEnv");
+        command.add(PASSWORD_VARIABLE);
+        return run(command);
+    }
+
+    /**
+     * The same JVM the benchmark runs on, an archive only works with the JVM that created it.
+     */
+    private static String java() {
+        return Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+    }
+
+    private int run(List<String> command) throws IOException, InterruptedException {
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .directory(directory.toFile())
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.DISCARD);
+        builder.environment().put(PASSWORD_VARIABLE, SyntheticVault.PASSWORD);
+        int exitCode = builder.start().waitFor();
+        if (exitCode != 0) {
+            throw new IllegalStateException("Command failed with exit code " + exitCode + ": " + command);
+        }
+        return exitCode;
+    }
+}
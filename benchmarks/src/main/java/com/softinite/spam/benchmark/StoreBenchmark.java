@@ -0,0 +1,66 @@
+package com.softinite.spam.benchmark;
+
+import com.softinite.spam.store.VaultStore;
+import com.softinite.spam.store.VaultStoreType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Responsible for comparing the store types: loading a whole vault and reading single secrets.
+ * Run with '-prof gc' to see what keeping secrets off the heap saves in allocations and collections,
+ * VaultFootprint reports the heap retained by each store.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StoreBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    private int entries;
+
+    @Param({"SINGLE_THREADED", "CONCURRENT", "OFF_HEAP"})
+    private VaultStoreType storeType;
+
+    private VaultStore populated;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void populate() {
+        populated = SyntheticVault.store(entries, storeType);
+    }
+
+    @TearDown(Level.Trial)
+    public void release() {
+        populated.close();
+    }
+
+    @Benchmark
+    public VaultStore load() {
+        VaultStore store = SyntheticVault.store(entries, storeType);
+        store.close();
+        return store;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public String loadSecret() {
+        next = (next + 7919) % entries;
+        return populated.get(SyntheticVault.name(next));
+    }
+}
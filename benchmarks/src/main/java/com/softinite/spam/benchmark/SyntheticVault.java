@@ -0,0 +1,105 @@
+package com.softinite.spam.benchmark;
+
+import com.softinite.spam.encrdecr.FileProxy;
+import com.softinite.spam.encrdecr.PasswordContainer;
+import com.softinite.spam.store.VaultStore;
+import com.softinite.spam.store.VaultStoreType;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Responsible for generating reproducible vaults of any size for the benchmarks.
+ * Account names look like real ones ("service-0000042/user"), secrets are random printable strings.
+ */
+public final class SyntheticVault {
+
+    public static final String PASSWORD = "benchmark password";
+    private static final String[] SERVICES = {"aws", "github", "bank", "mail", "vpn", "jira", "wiki", "db"};
+    private static final String SECRET_ALPHABET = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789!#$%&*+-_";
+
+    private SyntheticVault() {
+    }
+
+    public static String name(int index) {
+        return String.format("%s-%07d/user", SERVICES[index % SERVICES.length], index);
+    }
+
+    public static String secret(Random random) {
+        char[] secret = new char[12 + random.nextInt(20)];
+        for (int i = 0; i < secret.length; i++) {
+            secret[i] = SECRET_ALPHABET.charAt(random.nextInt(SECRET_ALPHABET.length()));
+        }
+        return new String(secret);
+    }
+
+    public static VaultStore store(int entries, VaultStoreType type) {
+        VaultStore store = type.create(entries);
+        Random random = new Random(entries);
+        for (int i = 0; i < entries; i++) {
+            store.put(name(i), secret(random));
+        }
+        return store;
+    }
+
+    public static PasswordContainer container(int entries) {
+        PasswordContainer container = new PasswordContainer();
+        container.setStore(store(entries, VaultStoreType.SINGLE_THREADED));
+        return container;
+    }
+
+    /**
+     * Writes entries in the plaintext 'name=secret' import format, starting at the given index.
+     */
+    public static void writeImportFile(Path target, int firstIndex, int entries) throws IOException {
+        Random random = new Random(firstIndex + entries);
+        try (BufferedWriter writer = Files.newBufferedWriter(target, StandardCharsets.UTF_8)) {
+            for (int i = firstIndex; i < firstIndex + entries; i++) {
+                writer.write(name(i));
+                writer.write('=');
+                writer.write(secret(random));
+                writer.newLine();
+            }
+        }
+    }
+
+    public static FileProxy fileProxy(Path path) {
+        FileProxy fileProxy = new FileProxy();
+        fileProxy.setInternal(path.toFile());
+        return fileProxy;
+    }
+
+    public static Path tempDirectory() throws IOException {
+        Path directory = Files.createTempDirectory("spam-benchmark");
+        directory.toFile().deleteOnExit();
+        return directory;
+    }
+
+    public static void delete(Path directory) {
+        File[] files = directory.toFile().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.toFile().delete();
+    }
+
+    /**
+     * The application logs every imported account, which would dominate any measurement.
+     */
+    public static void silenceLogging() {
+        Logger.getLogger("").setLevel(Level.WARNING);
+        for (Handler handler : Logger.getLogger("").getHandlers()) {
+            handler.setLevel(Level.WARNING);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.softinite.spam.benchmark;
+
+import com.softinite.spam.store.OffHeapVaultStore;
+import com.softinite.spam.store.VaultStore;
+import com.softinite.spam.store.VaultStoreType;
+
+/**
+ * Responsible for reporting the memory each store type keeps for a vault of the given size:
+ * java -cp target/benchmarks.jar com.softinite.spam.benchmark.VaultFootprint 1000000
+ */
+public final class VaultFootprint {
+
+    private VaultFootprint() {
+    }
+
+    public static void main(String[] args) {
+        int entries = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        for (VaultStoreType type : VaultStoreType.values()) {
+            long before = usedHeap();
+            VaultStore store = SyntheticVault.store(entries, type);
+            long retained = usedHeap() - before;
+            long offHeap = store instanceof OffHeapVaultStore ? ((OffHeapVaultStore) store).getOffHeapBytes() : 0;
+            System.out.printf("%-16s %,d accounts: %,d bytes on heap, %,d bytes off heap%n", type, store.size(), retained, offHeap);
+            store.close();
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -1,11 +1,30 @@
 package com.softinite.spam;
 
 import com.beust.jcommander.JCommander;
+import com.softinite.spam.agent.AgentEndpoint;
+import com.softinite.spam.agent.VaultAgent;
+import com.softinite.spam.cli.BatchCommand;
 import com.softinite.spam.cli.CLIParameters;
 import com.softinite.spam.cli.MenuOptions;
 import com.softinite.spam.cli.UserInteraction;
+import com.softinite.spam.encrdecr.ChunkCompression;
+import com.softinite.spam.encrdecr.EncryptionManager;
 import com.softinite.spam.encrdecr.FileProxy;
+import com.softinite.spam.encrdecr.ImportReport;
+import com.softinite.spam.encrdecr.MergeReport;
 import com.softinite.spam.encrdecr.PasswordContainer;
+import com.softinite.spam.encrdecr.SyncReport;
+import com.softinite.spam.encrdecr.VaultFormat;
+import com.softinite.spam.metrics.Metrics;
+import com.softinite.spam.store.VaultStoreType;
+import com.softinite.spam.transfer.ExportFormat;
+import com.softinite.spam.transfer.ExportFormats;
+import com.softinite.spam.transfer.ExportReport;
+import com.softinite.spam.transfer.ImportFormat;
+import com.softinite.spam.transfer.ImportFormats;
+import com.softinite.spam.transfer.PropertiesImportFormat;
+import com.softinite.spam.transfer.StreamingExporter;
+import com.softinite.spam.transfer.StreamingImporter;
 import lombok.Data;
 import lombok.extern.java.Log;
 import org.apache.commons.lang3.StringUtils;
@@ -14,12 +33,24 @@ import org.bouncycastle.crypto.InvalidCipherTextException;
 import javax.crypto.BadPaddingException;
 import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.NoSuchPaddingException;
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.file.Paths;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Responsible for starting the application
@@ -32,23 +63,35 @@ public class SPAManager {
     public static final String CMD_LINE_SYNTAX = "java -jar com.softinite.spam-1.4.jar <OPTIONS>";
     public static final String ACCT_ALREADY_EXISTS = "Account already exists ";
     protected static final String ACCT_NOT_FOUND_MSG = "Could not locate account ";
+    protected static final long GROUP_COMMIT_WINDOW_MILLIS = 250;
+    protected static final String BATCH_STDIN = "-";
     private UserInteraction userInteraction;
     private PasswordContainer passwordContainer;
     private JCommander commandParser;
+    private VaultFormat vaultFormat;
+    private Integer compressionLevel;
+    private String passwordVariable;
+    private ImportFormat importFormat;
+    private boolean dryRun;
+    private ExportFormat exportFormat;
+    private boolean sortedExport;
 
     public static void main(String[] args) throws Exception {
-        log.info("Password manager has been started.");
+        log.fine("Password manager has been started.");
         SPAManager manager = new SPAManager();
-        manager.setPasswordContainer(new PasswordContainer());
         manager.setUserInteraction(new UserInteraction());
+        manager.run(args);
+    }
 
+    protected void run(String[] args) throws Exception {
+        setPasswordContainer(new PasswordContainer());
         CLIParameters params = new CLIParameters();
         JCommander commander = new JCommander(params);
         commander.parse(args);
-        manager.setCommandParser(commander);
+        setCommandParser(commander);
 
-        log.info("Executing selected command.");
-        manager.execute(params);
+        log.fine("Executing selected command.");
+        execute(params);
     }
 
     public void showHelp() {
@@ -58,28 +101,59 @@ public class SPAManager {
     }
 
     public void execute(CLIParameters params) throws IOException, NoSuchPaddingException, BadPaddingException, NoSuchAlgorithmException, IllegalBlockSizeException, InvalidAlgorithmParameterException, InvalidKeyException, NoSuchProviderException, InvalidCipherTextException {
-        log.info("Processing file argument ");
+        log.fine("Processing file argument ");
         if (StringUtils.isNotBlank(params.getFile())) {
-            log.info("File option found.");
-            executeWithFileName(params.getFile(), params);
+            log.fine("File option found.");
+            if (StringUtils.isNotBlank(params.getFormat())) {
+                setVaultFormat(VaultFormat.from(params.getFormat()));
+            }
+            if (params.getCompression() != null) {
+                setCompressionLevel(ChunkCompression.checkLevel(params.getCompression()));
+            }
+            if (StringUtils.isNotBlank(params.getPasswordEnv())) {
+                setPasswordVariable(params.getPasswordEnv());
+            }
+            if (StringUtils.isNotBlank(params.getImportFormat())) {
+                setImportFormat(ImportFormats.byName(params.getImportFormat()));
+            }
+            setDryRun(params.getDryRun());
+            if (StringUtils.isNotBlank(params.getExportFormat())) {
+                setExportFormat(ExportFormats.byName(params.getExportFormat()));
+            }
+            setSortedExport(params.getSorted());
+            if (params.getOffHeap()) {
+                getPasswordContainer().setStoreType(VaultStoreType.OFF_HEAP);
+            }
+            try {
+                executeWithFileName(params.getFile(), params);
+            } finally {
+                if (params.getStats()) {
+                    getUserInteraction().showToUser(Metrics.report());
+                }
+            }
         } else {
-            log.info("File option not found.");
+            log.fine("File option not found.");
             showHelp();
         }
     }
 
     public void executeWithFileName(String fileName, CLIParameters params) throws IOException, IllegalBlockSizeException, BadPaddingException, NoSuchAlgorithmException, NoSuchPaddingException, InvalidAlgorithmParameterException, InvalidKeyException, NoSuchProviderException, InvalidCipherTextException {
-        log.info("Loading password file object " + fileName);
+        log.fine("Loading password file object " + fileName);
         FileProxy file = loadPasswordFileObject(fileName);
         executeWithFile(params, file);
     }
 
     protected void executeWithFile(CLIParameters params, FileProxy file) throws IOException, NoSuchPaddingException, BadPaddingException, NoSuchAlgorithmException, IllegalBlockSizeException, InvalidAlgorithmParameterException, InvalidKeyException, NoSuchProviderException, InvalidCipherTextException {
         if (file.exists()) {
-            log.info("File exists.");
-            String rootPassoword = getUserInteraction().readSPAMPassoword();
+            log.fine("File exists.");
+            String rootPassoword = readVaultPassword();
             getPasswordContainer().init(rootPassoword, file);
-            executeUserCommand(params);
+            try {
+                convertVaultFormat();
+                executeUserCommand(params);
+            } finally {
+                getPasswordContainer().close();
+            }
         } else if (params.getCreate()) {
             log.info("Creating the file.");
             createFile(file);
@@ -88,6 +162,51 @@ public class SPAManager {
         }
     }
 
+    protected void convertVaultFormat() throws NoSuchPaddingException, InvalidKeyException, NoSuchAlgorithmException, IOException, BadPaddingException, IllegalBlockSizeException, NoSuchProviderException, InvalidAlgorithmParameterException, InvalidCipherTextException {
+        boolean converted = applyVaultFormat();
+        if (getCompressionLevel() != null && getCompressionLevel() != getPasswordContainer().getCompressionLevel()) {
+            log.info("Compressing password file at level " + getCompressionLevel());
+            getPasswordContainer().setCompressionLevel(getCompressionLevel());
+            converted = true;
+        }
+        if (converted) {
+            getPasswordContainer().save();
+        }
+    }
+
+    /**
+     * Only the chunked layout compresses, asking for compression picks it unless another layout was asked for explicitly.
+     */
+    private boolean applyVaultFormat() {
+        VaultFormat target = getVaultFormat();
+        if (getCompressionLevel() != null && getCompressionLevel() != ChunkCompression.OFF) {
+            if (target != null && target != VaultFormat.CHUNKED) {
+                throw new RuntimeException("Only the chunked format can be compressed, not " + target);
+            }
+            target = VaultFormat.CHUNKED;
+        }
+        if (target != null && target != getPasswordContainer().getFormat()) {
+            log.info("Converting password file to format " + target);
+            getPasswordContainer().setFormat(target);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Unattended runs take the password from the environment variable named by -passwordEnv, everybody else types it.
+     */
+    protected String readVaultPassword() {
+        if (getPasswordVariable() == null) {
+            return getUserInteraction().readSPAMPassoword();
+        }
+        String password = System.getenv(getPasswordVariable());
+        if (StringUtils.isBlank(password)) {
+            throw new RuntimeException("Environment variable " + getPasswordVariable() + " does not hold a SPAM password.");
+        }
+        return password;
+    }
+
     protected FileProxy loadPasswordFileObject(String fileName) {
         FileProxy fileProxy = new FileProxy();
         fileProxy.setInternal(new File(fileName));
@@ -99,14 +218,21 @@ public class SPAManager {
             dumpAccounts(params.getDump());
         } else if (StringUtils.isNotBlank(params.getImportFile())) {
             importAccounts(params.getImportFile());
-        } else if (StringUtils.isNotBlank(params.getMergeFile())) {
-            mergeFiles(params.getMergeFile());
+        } else if (!params.getMergeFiles().isEmpty()) {
+            mergeFiles(params.getMergeFiles());
+        } else if (StringUtils.isNotBlank(params.getSyncFile())) {
+            syncFile(params.getSyncFile());
+        } else if (StringUtils.isNotBlank(params.getBatch())) {
+            executeBatch(params.getBatch());
+        } else if (params.getAgent()) {
+            runAgent(params.getFile());
         } else {
             executeMenuOption();
         }
     }
 
     private void executeMenuOption() throws InvalidCipherTextException, InvalidAlgorithmParameterException, NoSuchPaddingException, IllegalBlockSizeException, NoSuchAlgorithmException, IOException, BadPaddingException, NoSuchProviderException, InvalidKeyException {
+        getPasswordContainer().setCommitWindow(GROUP_COMMIT_WINDOW_MILLIS);
         MenuOptions selectedOption = MenuOptions.NONE;
         while(selectedOption != MenuOptions.QUIT) {
             selectedOption = userInteraction.readMenuOption();
@@ -124,11 +250,15 @@ public class SPAManager {
     }
 
     protected void createFile(FileProxy targetFile) throws IOException, NoSuchPaddingException, InvalidAlgorithmParameterException, NoSuchAlgorithmException, IllegalBlockSizeException, BadPaddingException, NoSuchProviderException, InvalidKeyException, InvalidCipherTextException {
-        String rootPassword = getUserInteraction().readSPAMPassoword();
-        String confirmation = getUserInteraction().readPasswordConfirmation();
+        String rootPassword = readVaultPassword();
+        String confirmation = getPasswordVariable() != null ? rootPassword : getUserInteraction().readPasswordConfirmation();
         if (StringUtils.equals(rootPassword, confirmation)) {
             targetFile.touch();
             getPasswordContainer().init(rootPassword, targetFile);
+            applyVaultFormat();
+            if (getCompressionLevel() != null) {
+                getPasswordContainer().setCompressionLevel(getCompressionLevel());
+            }
             getPasswordContainer().save();
         } else {
             throw new RuntimeException("Could not confirm passowrd difference= " + StringUtils.difference(rootPassword, confirmation));
@@ -137,7 +267,7 @@ public class SPAManager {
 
     protected void listAllSecrets() {
         log.info("Listing all the accounts.");
-        getUserInteraction().showSetToUser(getPasswordContainer().loadKeys());
+        getUserInteraction().showListToUser(getPasswordContainer().listAccounts());
     }
 
     protected void addSecret() throws NoSuchPaddingException, InvalidAlgorithmParameterException, NoSuchAlgorithmException, IOException, BadPaddingException, IllegalBlockSizeException, NoSuchProviderException, InvalidKeyException, InvalidCipherTextException {
@@ -201,7 +331,9 @@ public class SPAManager {
             if (fProxy.exists()) {
                 getUserInteraction().showErrorToUser("It seems that the file " + fileName + " already exists.");
             } else {
-                getPasswordContainer().dumpToNewFile(fProxy);
+                ExportFormat format = getExportFormat() != null ? getExportFormat() : ExportFormats.forFile(fileName);
+                ExportReport report = new StreamingExporter(getPasswordContainer(), format, isSortedExport()).exportTo(fProxy);
+                getUserInteraction().showToUser(report.toString());
             }
         }
     }
@@ -214,8 +346,17 @@ public class SPAManager {
             FileProxy fProxy = new FileProxy();
             fProxy.setInternal(new File(fileName));
             if (fProxy.exists()) {
-                getPasswordContainer().importAccounts(fProxy);
-                getPasswordContainer().save();
+                ImportFormat format = getImportFormat() != null ? getImportFormat() : ImportFormats.forFile(fileName);
+                ImportReport report;
+                if (PropertiesImportFormat.NAME.equals(format.getName()) && !isDryRun()) {
+                    report = getPasswordContainer().importAccounts(fProxy);
+                } else {
+                    report = new StreamingImporter(getPasswordContainer(), format, isDryRun()).importFrom(fProxy);
+                }
+                if (!report.isDryRun()) {
+                    getPasswordContainer().save();
+                }
+                getUserInteraction().showToUser(report.toString());
             } else {
                 getUserInteraction().showErrorToUser("Could not locate file " + fileName + " for importing accounts.");
             }
@@ -240,26 +381,181 @@ public class SPAManager {
         log.info("Preparing to search for accounts.");
         String searchPattern = getUserInteraction().readSearchPattern();
         getPasswordContainer()
-                .loadKeys()
-                .stream()
-                .filter(accountName -> StringUtils.containsIgnoreCase(accountName, searchPattern))
-                .sorted()
+                .searchAccounts(searchPattern)
                 .forEach(acctName -> getUserInteraction().showToUser(acctName));
     }
 
-    protected void mergeFiles(String mergeFile) throws BadPaddingException, InvalidAlgorithmParameterException, NoSuchAlgorithmException, IllegalBlockSizeException, NoSuchPaddingException, InvalidCipherTextException, IOException, NoSuchProviderException, InvalidKeyException {
-        log.info("Preparing to merge accounts from two files.");
-        PasswordContainer secondPasswordContainer = loadPasswordContainer(mergeFile);
-        getPasswordContainer().mergeFrom(secondPasswordContainer);
+    /**
+     * Applies every command of the batch in memory and saves once. The whole batch is parsed before anything changes,
+     * and the first failing command aborts it without saving, so a batch is applied either completely or not at all.
+     * Secrets requested with 'get' are shown once the batch has been saved.
+     */
+    protected void executeBatch(String batchSource) throws IOException, NoSuchPaddingException, InvalidKeyException, NoSuchAlgorithmException, BadPaddingException, IllegalBlockSizeException, NoSuchProviderException, InvalidAlgorithmParameterException, InvalidCipherTextException {
+        log.info("Preparing to execute batch commands from " + batchSource);
+        List<BatchCommand> commands = readBatch(batchSource);
+        List<String> output = new ArrayList<>();
+        for (BatchCommand command : commands) {
+            executeBatchCommand(command, output);
+        }
+        getPasswordContainer().save();
+        output.forEach(getUserInteraction()::showToUser);
+        log.info("Executed " + commands.size() + " batch commands.");
+    }
+
+    protected List<BatchCommand> readBatch(String batchSource) throws IOException {
+        InputStream source;
+        if (BATCH_STDIN.equals(batchSource)) {
+            source = System.in;
+        } else {
+            FileProxy batchFile = loadPasswordFileObject(batchSource);
+            if (!batchFile.exists()) {
+                throw new RuntimeException("Could not locate batch file " + batchSource);
+            }
+            source = batchFile.openInputStream();
+        }
+        List<BatchCommand> commands = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(source, EncryptionManager.UTF8))) {
+            int lineNumber = 0;
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                BatchCommand command = BatchCommand.parse(line, ++lineNumber);
+                if (command != null) {
+                    commands.add(command);
+                }
+            }
+        }
+        return commands;
+    }
+
+    protected void executeBatchCommand(BatchCommand command, List<String> output) {
+        PasswordContainer container = getPasswordContainer();
+        String accountName = command.getAccountName();
+        boolean exists = container.doesAccountExist(accountName);
+        boolean mustExist = command.getVerb() != BatchCommand.Verb.ADD;
+        if (exists != mustExist) {
+            throw new RuntimeException("Line " + command.getLineNumber() + ": " + (exists ? ACCT_ALREADY_EXISTS : ACCT_NOT_FOUND_MSG) + accountName);
+        }
+        switch (command.getVerb()) {
+            case ADD, UPDATE -> container.addAccount(accountName, command.getArgument());
+            case REMOVE -> container.remove(accountName);
+            case RENAME -> {
+                if (container.doesAccountExist(command.getArgument())) {
+                    throw new RuntimeException("Line " + command.getLineNumber() + ": " + ACCT_ALREADY_EXISTS + command.getArgument());
+                }
+                container.rename(accountName, command.getArgument());
+            }
+            case GET -> output.add(container.loadSecret(accountName));
+        }
+    }
+
+    /**
+     * Serves the opened vault until a client stops the agent or the process is terminated;
+     * either way the agent file is removed and the vault is closed as usual.
+     */
+    protected void runAgent(String fileName) throws IOException {
+        log.info("Starting the agent for " + fileName);
+        getPasswordContainer().setCommitWindow(GROUP_COMMIT_WINDOW_MILLIS);
+        VaultAgent agent = new VaultAgent(getPasswordContainer(), Paths.get(fileName));
+        AgentEndpoint endpoint = agent.start();
+        Thread owner = Thread.currentThread();
+        Thread shutdownHook = new Thread(() -> {
+            agent.stop();
+            try {
+                owner.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "spam-agent-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+        getUserInteraction().showToUser("Agent listening on " + endpoint.getTransport() + " " + endpoint.getAddress() + ", stop it with the agent client.");
+        try {
+            agent.awaitStop();
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            agent.stop();
+        } catch (IllegalStateException e) {
+            // the JVM is already shutting down, the hook waits for the vault to be closed
+        }
+    }
+
+    protected void mergeFiles(List<String> mergeFiles) throws BadPaddingException, InvalidAlgorithmParameterException, NoSuchAlgorithmException, IllegalBlockSizeException, NoSuchPaddingException, InvalidCipherTextException, IOException, NoSuchProviderException, InvalidKeyException {
+        log.info("Preparing to merge accounts from " + mergeFiles.size() + " files.");
+        List<PasswordContainer> sources = loadPasswordContainers(mergeFiles);
+        MergeReport report;
+        try {
+            report = getPasswordContainer().mergeFrom(sources);
+        } finally {
+            closeAll(sources);
+        }
         getPasswordContainer().save();
+        getUserInteraction().showToUser(report.toString());
+    }
+
+    protected void syncFile(String syncFile) throws BadPaddingException, InvalidAlgorithmParameterException, NoSuchAlgorithmException, IllegalBlockSizeException, NoSuchPaddingException, InvalidCipherTextException, IOException, NoSuchProviderException, InvalidKeyException {
+        log.info("Preparing to sync with " + syncFile);
+        if (Paths.get(syncFile).toAbsolutePath().normalize().equals(Paths.get(getPasswordContainer().getStorageFileName()).toAbsolutePath().normalize())) {
+            getUserInteraction().showErrorToUser("Cannot sync the password file with itself.");
+            return;
+        }
+        PasswordContainer other = loadPasswordContainers(List.of(syncFile)).get(0);
+        try {
+            SyncReport report = getPasswordContainer().syncWith(other);
+            getPasswordContainer().save();
+            other.save();
+            getUserInteraction().showToUser(report.toString());
+        } finally {
+            other.close();
+        }
+    }
+
+    /**
+     * Asks for every password first, then decrypts all the files at the same time.
+     */
+    private List<PasswordContainer> loadPasswordContainers(List<String> fileNames) throws IOException {
+        List<Callable<PasswordContainer>> loads = new ArrayList<>();
+        for (String fileName : fileNames) {
+            FileProxy fileProxy = loadPasswordFileObject(fileName);
+            if (!fileProxy.exists()) {
+                throw new RuntimeException("Could not locate file " + fileName + ".");
+            }
+            String filePassword = getUserInteraction().readSPAMPassoword("Please specify SPAM password for the file " + fileName + ".");
+            loads.add(() -> {
+                PasswordContainer pc = new PasswordContainer();
+                pc.init(filePassword, fileProxy);
+                return pc;
+            });
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(loads.size(), Runtime.getRuntime().availableProcessors()));
+        List<PasswordContainer> sources = new ArrayList<>();
+        try {
+            ExecutionException failure = null;
+            for (Future<PasswordContainer> load : pool.invokeAll(loads)) {
+                try {
+                    sources.add(load.get());
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e;
+                    }
+                }
+            }
+            if (failure != null) {
+                closeAll(sources);
+                throw new RuntimeException("Could not open a password file: " + failure.getCause().getMessage(), failure.getCause());
+            }
+            return sources;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            closeAll(sources);
+            throw new IOException("Interrupted while opening the password files.", e);
+        } finally {
+            pool.shutdown();
+        }
     }
 
-    private PasswordContainer loadPasswordContainer(String mergeFile) throws IllegalBlockSizeException, NoSuchAlgorithmException, IOException, InvalidCipherTextException, BadPaddingException, NoSuchPaddingException, InvalidAlgorithmParameterException {
-        FileProxy mergeFileProxy = loadPasswordFileObject(mergeFile);
-        PasswordContainer pc = new PasswordContainer();
-        String mergeFilePwd = getUserInteraction().readSPAMPassoword("Please specify SPAM password for the merge file.");
-        pc.init(mergeFilePwd, mergeFileProxy);
-        return pc;
+    private static void closeAll(List<PasswordContainer> containers) throws IOException {
+        for (PasswordContainer container : containers) {
+            container.close();
+        }
     }
 
     protected String readAndValidateNewName() {
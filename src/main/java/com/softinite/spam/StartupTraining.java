@@ -0,0 +1,68 @@
+package com.softinite.spam;
+
+import com.softinite.spam.cli.UserInteraction;
+import com.softinite.spam.encrdecr.VaultFormat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Responsible for the training run of the class data sharing archive built by the 'cds' profile.
+ * It goes through the short commands users run most, creating, editing and dumping a vault of every format,
+ * so the archive holds the classes those commands load and later runs map them instead of loading them again.
+ * Vaults are saved next to the working directory, which is why the training files are created right there.
+ */
+public final class StartupTraining {
+
+    private static final String PASSWORD = "training password";
+    private static final String PASSWORD_VARIABLE = "SPAM_TRAINING_PASSWORD";
+
+    private StartupTraining() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path batch = Paths.get("training.batch");
+        Files.write(batch, List.of("add github=s3cret", "update github=n3w s3cret", "rename github=github/personal", "get github/personal"), StandardCharsets.UTF_8);
+        for (VaultFormat format : VaultFormat.values()) {
+            Path vault = Paths.get("training-" + format.name().toLowerCase() + ".spam");
+            Path dump = Paths.get("training-" + format.name().toLowerCase() + ".txt");
+            deleteVault(vault);
+            Files.deleteIfExists(dump);
+            run("-file", vault.toString(), "-create", "-format", format.name());
+            run("-file", vault.toString(), "-batch", batch.toString());
+            run("-file", vault.toString(), "-dump", dump.toString());
+            deleteVault(vault);
+            Files.deleteIfExists(dump);
+        }
+        Files.deleteIfExists(batch);
+    }
+
+    private static void run(String... args) throws Exception {
+        SPAManager manager = new TrainingManager();
+        manager.setUserInteraction(new UserInteraction());
+        manager.run(args);
+    }
+
+    private static void deleteVault(Path vault) throws IOException {
+        Files.deleteIfExists(vault);
+        Files.deleteIfExists(vault.resolveSibling(vault.getFileName() + ".journal"));
+    }
+
+    /**
+     * Behaves like an unattended run with -passwordEnv, without needing the environment variable.
+     */
+    private static final class TrainingManager extends SPAManager {
+        private TrainingManager() {
+            setPasswordVariable(PASSWORD_VARIABLE);
+        }
+
+        @Override
+        protected String readVaultPassword() {
+            return PASSWORD;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.softinite.spam.agent;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Responsible for talking to a running agent, both from code and as a thin command line client.
+ * It only needs the JDK, so lookups start fast and never touch the vault file or its password:
+ * java -cp SPAM.jar com.softinite.spam.agent.AgentClient <vault> get <account> | list [prefix] | search <pattern> | update <account> | stop
+ * The secret of 'update' is read from the standard input.
+ */
+public class AgentClient implements Closeable {
+
+    public static final String USAGE = "Usage: AgentClient <vault> get <account> | list [prefix] | search <pattern> | update <account> | stop";
+
+    private final SocketChannel channel;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+
+    protected AgentClient(SocketChannel channel) throws IOException {
+        this.channel = channel;
+        this.in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        this.out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+    }
+
+    public static AgentClient connect(Path vaultFile) throws IOException {
+        AgentEndpoint endpoint = AgentEndpoint.read(AgentEndpoint.agentFile(vaultFile));
+        AgentClient client = new AgentClient(endpoint.connect());
+        try {
+            client.out.writeByte(AgentProtocol.AUTH);
+            AgentProtocol.writeString(client.out, endpoint.getToken());
+            client.out.flush();
+            if (client.in.readByte() != AgentProtocol.OK) {
+                throw new RuntimeException("The agent rejected the token of " + AgentEndpoint.agentFile(vaultFile));
+            }
+        } catch (IOException | RuntimeException e) {
+            client.close();
+            throw e;
+        }
+        return client;
+    }
+
+    /**
+     * The secret of the account, null when the vault has no such account.
+     */
+    public String get(String accountName) throws IOException {
+        send(AgentProtocol.GET, accountName);
+        byte status = in.readByte();
+        if (status == AgentProtocol.NOT_FOUND) {
+            return null;
+        }
+        checkStatus(status);
+        return AgentProtocol.readString(in);
+    }
+
+    public List<String> list(String prefix) throws IOException {
+        send(AgentProtocol.LIST, prefix == null ? "" : prefix);
+        return readNames();
+    }
+
+    public List<String> search(String pattern) throws IOException {
+        send(AgentProtocol.SEARCH, pattern);
+        return readNames();
+    }
+
+    /**
+     * Adds the account or replaces its secret, the agent saves the vault.
+     */
+    public void update(String accountName, String secret) throws IOException {
+        send(AgentProtocol.UPDATE, accountName, secret);
+        checkStatus(in.readByte());
+    }
+
+    public void stop() throws IOException {
+        send(AgentProtocol.STOP);
+        checkStatus(in.readByte());
+    }
+
+    private void send(byte operation, String... arguments) throws IOException {
+        out.writeByte(operation);
+        for (String argument : arguments) {
+            AgentProtocol.writeString(out, argument);
+        }
+        out.flush();
+    }
+
+    private List<String> readNames() throws IOException {
+        checkStatus(in.readByte());
+        int size = in.readInt();
+        List<String> names = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            names.add(AgentProtocol.readString(in));
+        }
+        return names;
+    }
+
+    private void checkStatus(byte status) throws IOException {
+        if (status == AgentProtocol.ERROR) {
+            throw new RuntimeException("Agent error: " + AgentProtocol.readString(in));
+        }
+        if (status != AgentProtocol.OK) {
+            throw new RuntimeException("Unexpected agent response " + status);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        String argument = args.length > 2 ? args[2] : null;
+        try (AgentClient client = connect(Paths.get(args[0]))) {
+            switch (args[1]) {
+                case "get" -> {
+                    String secret = client.get(required(argument));
+                    if (secret == null) {
+                        System.err.println("Could not locate account " + argument);
+                        System.exit(1);
+                    }
+                    System.out.println(secret);
+                }
+                case "list" -> client.list(argument).forEach(System.out::println);
+                case "search" -> client.search(required(argument)).forEach(System.out::println);
+                case "update" -> client.update(required(argument), readSecret());
+                case "stop" -> client.stop();
+                default -> {
+                    System.err.println(USAGE);
+                    System.exit(2);
+                }
+            }
+        }
+    }
+
+    private static String required(String argument) {
+        if (argument == null) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        return argument;
+    }
+
+    private static String readSecret() throws IOException {
+        String secret = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)).readLine();
+        if (secret == null) {
+            throw new RuntimeException("Expected the secret on the standard input.");
+        }
+        return secret;
+    }
+}
@@ -0,0 +1,153 @@
+package com.softinite.spam.agent;
+
+import lombok.Value;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.SecureRandom;
+import java.util.EnumSet;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Responsible for telling clients where the agent of a vault listens and with which token.
+ * The agent file sits next to the vault as '<vault>.agent' and is only readable by its owner.
+ * Unix domain sockets are used whenever the JVM supports them, loopback TCP otherwise.
+ * The application is compiled for JDKs without Unix domain sockets, so they are only reached through reflection.
+ */
+@Value
+public class AgentEndpoint {
+
+    public static final String FILE_SUFFIX = ".agent";
+    public static final String SOCKET_SUFFIX = ".sock";
+    public static final String UNIX = "unix";
+    public static final String TCP = "tcp";
+    private static final Set<PosixFilePermission> OWNER_ONLY = EnumSet.of(PosixFilePermission.OWNER_READ, PosixFilePermission.OWNER_WRITE);
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    String transport;
+    String address;
+    String token;
+
+    public static Path agentFile(Path vaultFile) {
+        return vaultFile.resolveSibling(vaultFile.getFileName() + FILE_SUFFIX);
+    }
+
+    public static String newToken() {
+        byte[] token = new byte[32];
+        RANDOM.nextBytes(token);
+        StringBuilder hex = new StringBuilder();
+        for (byte b : token) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Binds the agent of the vault, on a Unix domain socket next to the vault when possible.
+     */
+    public static ServerSocketChannel bind(Path vaultFile, Binding binding) throws IOException {
+        Path socketFile = vaultFile.resolveSibling(vaultFile.getFileName() + SOCKET_SUFFIX);
+        try {
+            Files.deleteIfExists(socketFile);
+            ServerSocketChannel server = (ServerSocketChannel) ServerSocketChannel.class
+                    .getMethod("open", ProtocolFamily.class).invoke(null, unixFamily());
+            server.bind(unixAddress(socketFile));
+            restrictToOwner(socketFile);
+            binding.bound(UNIX, socketFile.toAbsolutePath().toString());
+            return server;
+        } catch (ReflectiveOperationException | IllegalArgumentException | UnsupportedOperationException | IOException e) {
+            ServerSocketChannel server = ServerSocketChannel.open();
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            binding.bound(TCP, String.valueOf(((InetSocketAddress) server.getLocalAddress()).getPort()));
+            return server;
+        }
+    }
+
+    public SocketChannel connect() throws IOException {
+        if (UNIX.equals(transport)) {
+            try {
+                SocketChannel channel = (SocketChannel) SocketChannel.class
+                        .getMethod("open", ProtocolFamily.class).invoke(null, unixFamily());
+                channel.connect(unixAddress(Paths.get(address)));
+                return channel;
+            } catch (InvocationTargetException e) {
+                throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+            } catch (ReflectiveOperationException | IllegalArgumentException e) {
+                throw new IOException("This JVM does not support the Unix domain socket of the agent.", e);
+            }
+        }
+        return SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(address)));
+    }
+
+    public void write(Path agentFile) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("transport", transport);
+        properties.setProperty("address", address);
+        properties.setProperty("token", token);
+        Files.deleteIfExists(agentFile);
+        createOwnerOnly(agentFile);
+        try (OutputStream out = Files.newOutputStream(agentFile)) {
+            properties.store(out, "SPAM agent, delete to make clients stop using it");
+        }
+    }
+
+    public static AgentEndpoint read(Path agentFile) throws IOException {
+        if (!Files.exists(agentFile)) {
+            throw new IOException("No agent is running for this vault, " + agentFile + " does not exist.");
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(agentFile)) {
+            properties.load(in);
+        }
+        return new AgentEndpoint(properties.getProperty("transport"), properties.getProperty("address"), properties.getProperty("token"));
+    }
+
+    private static void createOwnerOnly(Path file) throws IOException {
+        try {
+            Files.createFile(file, PosixFilePermissions.asFileAttribute(OWNER_ONLY));
+        } catch (UnsupportedOperationException e) {
+            Files.createFile(file);
+        } catch (FileAlreadyExistsException e) {
+            throw new IOException("Agent file " + file + " appeared while the agent was starting.", e);
+        }
+    }
+
+    private static void restrictToOwner(Path file) throws IOException {
+        try {
+            Files.setPosixFilePermissions(file, OWNER_ONLY);
+        } catch (UnsupportedOperationException e) {
+            // the token still guards the socket
+        }
+    }
+
+    private static ProtocolFamily unixFamily() {
+        return StandardProtocolFamily.valueOf("UNIX");
+    }
+
+    private static SocketAddress unixAddress(Path path) throws ReflectiveOperationException {
+        return (SocketAddress) Class.forName("java.net.UnixDomainSocketAddress").getMethod("of", Path.class).invoke(null, path);
+    }
+
+    /**
+     * Receives the transport and the address the agent ended up listening on.
+     */
+    public interface Binding {
+        void bound(String transport, String address);
+    }
+}
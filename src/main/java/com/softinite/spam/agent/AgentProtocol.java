@@ -0,0 +1,54 @@
+package com.softinite.spam.agent;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Responsible for the compact binary protocol spoken between the agent and its clients.
+ * A request is an operation byte followed by its string arguments, a response is a status byte followed by its payload.
+ * Strings travel as their UTF-8 length (int) and bytes, lists as their size (int) and strings.
+ * Every connection has to start with AUTH carrying the token of the agent file.
+ */
+public final class AgentProtocol {
+
+    public static final byte AUTH = 'A';
+    /** name -> secret */
+    public static final byte GET = 'G';
+    /** prefix, empty for every account -> names */
+    public static final byte LIST = 'L';
+    /** pattern -> names */
+    public static final byte SEARCH = 'S';
+    /** name, secret -> nothing, the account is added or replaced and saved */
+    public static final byte UPDATE = 'U';
+    /** -> nothing, the agent stops */
+    public static final byte STOP = 'Q';
+
+    public static final byte OK = 0;
+    public static final byte NOT_FOUND = 1;
+    public static final byte UNAUTHORIZED = 2;
+    /** message */
+    public static final byte ERROR = 3;
+
+    public static final int MAX_STRING_LENGTH = 16 * 1024 * 1024;
+
+    private AgentProtocol() {
+    }
+
+    public static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_STRING_LENGTH) {
+            throw new IOException("Invalid string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,233 @@
+package com.softinite.spam.agent;
+
+import com.softinite.spam.encrdecr.PasswordContainer;
+import com.softinite.spam.metrics.Metrics;
+import com.softinite.spam.metrics.Phase;
+import com.softinite.spam.metrics.Stopwatch;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Responsible for keeping an opened vault resident and answering lookups from other processes,
+ * so they neither ask for the password nor decrypt the vault again.
+ * The agent only listens locally and every connection has to present the token of the agent file first.
+ * Connections are served in parallel, the container is expected to use a store that supports it.
+ */
+public class VaultAgent {
+
+    private static final Logger LOG = Logger.getLogger(VaultAgent.class.getName());
+
+    private final PasswordContainer container;
+    private final Path vaultFile;
+    private final Path agentFile;
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private final AtomicInteger served = new AtomicInteger();
+    private ExecutorService workers;
+    private ServerSocketChannel server;
+    private AgentEndpoint endpoint;
+
+    public VaultAgent(PasswordContainer container, Path vaultFile) {
+        this.container = container;
+        this.vaultFile = vaultFile;
+        this.agentFile = AgentEndpoint.agentFile(vaultFile);
+    }
+
+    public synchronized AgentEndpoint start() throws IOException {
+        if (Files.exists(agentFile)) {
+            throw new RuntimeException("An agent seems to be running already, delete " + agentFile + " if it is not.");
+        }
+        String token = AgentEndpoint.newToken();
+        server = AgentEndpoint.bind(vaultFile, (transport, address) -> endpoint = new AgentEndpoint(transport, address, token));
+        endpoint.write(agentFile);
+        AtomicInteger threads = new AtomicInteger();
+        workers = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "spam-agent-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        workers.execute(this::accept);
+        Metrics.registerMBean();
+        LOG.info("Agent listening on " + endpoint.getTransport() + " " + endpoint.getAddress());
+        return endpoint;
+    }
+
+    public void awaitStop() throws InterruptedException {
+        stopped.await();
+    }
+
+    /**
+     * Stops listening and removes the agent file, the container stays open for its owner to close.
+     */
+    public synchronized void stop() {
+        if (stopped.getCount() == 0) {
+            return;
+        }
+        try {
+            if (server != null) {
+                server.close();
+            }
+            Files.deleteIfExists(agentFile);
+            if (AgentEndpoint.UNIX.equals(endpoint.getTransport())) {
+                Files.deleteIfExists(Paths.get(endpoint.getAddress()));
+            }
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Could not clean up after the agent.", e);
+        } finally {
+            if (workers != null) {
+                workers.shutdownNow();
+            }
+            stopped.countDown();
+            LOG.info("Agent stopped after serving " + served.get() + " requests.");
+        }
+    }
+
+    public int getServedRequests() {
+        return served.get();
+    }
+
+    private void accept() {
+        while (server.isOpen()) {
+            try {
+                SocketChannel client = server.accept();
+                workers.execute(() -> serve(client));
+            } catch (AsynchronousCloseException e) {
+                return;
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Could not accept an agent connection.", e);
+            } catch (RuntimeException e) {
+                // the pool rejects new connections once the agent is stopping
+                return;
+            }
+        }
+    }
+
+    private void serve(SocketChannel client) {
+        try (client;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(client)));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(client)))) {
+            if (!authenticate(in)) {
+                out.writeByte(AgentProtocol.UNAUTHORIZED);
+                out.flush();
+                return;
+            }
+            out.writeByte(AgentProtocol.OK);
+            out.flush();
+            while (true) {
+                byte operation;
+                try {
+                    operation = in.readByte();
+                } catch (EOFException e) {
+                    return;
+                }
+                served.incrementAndGet();
+                Stopwatch stopwatch = Metrics.start(Phase.AGENT_REQUEST);
+                boolean keepOpen = handle(operation, in, out);
+                stopwatch.stop(0, 1);
+                if (!keepOpen) {
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            LOG.log(Level.FINE, "Agent connection closed.", e);
+        }
+    }
+
+    /**
+     * The token is read with its own length as the limit, a peer that does not know it cannot make the agent allocate
+     * anything beyond that.
+     */
+    private boolean authenticate(DataInputStream in) throws IOException {
+        if (in.readByte() != AgentProtocol.AUTH) {
+            return false;
+        }
+        byte[] token = endpoint.getToken().getBytes(StandardCharsets.UTF_8);
+        if (in.readInt() != token.length) {
+            return false;
+        }
+        byte[] presented = new byte[token.length];
+        in.readFully(presented);
+        return MessageDigest.isEqual(presented, token);
+    }
+
+    /**
+     * Answers one request, returns false once the connection should be closed.
+     * A failing request is reported to the client and does not end the connection.
+     */
+    protected boolean handle(byte operation, DataInputStream in, DataOutputStream out) throws IOException {
+        try {
+            switch (operation) {
+                case AgentProtocol.GET -> {
+                    String accountName = AgentProtocol.readString(in);
+                    String secret = container.doesAccountExist(accountName) ? container.loadSecret(accountName) : null;
+                    if (secret == null) {
+                        out.writeByte(AgentProtocol.NOT_FOUND);
+                    } else {
+                        out.writeByte(AgentProtocol.OK);
+                        AgentProtocol.writeString(out, secret);
+                    }
+                }
+                case AgentProtocol.LIST -> {
+                    String prefix = AgentProtocol.readString(in);
+                    writeNames(out, prefix.isEmpty() ? new ArrayList<>(container.listAccounts()) : container.listAccounts(prefix));
+                }
+                case AgentProtocol.SEARCH -> writeNames(out, container.searchAccounts(AgentProtocol.readString(in)));
+                case AgentProtocol.UPDATE -> {
+                    String accountName = AgentProtocol.readString(in);
+                    String secret = AgentProtocol.readString(in);
+                    container.addAccount(accountName, secret);
+                    container.save();
+                    out.writeByte(AgentProtocol.OK);
+                }
+                case AgentProtocol.STOP -> {
+                    out.writeByte(AgentProtocol.OK);
+                    out.flush();
+                    new Thread(this::stop, "spam-agent-stop").start();
+                    return false;
+                }
+                default -> {
+                    out.writeByte(AgentProtocol.ERROR);
+                    AgentProtocol.writeString(out, "Unknown operation " + operation);
+                    return false;
+                }
+            }
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            LOG.log(Level.WARNING, "Agent request failed.", e);
+            out.writeByte(AgentProtocol.ERROR);
+            AgentProtocol.writeString(out, String.valueOf(e.getMessage()));
+        }
+        out.flush();
+        return true;
+    }
+
+    private static void writeNames(DataOutputStream out, Collection<String> names) throws IOException {
+        out.writeByte(AgentProtocol.OK);
+        out.writeInt(names.size());
+        for (String name : names) {
+            AgentProtocol.writeString(out, name);
+        }
+    }
+}
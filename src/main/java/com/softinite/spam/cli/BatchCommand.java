@@ -0,0 +1,71 @@
+package com.softinite.spam.cli;
+
+import lombok.Value;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Responsible for parsing one line of a batch file. Every line holds a verb followed by its arguments:
+ * 'add name=secret', 'update name=secret', 'remove name', 'rename old name=new name' or 'get name'.
+ * Blank lines and lines starting with '#' are skipped.
+ */
+@Value
+public class BatchCommand {
+
+    public static final String COMMENT_PREFIX = "#";
+    public static final String SEPARATOR = "=";
+
+    int lineNumber;
+    Verb verb;
+    String accountName;
+    /**
+     * The secret for add and update, the new name for rename.
+     */
+    String argument;
+
+    /**
+     * Returns null for lines without a command.
+     */
+    public static BatchCommand parse(String line, int lineNumber) {
+        String trimmed = StringUtils.stripStart(line, null);
+        if (StringUtils.isBlank(trimmed) || trimmed.startsWith(COMMENT_PREFIX)) {
+            return null;
+        }
+        String verbName = StringUtils.substringBefore(trimmed, " ");
+        String rest = StringUtils.substringAfter(trimmed, " ");
+        Verb verb = Verb.from(verbName, lineNumber);
+        if (verb.takesArgument) {
+            int eqPos = rest.indexOf(SEPARATOR);
+            if (eqPos <= 0) {
+                throw new RuntimeException("Line " + lineNumber + ": expected '" + verbName + " name" + SEPARATOR + "value'.");
+            }
+            return new BatchCommand(lineNumber, verb, rest.substring(0, eqPos), rest.substring(eqPos + 1));
+        }
+        if (StringUtils.isBlank(rest)) {
+            throw new RuntimeException("Line " + lineNumber + ": " + UserInteraction.BLANK_NAME_NOT_ALLOWED);
+        }
+        return new BatchCommand(lineNumber, verb, rest, null);
+    }
+
+    public enum Verb {
+        ADD(true),
+        UPDATE(true),
+        REMOVE(false),
+        RENAME(true),
+        GET(false);
+
+        private final boolean takesArgument;
+
+        Verb(boolean takesArgument) {
+            this.takesArgument = takesArgument;
+        }
+
+        public static Verb from(String name, int lineNumber) {
+            for (Verb verb : values()) {
+                if (verb.name().equalsIgnoreCase(name)) {
+                    return verb;
+                }
+            }
+            throw new RuntimeException("Line " + lineNumber + ": unknown command '" + name + "'.");
+        }
+    }
+}
@@ -3,6 +3,9 @@ package com.softinite.spam.cli;
 import com.beust.jcommander.Parameter;
 import lombok.Data;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Responsible for mapping user arguments to Password manager's specific options.
  * Created by Sergiu Ivasenco on 1/14/17.
@@ -22,10 +25,46 @@ public class CLIParameters {
     @Parameter(names = {"-dump", "-export"}, description = "Use this property to write all the information about all the accounts to given plaintext file.")
     private String dump;
 
-    @Parameter(names = {"-import", "-intake"}, description = "Use this property to import accounts from a plaintext file in 'properties' format.")
+    @Parameter(names = {"-exportFormat"}, description = "Use this property to choose the format of the dumped file: 'properties' (name=secret lines), 'csv' or 'jsonl'. Picked by the file extension when omitted.")
+    private String exportFormat;
+
+    @Parameter(names = {"-sorted"}, description = "Use this option to dump the accounts ordered by name, ignoring case.")
+    private Boolean sorted = Boolean.FALSE;
+
+    @Parameter(names = {"-import", "-intake"}, description = "Use this property to import accounts from a plaintext file, in 'properties' format unless -importFormat says otherwise.")
     private String importFile;
 
-    @Parameter(names = {"-merge"}, description = "Use this property to specify a file from which to merge accounts.")
-    private String mergeFile;
+    @Parameter(names = {"-importFormat"}, description = "Use this property to choose the format of the imported file: 'properties', 'csv', 'jsonl' or 'xml' (KeePass). Picked by the file extension when omitted.")
+    private String importFormat;
+
+    @Parameter(names = {"-dryRun"}, description = "Use this option to only report what an import would add and rename, without changing the password file.")
+    private Boolean dryRun = Boolean.FALSE;
+
+    @Parameter(names = {"-format"}, description = "Use this property to choose the layout of the password file: 'legacy', 'directory' (names are decrypted on open, secrets only on demand) or 'chunked' (encrypted in parallel, for large files). An existing file is converted right away.")
+    private String format;
+
+    @Parameter(names = {"-compression"}, description = "Use this property to compress the password file before encrypting it, at a level from 1 (fastest) to 9 (smallest), or 0 to stop compressing. Implies the 'chunked' layout, an existing file is rewritten right away.")
+    private Integer compression;
+
+    @Parameter(names = {"-stats"}, description = "Use this option to print at exit how long key derivation, reading, decrypting, parsing, encrypting, writing, imports, merges and searches took, with the bytes and accounts they went through.")
+    private Boolean stats = Boolean.FALSE;
+
+    @Parameter(names = {"-offHeap"}, description = "Use this option to keep decrypted secrets outside of the Java heap, they are wiped from memory on exit.")
+    private Boolean offHeap = Boolean.FALSE;
+
+    @Parameter(names = {"-batch"}, description = "Use this property to apply the add/update/remove/rename/get commands of a file, or of the standard input with '-', all at once with a single save.")
+    private String batch;
+
+    @Parameter(names = {"-passwordEnv"}, description = "Use this property to name the environment variable holding the SPAM password, for unattended runs.")
+    private String passwordEnv;
+
+    @Parameter(names = {"-agent"}, description = "Use this option to keep the opened password file in memory and serve lookups to the agent client over a local socket until it is stopped.")
+    private Boolean agent = Boolean.FALSE;
+
+    @Parameter(names = {"-merge"}, variableArity = true, description = "Use this property to specify one or more files from which to merge accounts, all of them are merged at once with a single save.")
+    private List<String> mergeFiles = new ArrayList<>();
+
+    @Parameter(names = {"-sync"}, description = "Use this property to specify another copy of the password file, accounts missing or differing on either side are copied both ways and both files are saved.")
+    private String syncFile;
 
 }
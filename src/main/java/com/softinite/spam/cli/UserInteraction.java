@@ -4,7 +4,9 @@ import org.apache.commons.lang3.StringUtils;
 
 import java.io.Console;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Set;
+import java.util.SortedSet;
 import java.util.stream.Stream;
 
 /**
@@ -37,8 +39,19 @@ public class UserInteraction {
         System.out.println(text);
     }
 
+    /**
+     * Shows the entries in the order they come in.
+     */
+    public void showListToUser(List<String> contentList) {
+        if (contentList != null) {
+            contentList.forEach(System.out::println);
+        }
+    }
+
     public void showSetToUser(Set<String> contentSet) {
-        if (contentSet != null) {
+        if (contentSet instanceof SortedSet) {
+            contentSet.forEach(System.out::println);
+        } else if (contentSet != null) {
             contentSet.stream().sorted(String::compareToIgnoreCase).forEach(System.out::println);
         }
     }
@@ -0,0 +1,82 @@
+package com.softinite.spam.encrdecr;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Responsible for replacing a file without ever exposing a partially written version of it.
+ * Content goes to a temporary sibling which is forced to disk on close; only commit() moves it over the target.
+ * Closing without committing leaves the target untouched and discard() removes the temporary file.
+ * A BeforeCommit hook sees the complete, durable content right before it replaces the target.
+ */
+public class AtomicFileOutputStream extends BufferedOutputStream {
+
+    public static final String TEMP_FILE_SUFFIX = ".tmp";
+
+    private final FileProxy target;
+    private final FileProxy tempFile;
+    private final FileChannel channel;
+    private Boolean closed = Boolean.FALSE;
+    private Boolean committed = Boolean.FALSE;
+
+    protected AtomicFileOutputStream(FileProxy target, FileProxy tempFile, FileChannel channel) {
+        super(Channels.newOutputStream(channel), FileProxy.IO_BUFFER_SIZE);
+        this.target = target;
+        this.tempFile = tempFile;
+        this.channel = channel;
+    }
+
+    public static AtomicFileOutputStream open(FileProxy target) throws IOException {
+        FileProxy tempFile = target.sibling(TEMP_FILE_SUFFIX);
+        FileChannel channel = FileChannel.open(tempFile.getInternal().toPath(), StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        return new AtomicFileOutputStream(target, tempFile, channel);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = Boolean.TRUE;
+        try {
+            flush();
+            channel.force(true);
+        } finally {
+            super.close();
+        }
+    }
+
+    public void commit() throws IOException {
+        commit(content -> {
+        });
+    }
+
+    public void commit(BeforeCommit beforeCommit) throws IOException {
+        close();
+        beforeCommit.prepare(tempFile);
+        target.replaceWith(tempFile);
+        committed = Boolean.TRUE;
+    }
+
+    public void discard() {
+        if (!committed) {
+            try {
+                close();
+            } catch (IOException e) {
+                // the temporary file is removed anyway
+            }
+            tempFile.delete();
+        }
+    }
+
+    /**
+     * Runs once the new content is on disk and before it becomes visible under the target name, a failure aborts the commit.
+     */
+    public interface BeforeCommit {
+        void prepare(FileProxy content) throws IOException;
+    }
+}
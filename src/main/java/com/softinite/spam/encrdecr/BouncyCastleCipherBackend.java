@@ -0,0 +1,66 @@
+package com.softinite.spam.encrdecr;
+
+import org.bouncycastle.crypto.BufferedBlockCipher;
+import org.bouncycastle.crypto.InvalidCipherTextException;
+import org.bouncycastle.crypto.engines.AESEngine;
+import org.bouncycastle.crypto.io.CipherInputStream;
+import org.bouncycastle.crypto.io.CipherOutputStream;
+import org.bouncycastle.crypto.modes.CBCBlockCipher;
+import org.bouncycastle.crypto.paddings.PaddedBufferedBlockCipher;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.bouncycastle.crypto.params.ParametersWithIV;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Responsible for the pure Java AES of BouncyCastle, available on every JVM.
+ */
+public class BouncyCastleCipherBackend implements CipherBackend {
+
+    public static final String NAME = "bouncycastle";
+
+    private final ThreadLocal<BufferedBlockCipher> ciphers = ThreadLocal.withInitial(BouncyCastleCipherBackend::newCipher);
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public OutputStream encryptingStream(OutputStream target, KeyParameter key, byte[] iv) {
+        return new CipherOutputStream(target, init(newCipher(), true, key, iv));
+    }
+
+    @Override
+    public InputStream decryptingStream(InputStream source, KeyParameter key, byte[] iv, int bufferSize) {
+        return new CipherInputStream(source, init(newCipher(), false, key, iv), bufferSize);
+    }
+
+    @Override
+    public byte[] encrypt(KeyParameter key, byte[] iv, byte[] plainText, int offset, int length) throws InvalidCipherTextException {
+        return process(init(ciphers.get(), true, key, iv), plainText, offset, length);
+    }
+
+    @Override
+    public byte[] decrypt(KeyParameter key, byte[] iv, byte[] cipherText, int offset, int length) throws InvalidCipherTextException {
+        return process(init(ciphers.get(), false, key, iv), cipherText, offset, length);
+    }
+
+    private static byte[] process(BufferedBlockCipher cipher, byte[] input, int offset, int length) throws InvalidCipherTextException {
+        byte[] output = new byte[cipher.getOutputSize(length)];
+        int outputLen = cipher.processBytes(input, offset, length, output, 0);
+        outputLen += cipher.doFinal(output, outputLen);
+        return outputLen == output.length ? output : Arrays.copyOf(output, outputLen);
+    }
+
+    private static BufferedBlockCipher init(BufferedBlockCipher cipher, boolean forEncryption, KeyParameter key, byte[] iv) {
+        cipher.init(forEncryption, new ParametersWithIV(key, iv));
+        return cipher;
+    }
+
+    private static BufferedBlockCipher newCipher() {
+        return new PaddedBufferedBlockCipher(CBCBlockCipher.newInstance(AESEngine.newInstance()));
+    }
+}
@@ -0,0 +1,225 @@
+package com.softinite.spam.encrdecr;
+
+import com.softinite.spam.metrics.Metrics;
+import com.softinite.spam.metrics.Phase;
+import com.softinite.spam.metrics.Stopwatch;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Responsible for importing plaintext 'name=secret' files of any size.
+ * The file is split into ranges at line boundaries, every range is mapped and parsed on its own core, then a single
+ * pass adds the accounts in file order. Names already taken get the first free '_n' suffix, so the same input always
+ * ends up under the same names. Progress is logged every million lines, not per account.
+ */
+public class BulkImporter {
+
+    public static final int MIN_RANGE_SIZE = 1024 * 1024;
+    public static final long PROGRESS_INTERVAL = 1_000_000;
+    private static final int MAX_RANGE_SIZE = Integer.MAX_VALUE - 8;
+    private static final int BOUNDARY_SCAN_SIZE = 8 * 1024;
+    private static final Logger LOG = Logger.getLogger(BulkImporter.class.getName());
+
+    private final PasswordContainer container;
+    private final int maxRanges;
+    private final int minRangeSize;
+
+    public BulkImporter(PasswordContainer container) {
+        this(container, 4 * Runtime.getRuntime().availableProcessors(), MIN_RANGE_SIZE);
+    }
+
+    public BulkImporter(PasswordContainer container, int maxRanges, int minRangeSize) {
+        this.container = container;
+        this.maxRanges = Math.max(1, maxRanges);
+        this.minRangeSize = Math.max(1, minRangeSize);
+    }
+
+    public ImportReport importFrom(FileProxy source) throws IOException {
+        Stopwatch stopwatch = Metrics.start(Phase.IMPORT);
+        List<ParsedRange> parsed;
+        long bytes;
+        try (FileChannel channel = source.openReadChannel()) {
+            bytes = channel.size();
+            List<long[]> ranges = split(channel);
+            AtomicLong parsedLines = new AtomicLong();
+            try {
+                parsed = ranges.parallelStream()
+                        .map(range -> parse(channel, range[0], range[1], parsedLines))
+                        .collect(Collectors.toList());
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+        ImportReport report = merge(parsed, bytes, stopwatch);
+        LOG.info(report.toString());
+        return report;
+    }
+
+    /**
+     * Ranges of roughly equal size, every range but the first starts right after a line feed.
+     */
+    protected List<long[]> split(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long count = Math.max(1, Math.min(maxRanges, size / minRangeSize));
+        count = Math.max(count, (size + MAX_RANGE_SIZE - 1) / MAX_RANGE_SIZE);
+        List<long[]> ranges = new ArrayList<>();
+        long rangeStart = 0;
+        for (long i = 1; i < count; i++) {
+            long boundary = nextLineStart(channel, size * i / count, size);
+            if (boundary > rangeStart && boundary < size) {
+                ranges.add(new long[]{rangeStart, boundary});
+                rangeStart = boundary;
+            }
+        }
+        if (rangeStart < size) {
+            ranges.add(new long[]{rangeStart, size});
+        }
+        return ranges;
+    }
+
+    private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BOUNDARY_SCAN_SIZE);
+        long offset = position - 1;
+        while (offset < size) {
+            buffer.clear();
+            int read = channel.read(buffer, offset);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return offset + i + 1;
+                }
+            }
+            offset += read;
+        }
+        return size;
+    }
+
+    private static ParsedRange parse(FileChannel channel, long start, long end, AtomicLong parsedLines) {
+        MappedByteBuffer buffer;
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        ParsedRange range = new ParsedRange();
+        byte[] line = new byte[256];
+        int limit = buffer.limit();
+        int lineStart = 0;
+        for (int i = 0; i <= limit; i++) {
+            if (i < limit && buffer.get(i) != '\n') {
+                continue;
+            }
+            if (i < limit || lineStart < limit) {
+                int lineEnd = i > lineStart && buffer.get(i - 1) == '\r' ? i - 1 : i;
+                int length = lineEnd - lineStart;
+                if (line.length < length) {
+                    line = new byte[Math.max(length, 2 * line.length)];
+                }
+                buffer.get(lineStart, line, 0, length);
+                range.add(line, length);
+            }
+            lineStart = i + 1;
+        }
+        long total = parsedLines.addAndGet(range.lines);
+        if (total / PROGRESS_INTERVAL != (total - range.lines) / PROGRESS_INTERVAL) {
+            LOG.info("Parsed " + total + " lines.");
+        }
+        return range;
+    }
+
+    /**
+     * Adds the parsed accounts in file order, the only step that touches the container. Readers see them all at once.
+     */
+    private ImportReport merge(List<ParsedRange> parsed, long bytes, Stopwatch stopwatch) {
+        long lines = 0;
+        long ignored = 0;
+        int accounts = 0;
+        for (ParsedRange range : parsed) {
+            lines += range.lines;
+            ignored += range.ignored;
+            accounts += range.accounts();
+        }
+        long[] counters = new long[2];
+        int total = accounts;
+        synchronized (container) {
+            container.getStore().reserve(total);
+            container.atomically(() -> {
+                Map<String, Integer> nextSuffix = new HashMap<>();
+                for (ParsedRange range : parsed) {
+                    for (int i = 0; i < range.namesAndSecrets.size(); i += 2) {
+                        String name = range.namesAndSecrets.get(i);
+                        if (container.doesAccountExist(name)) {
+                            name = freeName(name, nextSuffix, container::doesAccountExist);
+                            counters[1]++;
+                        }
+                        container.addAccount(name, range.namesAndSecrets.get(i + 1));
+                        if (++counters[0] % PROGRESS_INTERVAL == 0) {
+                            LOG.info("Imported " + counters[0] + " of " + total + " accounts.");
+                        }
+                    }
+                }
+            });
+        }
+        long elapsed = stopwatch.stop(bytes, counters[0]);
+        return new ImportReport(lines, counters[0], counters[1], ignored, parsed.size(), bytes, elapsed / 1_000_000, false);
+    }
+
+    /**
+     * The first free 'name_n', remembering where to continue so many clashes on one name stay cheap.
+     */
+    public static String freeName(String name, Map<String, Integer> nextSuffix, Predicate<String> taken) {
+        int suffix = nextSuffix.getOrDefault(name, 1);
+        String candidate = name + "_" + suffix;
+        while (taken.test(candidate)) {
+            candidate = name + "_" + ++suffix;
+        }
+        nextSuffix.put(name, suffix + 1);
+        return candidate;
+    }
+
+    /**
+     * The accounts of one range in file order, names and secrets alternating in a single list.
+     */
+    private static final class ParsedRange {
+        private final List<String> namesAndSecrets = new ArrayList<>();
+        private long lines;
+        private long ignored;
+
+        private void add(byte[] line, int length) {
+            lines++;
+            int separator = -1;
+            // '=' never occurs inside a multi-byte UTF-8 sequence, the bytes can be split before decoding
+            for (int i = 0; i < length; i++) {
+                if (line[i] == '=') {
+                    separator = i;
+                    break;
+                }
+            }
+            if (separator > 0) {
+                namesAndSecrets.add(new String(line, 0, separator, EncryptionManager.UTF8));
+                namesAndSecrets.add(new String(line, separator + 1, length - separator - 1, EncryptionManager.UTF8));
+            } else if (!StringUtils.isBlank(new String(line, 0, length, EncryptionManager.UTF8))) {
+                ignored++;
+            }
+        }
+
+        private int accounts() {
+            return namesAndSecrets.size() / 2;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.softinite.spam.encrdecr;
+
+import org.bouncycastle.crypto.params.KeyParameter;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+
+/**
+ * Responsible for encrypting and authenticating the chunks of a chunked vault, each one on its own with AES-GCM.
+ * A chunk record is: last chunk flag | nonce | cipher text and tag. The vault header, the position of the chunk
+ * and the last chunk flag are authenticated along with the content, so chunks cannot be reordered, dropped or cut off.
+ * Safe to use from many threads at once, every thread works with its own Cipher.
+ */
+public class ChunkCipher {
+
+    public static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    public static final int NONCE_LENGTH = 12;
+    public static final int TAG_LENGTH = 16;
+    public static final int RECORD_OVERHEAD = 1 + NONCE_LENGTH + TAG_LENGTH;
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final ThreadLocal<Cipher> CIPHERS = ThreadLocal.withInitial(ChunkCipher::newCipher);
+
+    private final SecretKey key;
+    private final byte[] header;
+
+    public ChunkCipher(KeyParameter key, byte[] header) {
+        this.key = new SecretKeySpec(key.getKey(), "AES");
+        this.header = header.clone();
+    }
+
+    public byte[] seal(byte[] chunk, int length, long index, boolean last) throws GeneralSecurityException {
+        byte[] nonce = new byte[NONCE_LENGTH];
+        RANDOM.nextBytes(nonce);
+        Cipher cipher = CIPHERS.get();
+        cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH * 8, nonce));
+        cipher.updateAAD(associatedData(index, last));
+        byte[] record = new byte[1 + NONCE_LENGTH + cipher.getOutputSize(length)];
+        record[0] = (byte) (last ? 1 : 0);
+        System.arraycopy(nonce, 0, record, 1, NONCE_LENGTH);
+        cipher.doFinal(chunk, 0, length, record, 1 + NONCE_LENGTH);
+        return record;
+    }
+
+    public byte[] open(byte[] record, long index) throws GeneralSecurityException {
+        if (record.length < RECORD_OVERHEAD) {
+            throw new GeneralSecurityException("Chunk " + index + " is shorter than its nonce and tag.");
+        }
+        Cipher cipher = CIPHERS.get();
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH * 8, record, 1, NONCE_LENGTH));
+        cipher.updateAAD(associatedData(index, isLast(record)));
+        return cipher.doFinal(record, 1 + NONCE_LENGTH, record.length - 1 - NONCE_LENGTH);
+    }
+
+    public static boolean isLast(byte[] record) {
+        return record.length > 0 && record[0] != 0;
+    }
+
+    private byte[] associatedData(long index, boolean last) {
+        return ByteBuffer.allocate(header.length + Long.BYTES + 1)
+                .put(header)
+                .putLong(index)
+                .put((byte) (last ? 1 : 0))
+                .array();
+    }
+
+    private static Cipher newCipher() {
+        try {
+            return Cipher.getInstance(TRANSFORMATION);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(TRANSFORMATION + " is not available", e);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.softinite.spam.encrdecr;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Responsible for compressing the chunks of a chunked vault before they are sealed, on the thread sealing them.
+ * Every compressed chunk starts with a marker byte: DEFLATED, or STORED when deflating would not have made it smaller.
+ * The level is recorded in the flags of the vault header, see ChunkedCipherOutputStream.
+ */
+public final class ChunkCompression {
+
+    public static final int OFF = 0;
+    public static final int MIN_LEVEL = 1;
+    public static final int MAX_LEVEL = 9;
+    public static final byte FLAG_DEFLATE = 0x01;
+    private static final byte STORED = 0;
+    private static final byte DEFLATED = 1;
+    private static final ThreadLocal<Deflater> DEFLATERS = ThreadLocal.withInitial(Deflater::new);
+    private static final ThreadLocal<Inflater> INFLATERS = ThreadLocal.withInitial(Inflater::new);
+
+    private ChunkCompression() {
+    }
+
+    public static int checkLevel(int level) {
+        if (level != OFF && (level < MIN_LEVEL || level > MAX_LEVEL)) {
+            throw new RuntimeException("Compression level must be between " + MIN_LEVEL + " and " + MAX_LEVEL + ", or " + OFF + " to turn it off.");
+        }
+        return level;
+    }
+
+    /**
+     * Header flags of a vault compressed at the level, the level itself is kept in the upper four bits.
+     */
+    public static byte flags(int level) {
+        return level == OFF ? 0 : (byte) (FLAG_DEFLATE | checkLevel(level) << 4);
+    }
+
+    public static int level(byte flags) {
+        return (flags & FLAG_DEFLATE) == 0 ? OFF : (flags >> 4) & 0x0F;
+    }
+
+    public static byte[] deflate(byte[] chunk, int length, int level) {
+        Deflater deflater = DEFLATERS.get();
+        deflater.reset();
+        deflater.setLevel(level);
+        deflater.setInput(chunk, 0, length);
+        deflater.finish();
+        byte[] compressed = new byte[1 + length];
+        int size = 1;
+        while (!deflater.finished() && size < compressed.length) {
+            size += deflater.deflate(compressed, size, compressed.length - size);
+        }
+        if (!deflater.finished()) {
+            compressed[0] = STORED;
+            System.arraycopy(chunk, 0, compressed, 1, length);
+            return compressed;
+        }
+        compressed[0] = DEFLATED;
+        byte[] result = Arrays.copyOf(compressed, size);
+        Arrays.fill(compressed, (byte) 0);
+        return result;
+    }
+
+    /**
+     * Restores a chunk of at most maxLength bytes, a chunk that does not fit or does not inflate is corrupted.
+     */
+    public static byte[] inflate(byte[] compressed, int maxLength) throws IOException {
+        if (compressed.length == 0) {
+            throw new IOException("Compressed chunk misses its marker.");
+        }
+        if (compressed[0] == STORED) {
+            return Arrays.copyOfRange(compressed, 1, compressed.length);
+        }
+        if (compressed[0] != DEFLATED) {
+            throw new IOException("Unknown chunk compression " + compressed[0]);
+        }
+        Inflater inflater = INFLATERS.get();
+        inflater.reset();
+        inflater.setInput(compressed, 1, compressed.length - 1);
+        // one spare byte lets a chunk of exactly maxLength finish, anything longer ends up in it
+        byte[] chunk = new byte[maxLength + 1];
+        int size = 0;
+        try {
+            while (!inflater.finished() && size < chunk.length) {
+                int inflated = inflater.inflate(chunk, size, chunk.length - size);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Compressed chunk is truncated.");
+                }
+                size += inflated;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Compressed chunk is corrupted.", e);
+        }
+        if (!inflater.finished() || size > maxLength) {
+            Arrays.fill(chunk, (byte) 0);
+            throw new IOException("Compressed chunk inflates beyond the chunk size.");
+        }
+        byte[] result = Arrays.copyOf(chunk, size);
+        Arrays.fill(chunk, (byte) 0);
+        return result;
+    }
+}
@@ -0,0 +1,165 @@
+package com.softinite.spam.encrdecr;
+
+import org.bouncycastle.crypto.io.InvalidCipherTextIOException;
+import org.bouncycastle.crypto.params.KeyParameter;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Responsible for reading a chunked vault written by ChunkedCipherOutputStream. Records are read ahead and opened
+ * in parallel on a ForkJoinPool while the plain text is handed out in order, chunks of a compressed vault are inflated
+ * by the same task that opened them. A chunk failing authentication,
+ * a vault ending before its last chunk or data after the last chunk fail the read with an InvalidCipherTextIOException.
+ */
+public class ChunkedCipherInputStream extends InputStream {
+
+    private final DataInputStream source;
+    private final ChunkCipher cipher;
+    private final ForkJoinPool pool;
+    private final int maxInFlight;
+    private final int chunkSize;
+    private final int compressionLevel;
+    private final Deque<CompletableFuture<byte[]>> inFlight = new ArrayDeque<>();
+    private long nextIndex;
+    private Boolean lastRead = Boolean.FALSE;
+    private byte[] chunk = new byte[0];
+    private int position;
+
+    public ChunkedCipherInputStream(InputStream source, KeyParameter key) throws IOException {
+        this(source, key, ForkJoinPool.commonPool());
+    }
+
+    public ChunkedCipherInputStream(InputStream source, KeyParameter key, ForkJoinPool pool) throws IOException {
+        this.source = new DataInputStream(source);
+        byte[] header = new byte[ChunkedCipherOutputStream.HEADER_LENGTH];
+        this.source.readFully(header);
+        if (!Arrays.equals(header, 0, VaultFormat.MAGIC.length, VaultFormat.MAGIC, 0, VaultFormat.MAGIC.length)
+                || header[VaultFormat.MAGIC.length] != VaultFormat.CHUNKED.getVersion()) {
+            throw new IOException("Not a chunked vault.");
+        }
+        this.chunkSize = ByteBuffer.wrap(header, VaultFormat.HEADER_LENGTH + 1, Integer.BYTES).getInt();
+        this.compressionLevel = ChunkCompression.level(header[VaultFormat.HEADER_LENGTH]);
+        this.cipher = new ChunkCipher(key, header);
+        this.pool = pool;
+        this.maxInFlight = 2 * pool.getParallelism();
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * The level the vault was compressed at, read from its header, or ChunkCompression.OFF.
+     */
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    private void readAhead() throws IOException {
+        while (!lastRead && inFlight.size() < maxInFlight) {
+            byte[] record;
+            try {
+                int length = source.readInt();
+                int maxContent = compressionLevel == ChunkCompression.OFF ? chunkSize : chunkSize + 1;
+                if (length < ChunkCipher.RECORD_OVERHEAD || length > maxContent + ChunkCipher.RECORD_OVERHEAD) {
+                    throw corrupted("Chunk " + nextIndex + " has an invalid length " + length + ".", null);
+                }
+                record = new byte[length];
+                source.readFully(record);
+            } catch (EOFException e) {
+                throw corrupted("Vault ends before its last chunk.", e);
+            }
+            lastRead = ChunkCipher.isLast(record);
+            long index = nextIndex++;
+            inFlight.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    byte[] opened = cipher.open(record, index);
+                    if (compressionLevel == ChunkCompression.OFF) {
+                        return opened;
+                    }
+                    try {
+                        return ChunkCompression.inflate(opened, chunkSize);
+                    } finally {
+                        Arrays.fill(opened, (byte) 0);
+                    }
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }, pool));
+        }
+        if (lastRead && inFlight.isEmpty() && source.read() != -1) {
+            throw corrupted("Vault holds data after its last chunk.", null);
+        }
+    }
+
+    /**
+     * Moves on to the next chunk, returns false once the last chunk has been handed out.
+     */
+    private boolean nextChunk() throws IOException {
+        while (position == chunk.length) {
+            Arrays.fill(chunk, (byte) 0);
+            readAhead();
+            if (inFlight.isEmpty()) {
+                return false;
+            }
+            try {
+                chunk = inFlight.removeFirst().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while decrypting a chunk.");
+            } catch (ExecutionException e) {
+                throw corrupted("Chunk could not be authenticated.", e.getCause());
+            }
+            position = 0;
+        }
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        return nextChunk() ? chunk[position++] & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!nextChunk()) {
+            return -1;
+        }
+        int count = Math.min(len, chunk.length - position);
+        System.arraycopy(chunk, position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public int available() {
+        return chunk.length - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        inFlight.forEach(pending -> pending.cancel(false));
+        inFlight.clear();
+        Arrays.fill(chunk, (byte) 0);
+        source.close();
+    }
+
+    private static IOException corrupted(String message, Throwable cause) {
+        return new InvalidCipherTextIOException(message, cause);
+    }
+}
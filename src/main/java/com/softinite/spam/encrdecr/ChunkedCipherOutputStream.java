@@ -0,0 +1,155 @@
+package com.softinite.spam.encrdecr;
+
+import org.bouncycastle.crypto.params.KeyParameter;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Responsible for writing a chunked vault: the plain text is cut into chunks which are sealed in parallel on a ForkJoinPool
+ * and written in order. Only a bounded number of chunks is in flight, so memory does not grow with the size of the vault.
+ * Layout: 'SPAM' | version | flags | chunk size (int) | records, each one as record length (int) | ChunkCipher record.
+ * The last record is always flagged as such, even when it is empty. With compression on, the flags hold its level and
+ * every chunk is deflated right before it is sealed, on the same thread, see ChunkCompression.
+ */
+public class ChunkedCipherOutputStream extends OutputStream {
+
+    public static final int DEFAULT_CHUNK_SIZE = 256 * 1024;
+    public static final int HEADER_LENGTH = VaultFormat.HEADER_LENGTH + 1 + Integer.BYTES;
+
+    private final DataOutputStream target;
+    private final ChunkCipher cipher;
+    private final ForkJoinPool pool;
+    private final int maxInFlight;
+    private final int chunkSize;
+    private final int compressionLevel;
+    private final Deque<CompletableFuture<byte[]>> inFlight = new ArrayDeque<>();
+    private byte[] buffer;
+    private int count;
+    private long nextIndex;
+    private Boolean closed = Boolean.FALSE;
+
+    public ChunkedCipherOutputStream(OutputStream target, KeyParameter key) throws IOException {
+        this(target, key, ChunkCompression.OFF);
+    }
+
+    public ChunkedCipherOutputStream(OutputStream target, KeyParameter key, int compressionLevel) throws IOException {
+        this(target, key, DEFAULT_CHUNK_SIZE, ForkJoinPool.commonPool(), compressionLevel);
+    }
+
+    public ChunkedCipherOutputStream(OutputStream target, KeyParameter key, int chunkSize, ForkJoinPool pool) throws IOException {
+        this(target, key, chunkSize, pool, ChunkCompression.OFF);
+    }
+
+    public ChunkedCipherOutputStream(OutputStream target, KeyParameter key, int chunkSize, ForkJoinPool pool, int compressionLevel) throws IOException {
+        byte[] header = header(ChunkCompression.flags(compressionLevel), chunkSize);
+        this.target = new DataOutputStream(target);
+        this.cipher = new ChunkCipher(key, header);
+        this.pool = pool;
+        this.maxInFlight = 2 * pool.getParallelism();
+        this.chunkSize = chunkSize;
+        this.compressionLevel = compressionLevel;
+        this.buffer = new byte[chunkSize];
+        this.target.write(header);
+    }
+
+    public static byte[] header(byte flags, int chunkSize) {
+        return ByteBuffer.allocate(HEADER_LENGTH)
+                .put(VaultFormat.MAGIC)
+                .put(VaultFormat.CHUNKED.getVersion())
+                .put(flags)
+                .putInt(chunkSize)
+                .array();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        buffer[count++] = (byte) b;
+        if (count == chunkSize) {
+            submit(false);
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            int copied = Math.min(len, chunkSize - count);
+            System.arraycopy(b, off, buffer, count, copied);
+            count += copied;
+            off += copied;
+            len -= copied;
+            if (count == chunkSize) {
+                submit(false);
+            }
+        }
+    }
+
+    private void submit(boolean last) throws IOException {
+        byte[] chunk = buffer;
+        int length = count;
+        long index = nextIndex++;
+        inFlight.add(CompletableFuture.supplyAsync(() -> {
+            try {
+                if (compressionLevel == ChunkCompression.OFF) {
+                    return cipher.seal(chunk, length, index, last);
+                }
+                byte[] compressed = ChunkCompression.deflate(chunk, length, compressionLevel);
+                try {
+                    return cipher.seal(compressed, compressed.length, index, last);
+                } finally {
+                    Arrays.fill(compressed, (byte) 0);
+                }
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            } finally {
+                Arrays.fill(chunk, 0, length, (byte) 0);
+            }
+        }, pool));
+        buffer = last ? null : new byte[chunkSize];
+        count = 0;
+        while (inFlight.size() > maxInFlight) {
+            writeOldest();
+        }
+    }
+
+    private void writeOldest() throws IOException {
+        byte[] record;
+        try {
+            record = inFlight.removeFirst().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while encrypting a chunk.");
+        } catch (ExecutionException e) {
+            throw new IOException("Could not encrypt a chunk.", e.getCause());
+        }
+        target.writeInt(record.length);
+        target.write(record);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = Boolean.TRUE;
+        try {
+            submit(true);
+            while (!inFlight.isEmpty()) {
+                writeOldest();
+            }
+        } finally {
+            inFlight.forEach(pending -> pending.cancel(false));
+            target.close();
+        }
+    }
+}
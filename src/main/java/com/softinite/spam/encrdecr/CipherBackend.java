@@ -0,0 +1,26 @@
+package com.softinite.spam.encrdecr;
+
+import org.bouncycastle.crypto.InvalidCipherTextException;
+import org.bouncycastle.crypto.params.KeyParameter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Responsible for running AES-256 in CBC mode with PKCS7 padding, every backend produces exactly the same bytes.
+ * One shot operations reuse a cipher per thread; streams get a cipher of their own since they may be open
+ * while the same thread seals or unseals records.
+ */
+public interface CipherBackend {
+
+    String getName();
+
+    OutputStream encryptingStream(OutputStream target, KeyParameter key, byte[] iv) throws IOException;
+
+    InputStream decryptingStream(InputStream source, KeyParameter key, byte[] iv, int bufferSize) throws IOException;
+
+    byte[] encrypt(KeyParameter key, byte[] iv, byte[] plainText, int offset, int length) throws InvalidCipherTextException;
+
+    byte[] decrypt(KeyParameter key, byte[] iv, byte[] cipherText, int offset, int length) throws InvalidCipherTextException;
+}
@@ -0,0 +1,102 @@
+package com.softinite.spam.encrdecr;
+
+import org.bouncycastle.crypto.InvalidCipherTextException;
+import org.bouncycastle.crypto.params.KeyParameter;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Responsible for picking the cipher backend. The 'spam.cipher' system property names one, or 'auto' to encrypt a sample
+ * with every backend on first use and keep the fastest; the measured throughput of each is logged and kept.
+ * Without the property the JDK provider is used right away, measuring costs more than a short command does.
+ * Backends are only instantiated once asked for, so BouncyCastle is not even loaded unless it is used.
+ */
+public final class CipherBackends {
+
+    public static final String BACKEND_PROPERTY = "spam.cipher";
+    public static final String AUTO = "auto";
+    public static final int SAMPLE_SIZE = 256 * 1024;
+    private static final int SAMPLE_ROUNDS = 3;
+    private static final Logger LOG = Logger.getLogger(CipherBackends.class.getName());
+
+    private static final Map<String, Supplier<CipherBackend>> FACTORIES = Map.of(
+            JceCipherBackend.NAME, JceCipherBackend::new,
+            BouncyCastleCipherBackend.NAME, BouncyCastleCipherBackend::new);
+    private static final List<String> NAMES = List.of(JceCipherBackend.NAME, BouncyCastleCipherBackend.NAME);
+    private static final Map<String, CipherBackend> BACKENDS = new HashMap<>();
+    private static final Map<String, Double> THROUGHPUT = new LinkedHashMap<>();
+    private static CipherBackend selected;
+
+    private CipherBackends() {
+    }
+
+    public static synchronized CipherBackend byName(String name) {
+        String key = name.toLowerCase(Locale.ROOT);
+        Supplier<CipherBackend> factory = FACTORIES.get(key);
+        if (factory == null) {
+            throw new RuntimeException("Unknown cipher backend " + name);
+        }
+        return BACKENDS.computeIfAbsent(key, ignored -> factory.get());
+    }
+
+    public static synchronized CipherBackend selected() {
+        if (selected == null) {
+            String configured = System.getProperty(BACKEND_PROPERTY, JceCipherBackend.NAME);
+            selected = AUTO.equalsIgnoreCase(configured) ? fastest() : byName(configured);
+            LOG.fine("Using the " + selected.getName() + " cipher backend.");
+        }
+        return selected;
+    }
+
+    /**
+     * Megabytes per second each backend encrypted while being measured, empty until a measurement ran.
+     */
+    public static synchronized Map<String, Double> getThroughput() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(THROUGHPUT));
+    }
+
+    private static CipherBackend fastest() {
+        CipherBackend fastest = byName(BouncyCastleCipherBackend.NAME);
+        double best = 0;
+        for (String name : NAMES) {
+            CipherBackend backend = byName(name);
+            try {
+                double throughput = measure(backend, SAMPLE_SIZE, SAMPLE_ROUNDS);
+                THROUGHPUT.put(backend.getName(), throughput);
+                LOG.info(String.format("AES throughput of %s: %.1f MB/s", backend.getName(), throughput));
+                if (throughput > best) {
+                    best = throughput;
+                    fastest = backend;
+                }
+            } catch (RuntimeException | InvalidCipherTextException e) {
+                LOG.log(Level.WARNING, "Cipher backend " + backend.getName() + " is not usable.", e);
+            }
+        }
+        return fastest;
+    }
+
+    /**
+     * Encrypts a sample once to warm the backend up, then reports the best of the following rounds in MB/s.
+     */
+    public static double measure(CipherBackend backend, int sampleSize, int rounds) throws InvalidCipherTextException {
+        KeyParameter key = new KeyParameter(new byte[32]);
+        byte[] iv = new byte[EncryptionManager.SEAL_IV_LENGTH];
+        byte[] sample = new byte[sampleSize];
+        backend.encrypt(key, iv, sample, 0, sample.length);
+        long bestNanos = Long.MAX_VALUE;
+        for (int i = 0; i < rounds; i++) {
+            long start = System.nanoTime();
+            backend.encrypt(key, iv, sample, 0, sample.length);
+            bestNanos = Math.min(bestNanos, Math.max(1, System.nanoTime() - start));
+        }
+        return sampleSize / (1024.0 * 1024.0) / (bestNanos / 1e9);
+    }
+}
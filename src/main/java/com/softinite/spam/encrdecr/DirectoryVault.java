@@ -0,0 +1,177 @@
+package com.softinite.spam.encrdecr;
+
+import com.softinite.spam.store.PersistentMap;
+import com.softinite.spam.store.VaultStore;
+import lombok.Value;
+import org.bouncycastle.crypto.InvalidCipherTextException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Responsible for the two tier vault layout: a sealed directory of account names followed by individually sealed secrets.
+ * Opening the vault only needs the directory, every secret is decrypted on its own when it is actually requested.
+ * Layout: 'SPAM' | version | directory length (int) | sealed directory | sealed secrets.
+ * The directory holds the number of accounts and, for each of them, the name and the position of its sealed secret.
+ * Secrets are read with positional reads on a channel kept open until close(), which has to happen before the file
+ * is replaced: unlike a mapping, nothing of the file is left behind once the channel is closed.
+ */
+public class DirectoryVault implements AutoCloseable {
+
+    private final FileProxy vaultFile;
+    private final EncryptionManager encryptionManager;
+    private FileChannel channel;
+    private boolean closed;
+
+    public DirectoryVault(FileProxy vaultFile, EncryptionManager encryptionManager) {
+        this.vaultFile = vaultFile;
+        this.encryptionManager = encryptionManager;
+    }
+
+    public FileProxy getVaultFile() {
+        return vaultFile;
+    }
+
+    public PersistentMap<String, SecretLocation> readDirectory(String password) throws IOException, NoSuchAlgorithmException, InvalidCipherTextException {
+        int directoryLength = ByteBuffer.wrap(read(VaultFormat.HEADER_LENGTH, Integer.BYTES)).getInt();
+        if (directoryLength < 0) {
+            throw new IOException("Vault " + vaultFile.getName() + " has a corrupt directory.");
+        }
+        long directoryStart = VaultFormat.HEADER_LENGTH + Integer.BYTES;
+        byte[] sealedDirectory = read(directoryStart, directoryLength);
+        long valuesStart = directoryStart + directoryLength;
+        DataInputStream directory = new DataInputStream(new ByteArrayInputStream(encryptionManager.unseal(sealedDirectory, password)));
+        int count = directory.readInt();
+        PersistentMap<String, SecretLocation> locations = PersistentMap.empty();
+        for (int i = 0; i < count; i++) {
+            String name = readName(directory);
+            locations = locations.put(name, new SecretLocation(valuesStart + directory.readLong(), directory.readInt()));
+        }
+        return locations;
+    }
+
+    public String unseal(SecretLocation location, String password) throws IOException, NoSuchAlgorithmException, InvalidCipherTextException {
+        return new String(encryptionManager.unseal(readSealed(location), password), EncryptionManager.UTF8);
+    }
+
+    protected byte[] readSealed(SecretLocation location) throws IOException {
+        return read(location.getOffset(), location.getLength());
+    }
+
+    /**
+     * Reads straight from the page cache into the returned array, concurrent reads do not disturb each other.
+     */
+    private byte[] read(long position, int length) throws IOException {
+        FileChannel source = channel();
+        ByteBuffer content = ByteBuffer.allocate(length);
+        while (content.hasRemaining()) {
+            if (source.read(content, position + content.position()) < 0) {
+                throw new IOException("Vault " + vaultFile.getName() + " ends before the " + length + " bytes at " + position);
+            }
+        }
+        return content.array();
+    }
+
+    /**
+     * Opened on first use. A channel closed by an interrupted reader is opened again, one closed by close() is not.
+     */
+    protected synchronized FileChannel channel() throws IOException {
+        if (closed) {
+            throw new ClosedChannelException();
+        }
+        if (channel == null || !channel.isOpen()) {
+            channel = vaultFile.openReadChannel();
+        }
+        return channel;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    /**
+     * Writes all the accounts into target. Secrets that are still sealed in this vault are copied as they are,
+     * only plaintext secrets get encrypted. Returns the location of every secret inside target.
+     */
+    public PersistentMap<String, SecretLocation> write(VaultStore accounts, PersistentMap<String, SecretLocation> sealedSecrets, String password, OutputStream target) throws IOException, NoSuchAlgorithmException, InvalidCipherTextException {
+        List<String> names = new ArrayList<>(accounts.size());
+        ByteArrayOutputStream directoryBytes = new ByteArrayOutputStream();
+        DataOutputStream directory = new DataOutputStream(directoryBytes);
+        directory.writeInt(accounts.size());
+        long relativeOffset = 0;
+        for (String name : accounts.names()) {
+            SecretLocation sealed = sealedSecrets.get(name);
+            int length = sealed != null ? sealed.getLength() : sealedLength(accounts.get(name).getBytes(EncryptionManager.UTF8).length);
+            writeName(directory, name);
+            directory.writeLong(relativeOffset);
+            directory.writeInt(length);
+            names.add(name);
+            relativeOffset += length;
+        }
+        byte[] sealedDirectory = encryptionManager.seal(directoryBytes.toByteArray(), password);
+        long valuesStart = VaultFormat.HEADER_LENGTH + Integer.BYTES + sealedDirectory.length;
+
+        long totalSize = valuesStart + relativeOffset;
+        if (totalSize > Integer.MAX_VALUE) {
+            throw new IOException("Vault with " + totalSize + " bytes is too large for the directory format.");
+        }
+        PersistentMap<String, SecretLocation> written = PersistentMap.empty();
+        DataOutputStream out = new DataOutputStream(target);
+        out.write(VaultFormat.MAGIC);
+        out.write(VaultFormat.DIRECTORY.getVersion());
+        out.writeInt(sealedDirectory.length);
+        out.write(sealedDirectory);
+        for (String name : names) {
+            SecretLocation sealed = sealedSecrets.get(name);
+            byte[] record = sealed != null
+                    ? readSealed(sealed)
+                    : encryptionManager.seal(accounts.get(name).getBytes(EncryptionManager.UTF8), password);
+            written = written.put(name, new SecretLocation(out.size(), record.length));
+            out.write(record);
+        }
+        out.flush();
+        return written;
+    }
+
+    /**
+     * Size of a sealed secret: the IV followed by the PKCS7 padded cipher text.
+     */
+    public static int sealedLength(int plainTextLength) {
+        return EncryptionManager.SEAL_IV_LENGTH + (plainTextLength / 16 + 1) * 16;
+    }
+
+    private static void writeName(DataOutputStream out, String name) throws IOException {
+        byte[] nameBytes = name.getBytes(EncryptionManager.UTF8);
+        out.writeInt(nameBytes.length);
+        out.write(nameBytes);
+    }
+
+    private static String readName(DataInputStream in) throws IOException {
+        byte[] nameBytes = new byte[in.readInt()];
+        in.readFully(nameBytes);
+        return new String(nameBytes, EncryptionManager.UTF8);
+    }
+
+    /**
+     * Position of a sealed secret inside the vault file.
+     */
+    @Value
+    public static class SecretLocation {
+        long offset;
+        int length;
+    }
+}
@@ -1,25 +1,26 @@
 package com.softinite.spam.encrdecr;
 
-import org.apache.commons.lang3.StringUtils;
-import org.bouncycastle.crypto.BlockCipher;
-import org.bouncycastle.crypto.BufferedBlockCipher;
+import com.softinite.spam.metrics.Metrics;
+import com.softinite.spam.metrics.Phase;
+import com.softinite.spam.metrics.Stopwatch;
+import com.softinite.spam.metrics.TimedInputStream;
+import com.softinite.spam.metrics.TimedOutputStream;
+import com.softinite.spam.store.VaultStore;
+import com.softinite.spam.store.VaultStoreType;
 import org.bouncycastle.crypto.InvalidCipherTextException;
-import org.bouncycastle.crypto.engines.AESEngine;
-import org.bouncycastle.crypto.modes.CBCBlockCipher;
-import org.bouncycastle.crypto.paddings.PaddedBufferedBlockCipher;
 import org.bouncycastle.crypto.params.KeyParameter;
 
 import javax.crypto.NoSuchPaddingException;
 import java.io.File;
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.charset.Charset;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
-import java.util.Properties;
+import java.security.SecureRandom;
+import java.util.Arrays;
 import java.util.logging.Logger;
 
 /**
@@ -29,84 +30,231 @@ import java.util.logging.Logger;
 public class EncryptionManager {
 
     public static final Charset UTF8 = Charset.forName("UTF-8");
+    public static final int DECRYPTION_BLOCK_SIZE = 64 * 1024;
+    public static final int SEAL_IV_LENGTH = 16;
     private static final Logger LOGGER = Logger.getLogger(EncryptionManager.class.getName());
+    private static final SecureRandom RANDOM = new SecureRandom();
+    /**
+     * The original single cipher text format always used an all zero IV.
+     */
+    private static final byte[] LEGACY_IV = new byte[16];
 
-    public FileProxy encrypt(Properties privateContent, String password, String fileName) throws IOException, InvalidCipherTextException, NoSuchPaddingException, NoSuchAlgorithmException, InvalidAlgorithmParameterException {
+    private VaultSerializer serializer = new VaultSerializer();
+    private SessionKeyCache keyCache = SessionKeyCache.shared();
+    private CipherBackend cipherBackend;
+    private volatile SessionKeyCache.Session session;
+    private volatile int compressionLevel = ChunkCompression.OFF;
+
+    /**
+     * Binds this manager to a vault: its key is derived here, once, and every following operation uses it without looking
+     * at the password again until closeSession(). Only a key wiped after sitting idle is derived again.
+     */
+    public void openSession(FileProxy vaultFile, String password) throws NoSuchAlgorithmException {
+        closeSession();
+        File file = vaultFile.getInternal();
+        session = keyCache.open(file != null ? file.getAbsolutePath() : null, generateKey(password));
+    }
+
+    public void closeSession() {
+        SessionKeyCache.Session closed = session;
+        if (closed != null) {
+            session = null;
+            keyCache.invalidate(closed);
+        }
+    }
+
+    public FileProxy encrypt(VaultStore privateContent, String password, String fileName) throws IOException, InvalidCipherTextException, NoSuchPaddingException, NoSuchAlgorithmException, InvalidAlgorithmParameterException {
+        return encrypt(privateContent, password, fileName, content -> {
+        });
+    }
+
+    public FileProxy encrypt(VaultStore privateContent, String password, String fileName, AtomicFileOutputStream.BeforeCommit beforeCommit) throws IOException, NoSuchAlgorithmException {
+        return encrypt(privateContent, password, fileName, target -> getCipherBackend().encryptingStream(target, keyParameter(password), LEGACY_IV), beforeCommit);
+    }
+
+    /**
+     * Writes the vault in the chunked format, its chunks are compressed at the compression level and encrypted on all the cores.
+     */
+    public FileProxy encryptChunked(VaultStore privateContent, String password, String fileName) throws IOException, NoSuchAlgorithmException {
+        return encryptChunked(privateContent, password, fileName, content -> {
+        });
+    }
+
+    public FileProxy encryptChunked(VaultStore privateContent, String password, String fileName, AtomicFileOutputStream.BeforeCommit beforeCommit) throws IOException, NoSuchAlgorithmException {
+        int level = compressionLevel;
+        return encrypt(privateContent, password, fileName, target -> new ChunkedCipherOutputStream(target, keyParameter(password), level), beforeCommit);
+    }
+
+    private FileProxy encrypt(VaultStore privateContent, String password, String fileName, CipherStreamFactory<OutputStream> cipherStream, AtomicFileOutputStream.BeforeCommit beforeCommit) throws IOException, NoSuchAlgorithmException {
         LOGGER.info("Preparing to encrypt content.");
         FileProxy encrypted = new FileProxy();
         encrypted.setInternal(new File(fileName));
-        BufferedBlockCipher cipher = buildCipher(password, Boolean.TRUE);
-        byte[] input = loadPlainText(privateContent);
-        byte[] outputBytes = performCryptographicOperation(cipher, input);
-        encrypted.write(outputBytes);
+        AtomicFileOutputStream target = encrypted.openAtomicOutputStream();
+        try {
+            long start = System.nanoTime();
+            TimedOutputStream file = new TimedOutputStream(target);
+            OutputStream cipherInput = cipherStream.open(file);
+            long openNanos = System.nanoTime() - start;
+            TimedOutputStream plainText = new TimedOutputStream(cipherInput);
+            try (plainText) {
+                getSerializer().serialize(privateContent, plainText);
+            }
+            recordPass(Phase.SERIALIZE, Phase.ENCRYPT, Phase.FILE_WRITE, System.nanoTime() - start, openNanos,
+                    plainText.getNanos(), plainText.getBytes(), file.getNanos(), file.getBytes(), privateContent.size());
+            long commitStart = System.nanoTime();
+            target.commit(beforeCommit);
+            Metrics.record(Phase.FILE_WRITE, System.nanoTime() - commitStart, 0, 0);
+        } finally {
+            target.discard();
+        }
         return encrypted;
     }
 
-    protected byte[] performCryptographicOperation(BufferedBlockCipher cipher, byte[] input) throws InvalidCipherTextException {
-        byte[] cipherText = new byte[cipher.getOutputSize(input.length)];
-        int outputLen = cipher.processBytes(input, 0, input.length, cipherText, 0);
-        cipher.doFinal(cipherText, outputLen);
-        return cipherText;
+    /**
+     * Encrypts a small standalone record under its own random IV, which is stored in front of the cipher text.
+     */
+    public byte[] seal(byte[] plainText, String password) throws NoSuchAlgorithmException, InvalidCipherTextException {
+        byte[] iv = new byte[SEAL_IV_LENGTH];
+        RANDOM.nextBytes(iv);
+        byte[] cipherText = getCipherBackend().encrypt(keyParameter(password), iv, plainText, 0, plainText.length);
+        byte[] sealed = new byte[iv.length + cipherText.length];
+        System.arraycopy(iv, 0, sealed, 0, iv.length);
+        System.arraycopy(cipherText, 0, sealed, iv.length, cipherText.length);
+        return sealed;
     }
 
-    protected BufferedBlockCipher buildCipher(String password, Boolean forEncryption) throws NoSuchAlgorithmException, NoSuchPaddingException, UnsupportedEncodingException, InvalidAlgorithmParameterException {
-        BlockCipher engine = new AESEngine();
-        BufferedBlockCipher cipher = new PaddedBufferedBlockCipher(new CBCBlockCipher(engine));
+    public byte[] unseal(byte[] sealed, String password) throws NoSuchAlgorithmException, InvalidCipherTextException {
+        if (sealed.length < SEAL_IV_LENGTH) {
+            throw new InvalidCipherTextException("Sealed record is shorter than its IV.");
+        }
+        byte[] iv = Arrays.copyOf(sealed, SEAL_IV_LENGTH);
+        return getCipherBackend().decrypt(keyParameter(password), iv, sealed, SEAL_IV_LENGTH, sealed.length - SEAL_IV_LENGTH);
+    }
 
+    protected KeyParameter keyParameter(String password) throws NoSuchAlgorithmException {
+        SessionKeyCache.Session current = session;
+        if (current != null) {
+            KeyParameter cached = keyCache.keyParameter(current);
+            if (cached != null) {
+                return cached;
+            }
+            byte[] key = generateKey(password);
+            KeyParameter parameter = new KeyParameter(key);
+            keyCache.rebind(current, key);
+            return parameter;
+        }
         byte[] key = generateKey(password);
-
-        cipher.init(forEncryption, new KeyParameter(key));
-        return cipher;
+        try {
+            return new KeyParameter(key);
+        } finally {
+            Arrays.fill(key, (byte) 0);
+        }
     }
 
     private byte[] generateKey(String password) throws NoSuchAlgorithmException {
+        Stopwatch stopwatch = Metrics.start(Phase.KEY_DERIVATION);
         MessageDigest digest = MessageDigest.getInstance("SHA-256");
         digest.update(password.getBytes(UTF8));
         byte[] keyBytes = new byte[32];
         System.arraycopy(digest.digest(), 0, keyBytes, 0, keyBytes.length);
+        stopwatch.stop(0, 1);
         return keyBytes;
     }
 
-    private byte[] loadPlainText(Properties privateContent) {
-        if (privateContent != null) {
-            return privateContent
-                    .entrySet()
-                    .stream()
-                    .reduce("", (accStr, entry) -> accStr + entry.getKey() + "=" + entry.getValue() + System.lineSeparator(), (s1, s2) -> s1 + s2)
-                    .getBytes(UTF8);
-        }
-        return new byte[]{};
-    }
-
-    public Properties decrypt(FileProxy encryptedFile, String password) throws InvalidAlgorithmParameterException, NoSuchAlgorithmException, NoSuchPaddingException, IOException, InvalidCipherTextException {
-        BufferedBlockCipher cipher = buildCipher(password, Boolean.FALSE);
-        final String absolutePath = encryptedFile.getInternal().getAbsolutePath();
-        LOGGER.info("Preparing to decrypt content " + absolutePath);
-        byte[] encryptedContent = Files.readAllBytes(Paths.get(absolutePath));
-
-        byte[] outputBytes = performCryptographicOperation(cipher, encryptedContent);
-
-        String decryptedStr = new String(outputBytes);
-        String[] pairs = StringUtils.split(decryptedStr, "\n");
-        Properties props = new Properties();
-        Boolean ivRead = Boolean.FALSE;
-        for (String pair : pairs) {
-            if (StringUtils.isNotBlank(pair)) {
-                int splitIdx = pair.indexOf("=");
-                if (splitIdx > 0) {
-                    String key = StringUtils.left(pair, splitIdx);
-                    String value = StringUtils.substring(pair, splitIdx + 1);
-                    props.put(key, value);
-                } else {
-                    if (ivRead) {
-                        LOGGER.warning("Invalid entry " + pair);
-                    } else {
-                        ivRead = Boolean.TRUE;
-                    }
-                }
+    public VaultStore decrypt(FileProxy encryptedFile, String password) throws InvalidAlgorithmParameterException, NoSuchAlgorithmException, NoSuchPaddingException, IOException, InvalidCipherTextException {
+        return decrypt(encryptedFile, password, VaultStoreType.SINGLE_THREADED.create());
+    }
+
+    public VaultStore decrypt(FileProxy encryptedFile, String password, VaultStore target) throws InvalidAlgorithmParameterException, NoSuchAlgorithmException, NoSuchPaddingException, IOException, InvalidCipherTextException {
+        return decrypt(encryptedFile, target, source -> getCipherBackend().decryptingStream(source, keyParameter(password), LEGACY_IV, DECRYPTION_BLOCK_SIZE));
+    }
+
+    /**
+     * Reads a vault in the chunked format, its chunks are decrypted on all the cores.
+     * The compression level found in its header becomes the level of the following writes.
+     */
+    public VaultStore decryptChunked(FileProxy encryptedFile, String password, VaultStore target) throws NoSuchAlgorithmException, IOException {
+        return decrypt(encryptedFile, target, source -> {
+            ChunkedCipherInputStream chunks = new ChunkedCipherInputStream(source, keyParameter(password));
+            compressionLevel = chunks.getCompressionLevel();
+            return chunks;
+        });
+    }
+
+    private VaultStore decrypt(FileProxy encryptedFile, VaultStore target, CipherStreamFactory<InputStream> cipherStream) throws NoSuchAlgorithmException, IOException {
+        LOGGER.info("Preparing to decrypt content " + encryptedFile.getInternal().getAbsolutePath());
+        long start = System.nanoTime();
+        TimedInputStream source = new TimedInputStream(encryptedFile.openMappedInputStream());
+        try {
+            InputStream cipherOutput = cipherStream.open(source);
+            long openNanos = System.nanoTime() - start;
+            TimedInputStream plainText = new TimedInputStream(cipherOutput);
+            try (plainText) {
+                getSerializer().deserialize(plainText, target);
             }
+            recordPass(Phase.PARSE, Phase.DECRYPT, Phase.FILE_READ, System.nanoTime() - start, openNanos,
+                    plainText.getNanos(), plainText.getBytes(), source.getNanos(), source.getBytes(), target.size());
+        } finally {
+            source.close();
+        }
+        return target;
+    }
+
+    /**
+     * Splits the time of a whole pass between its three stages. The file stream only saw its own time, the plain text
+     * stream also saw the cipher working on top of the file and whatever is left of the pass went to the serializer.
+     * Opening the cipher stream reads or writes the header and counts for the cipher.
+     */
+    private static void recordPass(Phase format, Phase cipher, Phase io, long passNanos, long openNanos,
+                                   long plainTextNanos, long plainTextBytes, long fileNanos, long fileBytes, int entries) {
+        long cipherNanos = openNanos + plainTextNanos;
+        Metrics.record(io, fileNanos, fileBytes, 0);
+        Metrics.record(cipher, cipherNanos - fileNanos, plainTextBytes, 0);
+        Metrics.record(format, passNanos - cipherNanos, plainTextBytes, entries);
+    }
+
+    protected VaultSerializer getSerializer() {
+        return serializer;
+    }
+
+    protected void setSerializer(VaultSerializer serializer) {
+        this.serializer = serializer;
+    }
+
+    /**
+     * Selected on first use unless one was set explicitly, see CipherBackends.
+     */
+    public CipherBackend getCipherBackend() {
+        if (cipherBackend == null) {
+            cipherBackend = CipherBackends.selected();
         }
-        return props;
+        return cipherBackend;
+    }
+
+    public void setCipherBackend(CipherBackend cipherBackend) {
+        this.cipherBackend = cipherBackend;
+    }
+
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    public void setCompressionLevel(int compressionLevel) {
+        this.compressionLevel = ChunkCompression.checkLevel(compressionLevel);
+    }
+
+    protected SessionKeyCache getKeyCache() {
+        return keyCache;
     }
 
+    protected void setKeyCache(SessionKeyCache keyCache) {
+        this.keyCache = keyCache;
+    }
+
+    /**
+     * Wraps the raw file stream into the stream that encrypts or decrypts it.
+     */
+    private interface CipherStreamFactory<T> {
+        T open(T raw) throws IOException, NoSuchAlgorithmException;
+    }
 }
@@ -1,6 +1,13 @@
 package com.softinite.spam.encrdecr;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 
 /**
  * Responsible for hiding internal implementation of file operations.
@@ -9,6 +16,8 @@ import java.io.*;
  */
 public class FileProxy {
 
+    public static final int IO_BUFFER_SIZE = 64 * 1024;
+
     private File internal;
 
     protected File getInternal() {
@@ -28,13 +37,93 @@ public class FileProxy {
         return getInternal().getName();
     }
 
+    public String getPath() {
+        return getInternal().getPath();
+    }
+
     public Boolean touch() throws IOException {
         return getInternal().createNewFile();
     }
 
     public void write(byte[] text) throws IOException {
-        try (FileOutputStream fos = new FileOutputStream(getInternal(), false)) {
-            fos.write(text);
+        AtomicFileOutputStream out = openAtomicOutputStream();
+        try {
+            out.write(text);
+            out.commit();
+        } finally {
+            out.discard();
+        }
+    }
+
+    /**
+     * Opens a stream whose content replaces this file only once it is committed and safely on disk.
+     */
+    public AtomicFileOutputStream openAtomicOutputStream() throws IOException {
+        return AtomicFileOutputStream.open(this);
+    }
+
+    /**
+     * Appends the data and forces it to disk before returning.
+     */
+    public void appendDurably(ByteBuffer data) throws IOException {
+        try (FileChannel channel = FileChannel.open(getInternal().toPath(), StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+            channel.force(false);
+        }
+    }
+
+    public InputStream openInputStream() throws IOException {
+        return new FileInputStream(getInternal());
+    }
+
+    /**
+     * Reads the file through memory mapped windows instead of copying it through read calls.
+     */
+    public InputStream openMappedInputStream() throws IOException {
+        return new MappedFileInputStream(openReadChannel());
+    }
+
+    public OutputStream openOutputStream() throws IOException {
+        FileChannel channel = FileChannel.open(getInternal().toPath(), StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        return new BufferedOutputStream(Channels.newOutputStream(channel), IO_BUFFER_SIZE);
+    }
+
+    public long length() {
+        return getInternal().length();
+    }
+
+    public Boolean delete() {
+        return getInternal().delete();
+    }
+
+    public void truncate(long size) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(getInternal(), "rw")) {
+            raf.setLength(size);
+        }
+    }
+
+    public FileChannel openReadChannel() throws IOException {
+        return FileChannel.open(getInternal().toPath(), StandardOpenOption.READ);
+    }
+
+    public FileProxy sibling(String suffix) {
+        FileProxy sibling = new FileProxy();
+        sibling.setInternal(new File(getInternal().getPath() + suffix));
+        return sibling;
+    }
+
+    /**
+     * Moves the source file over this one, replacing it in a single step, and makes the rename itself durable.
+     */
+    public void replaceWith(FileProxy source) throws IOException {
+        Path target = getInternal().toPath().toAbsolutePath();
+        Files.move(source.getInternal().toPath(), target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        try (FileChannel directory = FileChannel.open(target.getParent(), StandardOpenOption.READ)) {
+            directory.force(true);
+        } catch (IOException e) {
+            // not every platform allows syncing a directory, the rename is atomic regardless
         }
     }
 
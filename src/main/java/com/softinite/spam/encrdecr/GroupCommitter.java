@@ -0,0 +1,163 @@
+package com.softinite.spam.encrdecr;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Responsible for coalescing save requests. A request arriving after a quiet period is committed right away,
+ * every further request arriving within the commit window joins a single commit at the end of the window,
+ * so at most one fsync'd commit happens per window no matter how many edits are made.
+ * Every request blocks until the commit of its window is on disk and fails with that commit.
+ * A window of zero commits every request right away.
+ */
+public class GroupCommitter {
+
+    private static final Logger LOG = Logger.getLogger(GroupCommitter.class.getName());
+
+    private final long windowMillis;
+    private final Commit commit;
+    private ScheduledExecutorService scheduler;
+    /**
+     * The window requests currently join, completed once its commit is durable; null while no request is waiting.
+     */
+    private CompletableFuture<Void> pending;
+    private ScheduledFuture<?> scheduled;
+    private long lastCommitNanos;
+
+    public GroupCommitter(long windowMillis, Commit commit) {
+        this.windowMillis = windowMillis;
+        this.commit = commit;
+        this.lastCommitNanos = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(windowMillis);
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    /**
+     * Returns once everything done before the request is durable, the window is waited for without holding the committer.
+     */
+    public void request() throws IOException {
+        if (windowMillis <= 0) {
+            synchronized (this) {
+                lastCommitNanos = System.nanoTime();
+                commit.run();
+            }
+            return;
+        }
+        CompletableFuture<Void> window;
+        synchronized (this) {
+            if (pending == null) {
+                long sinceLastCommit = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastCommitNanos);
+                long delay = Math.max(0, windowMillis - sinceLastCommit);
+                pending = new CompletableFuture<>();
+                scheduled = scheduler().schedule(this::commitWindow, delay, TimeUnit.MILLISECONDS);
+            }
+            window = pending;
+        }
+        await(window);
+    }
+
+    /**
+     * Commits the current window right away instead of at its end.
+     */
+    public void flush() throws IOException {
+        CompletableFuture<Void> window;
+        synchronized (this) {
+            window = pending;
+            if (window == null) {
+                return;
+            }
+            scheduled.cancel(false);
+        }
+        commitWindow();
+        await(window);
+    }
+
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            ScheduledExecutorService stopped;
+            synchronized (this) {
+                stopped = scheduler;
+                scheduler = null;
+            }
+            if (stopped != null) {
+                stopped.shutdown();
+                awaitTermination(stopped);
+            }
+        }
+    }
+
+    /**
+     * Closes the current window, requests arriving from now on wait for the next one, and commits it.
+     * Runs on the scheduler at the end of the window or on the thread flushing it, whichever comes first.
+     */
+    private void commitWindow() {
+        CompletableFuture<Void> window;
+        synchronized (this) {
+            window = pending;
+            if (window == null) {
+                return;
+            }
+            pending = null;
+            scheduled = null;
+            lastCommitNanos = System.nanoTime();
+        }
+        try {
+            commit.run();
+            window.complete(null);
+        } catch (IOException | RuntimeException e) {
+            LOG.log(Level.SEVERE, "Group commit failed.", e);
+            window.completeExceptionally(e);
+        }
+    }
+
+    private static void await(CompletableFuture<Void> window) throws IOException {
+        try {
+            window.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the commit.");
+        } catch (ExecutionException e) {
+            // every caller of the window gets its own exception, so its stack trace shows who was waiting
+            throw new IOException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private static void awaitTermination(ScheduledExecutorService stopped) throws InterruptedIOException {
+        try {
+            stopped.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the last commit.");
+        }
+    }
+
+    private synchronized ScheduledExecutorService scheduler() {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "spam-group-commit");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return scheduler;
+    }
+
+    /**
+     * The work performed by one commit.
+     */
+    public interface Commit {
+        void run() throws IOException;
+    }
+}
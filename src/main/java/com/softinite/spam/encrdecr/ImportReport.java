@@ -0,0 +1,46 @@
+package com.softinite.spam.encrdecr;
+
+import lombok.Value;
+
+/**
+ * Responsible for the counters of one import, reported once instead of a log line per account.
+ */
+@Value
+public class ImportReport {
+
+    /**
+     * Lines, or records for formats whose records span several lines.
+     */
+    long lines;
+    /**
+     * Accounts added, or that would have been added by a dry run.
+     */
+    long imported;
+    /**
+     * Imported under a suffixed name because the name was taken.
+     */
+    long renamed;
+    /**
+     * Records without a name or a secret, or with one the vault cannot hold.
+     */
+    long ignored;
+    int ranges;
+    long bytes;
+    long elapsedMillis;
+    boolean dryRun;
+
+    public double getAccountsPerSecond() {
+        return imported * 1000.0 / Math.max(1, elapsedMillis);
+    }
+
+    public double getMegabytesPerSecond() {
+        return bytes / (1024.0 * 1024.0) / (Math.max(1, elapsedMillis) / 1000.0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %d accounts (%d renamed) from %d records in %d ranges, ignored %d records, took %d ms (%.0f accounts/s, %.1f MB/s).",
+                dryRun ? "Dry run, would import" : "Imported", imported, renamed, lines, ranges, ignored, elapsedMillis,
+                getAccountsPerSecond(), getMegabytesPerSecond());
+    }
+}
@@ -0,0 +1,86 @@
+package com.softinite.spam.encrdecr;
+
+import org.bouncycastle.crypto.InvalidCipherTextException;
+import org.bouncycastle.crypto.params.KeyParameter;
+
+import javax.crypto.Cipher;
+import javax.crypto.CipherInputStream;
+import javax.crypto.CipherOutputStream;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.GeneralSecurityException;
+
+/**
+ * Responsible for the AES of the JDK provider, which HotSpot compiles down to the AES instructions of the processor.
+ */
+public class JceCipherBackend implements CipherBackend {
+
+    public static final String NAME = "jce";
+    public static final String TRANSFORMATION = "AES/CBC/PKCS5Padding";
+
+    private final ThreadLocal<Cipher> ciphers = ThreadLocal.withInitial(JceCipherBackend::newCipher);
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public OutputStream encryptingStream(OutputStream target, KeyParameter key, byte[] iv) throws IOException {
+        return new CipherOutputStream(target, initForStream(Cipher.ENCRYPT_MODE, key, iv));
+    }
+
+    @Override
+    public InputStream decryptingStream(InputStream source, KeyParameter key, byte[] iv, int bufferSize) throws IOException {
+        return new BufferedInputStream(new CipherInputStream(source, initForStream(Cipher.DECRYPT_MODE, key, iv)), bufferSize);
+    }
+
+    @Override
+    public byte[] encrypt(KeyParameter key, byte[] iv, byte[] plainText, int offset, int length) throws InvalidCipherTextException {
+        return process(Cipher.ENCRYPT_MODE, key, iv, plainText, offset, length);
+    }
+
+    @Override
+    public byte[] decrypt(KeyParameter key, byte[] iv, byte[] cipherText, int offset, int length) throws InvalidCipherTextException {
+        return process(Cipher.DECRYPT_MODE, key, iv, cipherText, offset, length);
+    }
+
+    /**
+     * Padding failures are reported the way BouncyCastle reports them, callers tell a wrong password apart from an I/O failure.
+     */
+    private byte[] process(int mode, KeyParameter key, byte[] iv, byte[] input, int offset, int length) throws InvalidCipherTextException {
+        try {
+            Cipher cipher = ciphers.get();
+            init(cipher, mode, key, iv);
+            return cipher.doFinal(input, offset, length);
+        } catch (GeneralSecurityException e) {
+            throw new InvalidCipherTextException(e.getMessage(), e);
+        }
+    }
+
+    private static Cipher initForStream(int mode, KeyParameter key, byte[] iv) throws IOException {
+        try {
+            Cipher cipher = newCipher();
+            init(cipher, mode, key, iv);
+            return cipher;
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Could not initialize " + TRANSFORMATION, e);
+        }
+    }
+
+    private static void init(Cipher cipher, int mode, KeyParameter key, byte[] iv) throws GeneralSecurityException {
+        cipher.init(mode, new SecretKeySpec(key.getKey(), "AES"), new IvParameterSpec(iv));
+    }
+
+    private static Cipher newCipher() {
+        try {
+            return Cipher.getInstance(TRANSFORMATION);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(TRANSFORMATION + " is not available", e);
+        }
+    }
+}
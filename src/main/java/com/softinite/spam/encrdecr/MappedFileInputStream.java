@@ -0,0 +1,145 @@
+package com.softinite.spam.encrdecr;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.logging.Logger;
+
+/**
+ * Responsible for reading a file through the page cache by mapping it window by window,
+ * so even files larger than a single mapping are read without intermediate heap copies of the whole content.
+ * A window is unmapped as soon as the stream moves past it or is closed, instead of whenever the garbage collector
+ * gets to it, so the file can be replaced or truncated right after reading it even where mapped files are locked.
+ */
+public class MappedFileInputStream extends InputStream {
+
+    public static final long WINDOW_SIZE = 256L * 1024 * 1024;
+
+    private static final Logger LOG = Logger.getLogger(MappedFileInputStream.class.getName());
+    private static final MethodHandle UNMAP = findUnmap();
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private final long windowSize;
+    private long windowStart;
+    private MappedByteBuffer window;
+
+    public MappedFileInputStream(FileChannel channel) throws IOException {
+        this(channel, WINDOW_SIZE);
+    }
+
+    public MappedFileInputStream(FileChannel channel, long windowSize) throws IOException {
+        this.channel = channel;
+        this.fileSize = channel.size();
+        this.windowSize = windowSize;
+        mapWindow(0);
+    }
+
+    /**
+     * The JDK only unmaps a buffer through its cleaner, which is reachable from Unsafe.invokeCleaner on every JDK since 9.
+     * Without it windows are left to the garbage collector.
+     */
+    private static MethodHandle findUnmap() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            return MethodHandles.lookup()
+                    .findVirtual(unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+                    .bindTo(theUnsafe.get(null));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            LOG.fine("Mapped windows are left to the garbage collector: " + e);
+            return null;
+        }
+    }
+
+    private void mapWindow(long start) throws IOException {
+        unmapWindow();
+        windowStart = start;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(windowSize, fileSize - start));
+    }
+
+    private void unmapWindow() throws IOException {
+        MappedByteBuffer mapped = window;
+        window = null;
+        if (mapped == null || UNMAP == null) {
+            return;
+        }
+        try {
+            UNMAP.invokeExact((ByteBuffer) mapped);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IOException("Could not unmap " + mapped, e);
+        }
+    }
+
+    private boolean ensureAvailable() throws IOException {
+        if (window == null) {
+            throw new IOException("Stream closed.");
+        }
+        if (window.hasRemaining()) {
+            return true;
+        }
+        long nextStart = windowStart + window.capacity();
+        if (nextStart >= fileSize) {
+            return false;
+        }
+        mapWindow(nextStart);
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        return ensureAvailable() ? window.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensureAvailable()) {
+            return -1;
+        }
+        int count = Math.min(len, window.remaining());
+        window.get(b, off, count);
+        return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        ensureAvailable();
+        long target = Math.min(fileSize, windowStart + window.position() + Math.max(0, n));
+        long skipped = target - (windowStart + window.position());
+        if (target < windowStart + window.capacity()) {
+            window.position((int) (target - windowStart));
+        } else {
+            mapWindow(target);
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        if (window == null) {
+            return 0;
+        }
+        return (int) Math.min(Integer.MAX_VALUE, fileSize - windowStart - window.position());
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            unmapWindow();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.softinite.spam.encrdecr;
+
+import lombok.Value;
+
+/**
+ * Responsible for the counters of one merge, reported once instead of a log line per account.
+ */
+@Value
+public class MergeReport {
+
+    int sources;
+    /**
+     * Accounts of all the sources together.
+     */
+    long accounts;
+    /**
+     * Accounts added under their own name.
+     */
+    long added;
+    /**
+     * Added under a suffixed name because the name already held another secret.
+     */
+    long renamed;
+    /**
+     * Skipped because the same name already held the same secret.
+     */
+    long identical;
+    int partitions;
+    long elapsedMillis;
+
+    @Override
+    public String toString() {
+        return String.format("Merged %d accounts from %d files: %d added, %d renamed, %d already present, took %d ms in %d partitions.",
+                accounts, sources, added, renamed, identical, elapsedMillis, partitions);
+    }
+}
@@ -1,26 +1,37 @@
 package com.softinite.spam.encrdecr;
 
+import com.softinite.spam.index.MerkleTree;
+import com.softinite.spam.index.SortedNameIndex;
+import com.softinite.spam.index.TrigramIndex;
+import com.softinite.spam.metrics.Metrics;
+import com.softinite.spam.metrics.Phase;
+import com.softinite.spam.metrics.Stopwatch;
+import com.softinite.spam.store.PersistentMap;
+import com.softinite.spam.store.SecretArena;
+import com.softinite.spam.store.VaultStore;
+import com.softinite.spam.store.VaultStoreType;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
-import org.apache.commons.lang3.StringUtils;
+import lombok.Value;
 import org.bouncycastle.crypto.InvalidCipherTextException;
 
 import javax.crypto.BadPaddingException;
 import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.NoSuchPaddingException;
+import java.io.File;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.io.UncheckedIOException;
+import java.nio.channels.ClosedChannelException;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
-import java.util.Properties;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
-import java.util.UUID;
-import java.util.logging.Logger;
 
 /**
  * Responsible for loading and holding the passwords
@@ -28,87 +39,565 @@ import java.util.logging.Logger;
  */
 public class PasswordContainer {
 
-    private static final Logger LOG = Logger.getLogger(PasswordContainer.class.getName());
+    private static final String SEALED_PLACEHOLDER = "";
 
-    private Properties properties;
+    private VaultStore store;
     private EncryptionManager encryptionManager;
 
+    @Getter
+    @Setter
+    private VaultStoreType storeType = VaultStoreType.SNAPSHOT;
+
     @Getter(AccessLevel.PROTECTED)
     @Setter(AccessLevel.PROTECTED)
     private String password;
 
     private String storageFileName;
 
+    @Getter(AccessLevel.PROTECTED)
+    @Setter(AccessLevel.PROTECTED)
+    private VaultJournal journal;
+
+    private final List<byte[]> pendingOperations = new ArrayList<>();
+    private final Object commitLock = new Object();
+    private long pendingBytes;
+    private long snapshotSize;
+
+    @Getter
+    private VaultFormat format = VaultFormat.LEGACY;
+    private Boolean formatChanged = Boolean.FALSE;
+
+    /**
+     * Secrets of a directory vault that have not been decrypted yet, their accounts hold an empty placeholder in the store.
+     * Read without holding the container, like the store.
+     */
+    private volatile Sealed sealed = Sealed.NOTHING;
+    private GroupCommitter groupCommitter;
+
+    /**
+     * The batch run by atomically(), only ever touched by the thread running it.
+     */
+    private volatile Thread batchOwner;
+    private Batch batch;
+
+    /**
+     * Kept in step with the store by every mutation, see applyPut and applyRemove.
+     * The sorted names always hold every name the store has published, and possibly a few more while they are being
+     * added or removed; listAccounts only shows the ones the store holds.
+     * The trigram index is only built by the first search, runs that never search, like imports, do not pay for it.
+     */
+    private final TrigramIndex nameIndex = new TrigramIndex();
+    private boolean nameIndexBuilt;
+    private final SortedNameIndex sortedNames = new SortedNameIndex();
+
+    /**
+     * Digests of every account, only kept once a vault has been synced; they are saved next to every snapshot from then on.
+     */
+    private MerkleTree digests;
+    private boolean digestsChanged;
+
     public void init(String rootPassoword, FileProxy existingFile) throws IOException, IllegalBlockSizeException, BadPaddingException, NoSuchAlgorithmException, NoSuchPaddingException, InvalidAlgorithmParameterException, InvalidCipherTextException {
         setPassword(rootPassoword);
-        setStorageFileName(existingFile.getName());
+        setStorageFileName(existingFile.getPath());
         setEncryptionManager(new EncryptionManager());
+        getEncryptionManager().openSession(existingFile, rootPassoword);
         if (existingFile.isEmpty()) {
-            setProperties(new Properties());
+            setStore(getStoreType().create());
         } else {
-            decrypt(rootPassoword, existingFile);
+            VaultFormat detected = VaultFormat.detect(existingFile);
+            if (detected == VaultFormat.DIRECTORY) {
+                openDirectory(rootPassoword, existingFile);
+            } else if (detected == VaultFormat.CHUNKED) {
+                openChunked(rootPassoword, existingFile);
+            } else {
+                decrypt(rootPassoword, existingFile);
+            }
         }
+        snapshotSize = existingFile.length();
+        digests = VaultDigests.forVault(getStorageFileName(), getEncryptionManager()).read(existingFile, rootPassoword);
+        setJournal(VaultJournal.forVault(getStorageFileName(), getEncryptionManager()));
+        getJournal().replay(rootPassoword, this);
     }
 
     protected void decrypt(String rootPassoword, FileProxy existingFile) throws NoSuchPaddingException, NoSuchAlgorithmException, IOException, BadPaddingException, IllegalBlockSizeException, InvalidAlgorithmParameterException, InvalidCipherTextException {
-        setProperties(getEncryptionManager().decrypt(existingFile, rootPassoword));
+        setStore(getEncryptionManager().decrypt(existingFile, rootPassoword, getStoreType().create()));
+    }
+
+    protected void openChunked(String rootPassoword, FileProxy existingFile) throws IOException, NoSuchAlgorithmException {
+        format = VaultFormat.CHUNKED;
+        setStore(getEncryptionManager().decryptChunked(existingFile, rootPassoword, getStoreType().create()));
+    }
+
+    protected void openDirectory(String rootPassoword, FileProxy existingFile) throws IOException, NoSuchAlgorithmException, InvalidCipherTextException {
+        format = VaultFormat.DIRECTORY;
+        DirectoryVault vault = new DirectoryVault(existingFile, getEncryptionManager());
+        PersistentMap<String, DirectoryVault.SecretLocation> locations = vault.readDirectory(rootPassoword);
+        setStore(getStoreType().create(locations.size()));
+        sealAll(vault, locations);
+    }
+
+    /**
+     * The new seals are published before the secrets they replace are dropped from the store,
+     * so a concurrent reader finds every secret in one of them.
+     */
+    private void sealAll(DirectoryVault vault, PersistentMap<String, DirectoryVault.SecretLocation> locations) {
+        sealed = new Sealed(vault, locations);
+        locations.forEach((name, location) -> {
+            getStore().set(name, SEALED_PLACEHOLDER);
+            if (nameIndexBuilt) {
+                nameIndex.add(name);
+            }
+            sortedNames.add(name);
+        });
+    }
+
+    /**
+     * Selects the layout used by the next save, switching layouts always rewrites the whole vault.
+     */
+    public synchronized void setFormat(VaultFormat format) {
+        if (format != this.format) {
+            this.format = format;
+            formatChanged = Boolean.TRUE;
+        }
+    }
+
+    public int getCompressionLevel() {
+        return getEncryptionManager().getCompressionLevel();
+    }
+
+    /**
+     * Selects the level the chunks of the next save are compressed at, only the chunked layout compresses.
+     * Changing the level rewrites the whole vault.
+     */
+    public synchronized void setCompressionLevel(int level) {
+        if (level != getCompressionLevel()) {
+            getEncryptionManager().setCompressionLevel(level);
+            formatChanged = Boolean.TRUE;
+        }
     }
 
     public Set<String> loadKeys() {
-        return (Set) getProperties().keySet();
+        return getStore().names();
+    }
+
+    public VaultStore getStore() {
+        return store;
+    }
+
+    public synchronized void setStore(VaultStore store) {
+        this.store = store;
+        nameIndex.clear();
+        nameIndexBuilt = false;
+        sortedNames.clear();
+        digests = null;
+        if (store != null) {
+            sortedNames.addAll(store.names());
+        }
+    }
+
+    /**
+     * Account names in case insensitive order, as published by one version of the store. Needs no sorting.
+     */
+    public List<String> listAccounts() {
+        return published(sortedNames.ordered());
     }
 
-    public Properties getProperties() {
-        return properties;
+    /**
+     * Account names starting with the prefix, ignoring case, in order.
+     */
+    public List<String> listAccounts(String prefix) {
+        return published(sortedNames.withPrefix(prefix));
     }
 
-    public void setProperties(Properties properties) {
-        this.properties = properties;
+    /**
+     * Drops the names a batch is still adding or has just removed, by checking them against a single version of the store.
+     */
+    private List<String> published(Collection<String> names) {
+        VaultStore snapshot = getStore().snapshot();
+        VaultStore version = snapshot != null ? snapshot : getStore();
+        List<String> present = new ArrayList<>(names.size());
+        for (String name : names) {
+            if (version.containsKey(name)) {
+                present.add(name);
+            }
+        }
+        return present;
+    }
+
+    /**
+     * Account names containing the pattern, ignoring case, in the order of listAccounts().
+     */
+    public synchronized List<String> searchAccounts(String pattern) {
+        Stopwatch stopwatch = Metrics.start(Phase.SEARCH);
+        if (!nameIndexBuilt) {
+            nameIndex.addAll(getStore().names());
+            nameIndexBuilt = true;
+        }
+        List<String> matches = SortedNameIndex.sort(nameIndex.search(pattern));
+        stopwatch.stop(0, matches.size());
+        return matches;
+    }
+
+    /**
+     * Names and secrets the vault file cannot hold are rejected, see VaultSerializer.isStorable.
+     */
+    public synchronized void addAccount(String accountName, String accountSecret) {
+        if (!VaultSerializer.isStorable(accountName, accountSecret)) {
+            throw new IllegalArgumentException("Cannot store account " + accountName + ": names cannot be empty or hold '"
+                    + VaultSerializer.SEPARATOR + "' or line breaks, secrets cannot hold line breaks.");
+        }
+        applyPut(accountName, accountSecret);
+        recordOperation(VaultJournal.putOperation(accountName, accountSecret));
+    }
+
+    /**
+     * The secret goes in before its seal comes off, so a concurrent reader never sees the placeholder.
+     */
+    protected void applyPut(String accountName, String accountSecret) {
+        getStore().set(accountName, accountSecret);
+        sortedNames.add(accountName);
+        afterPublish(accountName, () -> {
+            sealed = sealed.without(accountName);
+            if (nameIndexBuilt) {
+                nameIndex.add(accountName);
+            }
+            if (digests != null) {
+                digests.put(accountName, accountSecret);
+            }
+        });
+    }
+
+    /**
+     * The account leaves the store before its seal comes off, so a concurrent reader never sees the placeholder.
+     */
+    protected void applyRemove(String accountName) {
+        getStore().delete(accountName);
+        afterPublish(accountName, () -> {
+            sealed = sealed.without(accountName);
+            if (nameIndexBuilt) {
+                nameIndex.remove(accountName);
+            }
+            if (!getStore().containsKey(accountName)) {
+                sortedNames.remove(accountName);
+            }
+            if (digests != null) {
+                digests.remove(accountName);
+            }
+        });
     }
 
-    public void addAccount(String accountName, String accountSecret) {
-        getProperties().put(accountName, accountSecret);
+    /**
+     * Outside of a batch the derived state follows the store right away, within one it follows once the store has
+     * published the whole batch.
+     */
+    private void afterPublish(String accountName, Runnable update) {
+        if (inBatch()) {
+            batch.edited.add(accountName);
+        }
+        afterPublish(update);
+    }
+
+    private void afterPublish(Runnable update) {
+        if (inBatch()) {
+            batch.updates.add(update);
+        } else {
+            update.run();
+        }
+    }
+
+    private boolean inBatch() {
+        return batchOwner == Thread.currentThread();
+    }
+
+    /**
+     * Runs several edits so that readers see either all of them or none: the store publishes them at once and the seals,
+     * indexes, digests and journal operations they imply follow right after. When the edits fail, none of it changes.
+     * With a store that is not atomic, see VaultStore.isAtomic, the edits simply run one after the other.
+     */
+    public synchronized void atomically(Runnable edits) {
+        if (inBatch() || !getStore().isAtomic()) {
+            getStore().atomically(edits);
+            return;
+        }
+        Batch current = new Batch();
+        batch = current;
+        batchOwner = Thread.currentThread();
+        try {
+            getStore().atomically(edits);
+        } catch (RuntimeException | Error e) {
+            current.edited.stream().filter(name -> !getStore().containsKey(name)).forEach(sortedNames::remove);
+            throw e;
+        } finally {
+            batchOwner = null;
+            batch = null;
+        }
+        current.updates.forEach(Runnable::run);
+    }
+
+    /**
+     * Remembers a mutation for the next journal record.
+     */
+    protected void recordOperation(byte[] operation) {
+        afterPublish(() -> appendOperation(operation));
+    }
+
+    /**
+     * Once the pending operations alone would trigger a compaction they are no longer kept, the next save rewrites the snapshot anyway.
+     * Operations hold secrets in plain text, so every one of them is wiped as soon as it is written or dropped.
+     */
+    private void appendOperation(byte[] operation) {
+        if (pendingBytes <= Math.max(VaultJournal.MIN_COMPACTION_THRESHOLD, snapshotSize)) {
+            pendingOperations.add(operation);
+        } else {
+            SecretArena.wipe(operation);
+        }
+        pendingBytes += operation.length;
     }
 
+    /**
+     * Makes every change durable before returning. With a commit window, saves requested within the window wait for
+     * a single commit at its end and all fail if it fails.
+     */
     public void save() throws NoSuchPaddingException, InvalidKeyException, NoSuchAlgorithmException, IOException, BadPaddingException, IllegalBlockSizeException, NoSuchProviderException, InvalidAlgorithmParameterException, InvalidCipherTextException {
-        getEncryptionManager().encrypt(getProperties(), getPassword(), getStorageFileName());
+        if (groupCommitter == null) {
+            commitPending();
+        } else {
+            groupCommitter.request();
+        }
     }
 
-    public void dumpToNewFile(FileProxy fProxy) throws IOException {
-        fProxy.touch();
-        try (PrintWriter fWriter = fProxy.loadWriter()) {
-            getProperties().list(fWriter);
+    public void setCommitWindow(long windowMillis) throws IOException {
+        closeCommitter();
+        groupCommitter = windowMillis > 0 ? new GroupCommitter(windowMillis, this::commitInBackground) : null;
+    }
+
+    /**
+     * Commits whatever is still pending, then releases the store and the session key, wiping secrets kept off the heap.
+     */
+    public void close() throws IOException {
+        try {
+            closeCommitter();
+        } finally {
+            if (sealed.getVault() != null) {
+                sealed.getVault().close();
+            }
+            if (getStore() != null) {
+                getStore().close();
+            }
+            if (getEncryptionManager() != null) {
+                getEncryptionManager().closeSession();
+            }
         }
     }
 
-    public void importAccounts(FileProxy fProxy) throws IOException {
-        Files.lines(Paths.get(fProxy.getName())).forEach(this::importLine);
+    private void closeCommitter() throws IOException {
+        if (groupCommitter != null) {
+            groupCommitter.close();
+        }
     }
 
-    protected void importLine(String line) {
-        if (!StringUtils.isBlank(line)) {
-            int eqPos = StringUtils.indexOf(line, "=");
-            if (eqPos > 0) {
-                String acctName = StringUtils.left(line, eqPos);
-                String acctSecret = StringUtils.substring(line, eqPos + 1);
-                LOG.info("Importing account " + acctName);
-                String existingAcctWithSameName = getProperties().getProperty(acctName);
-                if (existingAcctWithSameName != null) {
-                    LOG.warning("Account " + acctName + " already exists.");
-                    acctName += "_" + UUID.randomUUID().toString();
-                    LOG.warning("Importing under the new name '" + acctName + "'");
+    private void commitInBackground() throws IOException {
+        try {
+            commitPending();
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Could not save " + getStorageFileName(), e);
+        }
+    }
+
+    /**
+     * Commits are serialized among themselves, yet they only hold the container while picking what to write.
+     * When the store can take a snapshot, the snapshot is encrypted while writers carry on and their edits stay pending
+     * for the next commit; a failed commit puts its operations back in front of them.
+     */
+    protected void commitPending() throws NoSuchPaddingException, NoSuchAlgorithmException, IOException, InvalidAlgorithmParameterException, InvalidCipherTextException {
+        synchronized (commitLock) {
+            List<byte[]> operations;
+            long operationBytes;
+            VaultStore snapshot = null;
+            VaultFormat snapshotFormat = null;
+            byte[] snapshotDigests = null;
+            synchronized (this) {
+                boolean append = getJournal() != null && !formatChanged && !digestsChanged && !pendingOperations.isEmpty() && !getJournal().needsCompaction(snapshotSize, pendingBytes);
+                if (!append) {
+                    snapshotFormat = getFormat();
+                    snapshot = takeSnapshot();
+                    if (snapshot == null) {
+                        compact();
+                        pendingOperations.forEach(SecretArena::wipe);
+                        clearPending();
+                        return;
+                    }
+                    snapshotDigests = digests == null ? null : digests.toBytes();
+                    digestsChanged = false;
                 }
-                getProperties().put(acctName, acctSecret);
-            } else {
-                LOG.warning("Ignoring import line '" + line + "' as it does not contain the '=' separator between account name and secret.");
+                operations = new ArrayList<>(pendingOperations);
+                operationBytes = pendingBytes;
+                clearPending();
+            }
+            try {
+                if (snapshot == null) {
+                    getJournal().append(operations, getPassword());
+                } else {
+                    long written = writeSnapshot(snapshot, snapshotFormat);
+                    writeDigests(snapshotDigests);
+                    synchronized (this) {
+                        snapshotSize = written;
+                        formatChanged = formatChanged && snapshotFormat != getFormat();
+                        deleteJournal();
+                    }
+                }
+            } catch (Exception e) {
+                synchronized (this) {
+                    pendingOperations.addAll(0, operations);
+                    pendingBytes += operationBytes;
+                    digestsChanged = digestsChanged || snapshotDigests != null;
+                }
+                throw e;
+            }
+            operations.forEach(SecretArena::wipe);
+        }
+    }
+
+    /**
+     * A consistent copy of every account for the next snapshot, null when it has to be written while holding the container.
+     */
+    private VaultStore takeSnapshot() {
+        if (getFormat() == VaultFormat.DIRECTORY) {
+            return null;
+        }
+        materializeAll();
+        return getStore().snapshot();
+    }
+
+    private void clearPending() {
+        pendingOperations.clear();
+        pendingBytes = 0;
+    }
+
+    protected synchronized void compact() throws NoSuchPaddingException, NoSuchAlgorithmException, IOException, InvalidAlgorithmParameterException, InvalidCipherTextException {
+        if (getFormat() == VaultFormat.DIRECTORY) {
+            snapshotSize = writeDirectory();
+        } else {
+            materializeAll();
+            snapshotSize = writeSnapshot(getStore(), getFormat());
+        }
+        writeDigests(digests == null ? null : digests.toBytes());
+        digestsChanged = false;
+        formatChanged = Boolean.FALSE;
+        deleteJournal();
+    }
+
+    /**
+     * Stores the digests of the snapshot just written, if this vault keeps any.
+     */
+    private void writeDigests(byte[] snapshotDigests) throws IOException, NoSuchAlgorithmException, InvalidCipherTextException {
+        if (snapshotDigests != null) {
+            FileProxy vaultFile = new FileProxy();
+            vaultFile.setInternal(new File(getStorageFileName()));
+            VaultDigests.forVault(getStorageFileName(), getEncryptionManager()).write(vaultFile, snapshotDigests, getPassword());
+        }
+    }
+
+    /**
+     * The digests of every account, computed from all the secrets the first time a vault is synced.
+     * From then on they are kept up to date by every change and the next save stores them next to the vault.
+     */
+    public synchronized MerkleTree digests() {
+        if (digests == null) {
+            MerkleTree computed = new MerkleTree();
+            for (String name : getStore().names()) {
+                computed.put(name, loadSecret(name));
+            }
+            digests = computed;
+            digestsChanged = true;
+        }
+        return digests;
+    }
+
+    private long writeSnapshot(VaultStore source, VaultFormat snapshotFormat) throws NoSuchPaddingException, NoSuchAlgorithmException, IOException, InvalidAlgorithmParameterException, InvalidCipherTextException {
+        FileProxy snapshot = snapshotFormat == VaultFormat.CHUNKED
+                ? getEncryptionManager().encryptChunked(source, getPassword(), getStorageFileName(), this::retireJournal)
+                : getEncryptionManager().encrypt(source, getPassword(), getStorageFileName(), this::retireJournal);
+        return snapshot.length();
+    }
+
+    /**
+     * Runs right before a new snapshot replaces the vault, so a journal the snapshot already holds is never replayed on top of it.
+     */
+    private void retireJournal(FileProxy snapshot) throws IOException {
+        if (getJournal() != null) {
+            getJournal().retire(snapshot, getPassword());
+        }
+    }
+
+    private void deleteJournal() throws IOException {
+        if (getJournal() != null) {
+            getJournal().delete();
+        }
+    }
+
+    /**
+     * Writes a directory vault next to the current one and swaps it in. The current one is closed right before the swap,
+     * readers that hit it while closed wait for the container and read from the new one. Once written, every secret is
+     * sealed again so only the account names stay in memory.
+     */
+    protected long writeDirectory() throws IOException, NoSuchAlgorithmException, InvalidCipherTextException {
+        FileProxy vaultFile = new FileProxy();
+        vaultFile.setInternal(new File(getStorageFileName()));
+        Sealed current = sealed;
+        DirectoryVault writer = current.getVault() != null ? current.getVault() : new DirectoryVault(vaultFile, getEncryptionManager());
+        PersistentMap<String, DirectoryVault.SecretLocation> locations;
+        boolean[] swapped = new boolean[1];
+        AtomicFileOutputStream out = vaultFile.openAtomicOutputStream();
+        try {
+            locations = writer.write(getStore(), current.getLocations(), getPassword(), out);
+            out.commit(content -> {
+                retireJournal(content);
+                writer.close();
+                swapped[0] = true;
+            });
+        } catch (IOException | RuntimeException e) {
+            if (swapped[0] && current.getVault() != null) {
+                // the swap failed after the current vault was closed, it is still the one on disk
+                sealed = new Sealed(new DirectoryVault(vaultFile, getEncryptionManager()), current.getLocations());
             }
+            throw e;
+        } finally {
+            out.discard();
+        }
+        sealAll(new DirectoryVault(vaultFile, getEncryptionManager()), locations);
+        return vaultFile.length();
+    }
+
+    /**
+     * Decrypts every secret that is still sealed, needed whenever all the values are handed over at once.
+     */
+    protected void materializeAll() {
+        Sealed current = sealed;
+        if (current.getLocations().size() > 0) {
+            current.getLocations().forEach((name, location) -> getStore().set(name, loadSecret(name)));
+            sealed = new Sealed(current.getVault(), PersistentMap.empty());
         }
     }
 
-    public void rename(String oldAccountName, String newAccountName) {
+    /**
+     * Imports a plaintext 'name=secret' file, see BulkImporter.
+     */
+    public ImportReport importAccounts(FileProxy fProxy) throws IOException {
+        return new BulkImporter(this).importFrom(fProxy);
+    }
+
+    /**
+     * Readers see the account under either its old or its new name, never both or neither.
+     */
+    public synchronized void rename(String oldAccountName, String newAccountName) {
         String secret = loadSecret(oldAccountName);
-        addAccount(newAccountName, secret);
-        remove(oldAccountName);
+        atomically(() -> {
+            addAccount(newAccountName, secret);
+            remove(oldAccountName);
+        });
     }
 
     protected EncryptionManager getEncryptionManager() {
@@ -128,37 +617,89 @@ public class PasswordContainer {
     }
 
     public String loadSecret(String accountName) {
-        return getProperties().getProperty(accountName);
+        try {
+            try {
+                return readSecret(accountName);
+            } catch (ClosedChannelException e) {
+                // the directory vault is being swapped, the container holds the new one once it is free again
+                synchronized (this) {
+                    return readSecret(accountName);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (NoSuchAlgorithmException | InvalidCipherTextException e) {
+            throw new IllegalStateException("Could not decrypt the secret of account " + accountName, e);
+        }
+    }
+
+    /**
+     * A location is only ever unsealed against the vault it was read with. The thread running a batch reads the secrets
+     * it edited from the store, their seals only come off once the batch is published.
+     */
+    private String readSecret(String accountName) throws IOException, NoSuchAlgorithmException, InvalidCipherTextException {
+        Sealed current = sealed;
+        DirectoryVault.SecretLocation location = current.getLocations().get(accountName);
+        if (location != null && !(inBatch() && batch.edited.contains(accountName))) {
+            return current.getVault().unseal(location, getPassword());
+        }
+        return getStore().get(accountName);
     }
 
-    public void remove(String accountName) {
-        getProperties().remove(accountName);
+    public synchronized void remove(String accountName) {
+        applyRemove(accountName);
+        recordOperation(VaultJournal.removeOperation(accountName));
     }
 
     public Boolean doesAccountExist(String accountName) {
-        return getProperties().containsKey(accountName);
+        return getStore().containsKey(accountName);
     }
 
     public void modify(String accountName, String accountSecret) {
-        getProperties().put(accountName, accountSecret);
-    }
-
-    public void mergeFrom(PasswordContainer secondPasswordContainer) {
-        secondPasswordContainer
-                .getProperties()
-                .entrySet()
-                .stream()
-                .filter(entry -> !getProperties().containsKey(entry.getKey()) || !getProperties().getProperty((String)entry.getKey()).equals(entry.getValue()))
-                .forEach(entry -> {
-                    if (getProperties().containsKey(entry.getKey())) {
-                        getProperties().put(entry.getKey() + "_" + generateUniqueSuffix(), entry.getValue());
-                    } else {
-                        getProperties().put(entry.getKey(), entry.getValue());
-                    }
-                });
+        addAccount(accountName, accountSecret);
+    }
+
+    /**
+     * Every merged account becomes visible at once.
+     */
+    public MergeReport mergeFrom(PasswordContainer secondPasswordContainer) {
+        return mergeFrom(List.of(secondPasswordContainer));
+    }
+
+    /**
+     * Merges the sources in one pass, see VaultMerger. Every merged account becomes visible at once.
+     */
+    public MergeReport mergeFrom(List<PasswordContainer> sources) {
+        return new VaultMerger(this).merge(sources);
+    }
+
+    /**
+     * Brings this vault and the other one to the same content, see VaultSync.
+     */
+    public SyncReport syncWith(PasswordContainer other) {
+        return new VaultSync(this, other).sync();
+    }
+
+    /**
+     * The directory vault together with the location of every secret still sealed in it, replaced as a whole.
+     */
+    @Value
+    private static class Sealed {
+        static final Sealed NOTHING = new Sealed(null, PersistentMap.empty());
+
+        DirectoryVault vault;
+        PersistentMap<String, DirectoryVault.SecretLocation> locations;
+
+        Sealed without(String accountName) {
+            return locations.containsKey(accountName) ? new Sealed(vault, locations.remove(accountName)) : this;
+        }
     }
 
-    protected String generateUniqueSuffix() {
-        return UUID.randomUUID().toString();
+    /**
+     * What the edits of a batch imply beyond the store, applied once the store has published them.
+     */
+    private static class Batch {
+        private final Set<String> edited = new HashSet<>();
+        private final List<Runnable> updates = new ArrayList<>();
     }
 }
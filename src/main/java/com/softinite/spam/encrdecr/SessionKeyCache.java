@@ -0,0 +1,199 @@
+package com.softinite.spam.encrdecr;
+
+import org.bouncycastle.crypto.params.KeyParameter;
+
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.logging.Logger;
+
+/**
+ * Responsible for keeping the key of every open vault for the length of its session, so it is derived once when the vault
+ * is opened. The key is handed out without the password: nothing derived from the password but the key itself is kept.
+ * A key is wiped when its session is closed or after it has not been used for the idle timeout, the session then has to
+ * be bound to a key again. Handing out a key takes no lock.
+ */
+public class SessionKeyCache {
+
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final Logger LOG = Logger.getLogger(SessionKeyCache.class.getName());
+    private static final SessionKeyCache SHARED = new SessionKeyCache(DEFAULT_IDLE_TIMEOUT_MILLIS, System::nanoTime);
+
+    private final long idleTimeoutNanos;
+    private final LongSupplier clock;
+    private final Set<Session> sessions = ConcurrentHashMap.newKeySet();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private ScheduledExecutorService sweeper;
+
+    public SessionKeyCache(long idleTimeoutMillis) {
+        this(idleTimeoutMillis, System::nanoTime);
+    }
+
+    protected SessionKeyCache(long idleTimeoutMillis, LongSupplier clock) {
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        this.clock = clock;
+    }
+
+    /**
+     * The cache every EncryptionManager uses unless told otherwise.
+     */
+    public static SessionKeyCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Starts the session of a vault with its freshly derived key, the cache owns the key from now on and wipes it.
+     */
+    public Session open(String vault, byte[] key) {
+        Session session = new Session(vault, key, clock.getAsLong());
+        sessions.add(session);
+        startSweeper();
+        return session;
+    }
+
+    /**
+     * A copy of the session key, or null once it has been wiped; the caller then binds the session again.
+     */
+    public KeyParameter keyParameter(Session session) {
+        byte[] key = session.key;
+        if (key != null) {
+            KeyParameter parameter = new KeyParameter(key);
+            // a key wiped while it was being copied is no longer set, so the copy is only used when it is still set afterwards
+            VarHandle.acquireFence();
+            if (session.key == key) {
+                session.lastUsedNanos = clock.getAsLong();
+                hits.increment();
+                return parameter;
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Binds the session to a key derived again after its previous one was wiped.
+     */
+    public void rebind(Session session, byte[] key) {
+        synchronized (session) {
+            byte[] previous = session.key;
+            session.lastUsedNanos = clock.getAsLong();
+            session.key = key;
+            wipe(previous);
+        }
+        if (sessions.contains(session)) {
+            startSweeper();
+        } else {
+            invalidate(session);
+        }
+    }
+
+    public void invalidate(Session session) {
+        sessions.remove(session);
+        session.wipe();
+        LOG.fine("Session key of " + session.vault + " wiped, " + this);
+        stopSweeperWhenIdle();
+    }
+
+    public void clear() {
+        sessions.forEach(Session::wipe);
+        sessions.clear();
+        stopSweeperWhenIdle();
+    }
+
+    public int evictIdle() {
+        long now = clock.getAsLong();
+        int evicted = 0;
+        for (Session session : sessions) {
+            synchronized (session) {
+                if (session.key != null && now - session.lastUsedNanos >= idleTimeoutNanos) {
+                    session.wipe();
+                    evicted++;
+                }
+            }
+        }
+        evictions.add(evicted);
+        stopSweeperWhenIdle();
+        return evicted;
+    }
+
+    /**
+     * Number of sessions currently holding a key.
+     */
+    public int size() {
+        return (int) sessions.stream().filter(session -> session.key != null).count();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Idle keys are also wiped when nobody asks for them, a daemon thread sweeps the cache while it holds any key.
+     */
+    private synchronized void startSweeper() {
+        if (sweeper == null) {
+            sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "spam-key-cache");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long period = Math.max(1, TimeUnit.NANOSECONDS.toMillis(idleTimeoutNanos));
+            sweeper.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized void stopSweeperWhenIdle() {
+        if (size() == 0 && sweeper != null) {
+            sweeper.shutdown();
+            sweeper = null;
+        }
+    }
+
+    private static void wipe(byte[] key) {
+        if (key != null) {
+            Arrays.fill(key, (byte) 0);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "session keys: " + size() + " cached, " + getHits() + " hits, " + getMisses() + " misses, " + getEvictions() + " idle evictions";
+    }
+
+    /**
+     * The key of one open vault. It is unset before it is wiped, see keyParameter.
+     */
+    public static final class Session {
+        private final String vault;
+        private volatile byte[] key;
+        private volatile long lastUsedNanos;
+
+        private Session(String vault, byte[] key, long lastUsedNanos) {
+            this.vault = vault;
+            this.key = key;
+            this.lastUsedNanos = lastUsedNanos;
+        }
+
+        private synchronized void wipe() {
+            byte[] wiped = key;
+            key = null;
+            SessionKeyCache.wipe(wiped);
+        }
+    }
+}
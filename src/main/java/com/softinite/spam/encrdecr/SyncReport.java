@@ -0,0 +1,47 @@
+package com.softinite.spam.encrdecr;
+
+import lombok.Value;
+
+/**
+ * Responsible for the counters of one sync between two copies of a vault.
+ */
+@Value
+public class SyncReport {
+
+    /**
+     * Accounts of the opened vault before the sync.
+     */
+    int accounts;
+    /**
+     * Tree nodes and account digests looked at to find the differences.
+     */
+    int comparedNodes;
+    int comparedEntries;
+    /**
+     * Accounts copied from the other vault into the opened one.
+     */
+    int copiedHere;
+    /**
+     * Accounts copied from the opened vault into the other one.
+     */
+    int copiedThere;
+    /**
+     * Accounts holding different secrets in the two vaults.
+     */
+    int conflicts;
+    long elapsedMillis;
+
+    public boolean isInSync() {
+        return copiedHere == 0 && copiedThere == 0 && conflicts == 0;
+    }
+
+    @Override
+    public String toString() {
+        if (isInSync()) {
+            return String.format("Vaults already in sync, compared %d tree nodes and %d of %d accounts in %d ms.",
+                    comparedNodes, comparedEntries, accounts, elapsedMillis);
+        }
+        return String.format("Synced: %d accounts copied here, %d copied there, %d conflicts; compared %d tree nodes and %d of %d accounts in %d ms.",
+                copiedHere, copiedThere, conflicts, comparedNodes, comparedEntries, accounts, elapsedMillis);
+    }
+}
@@ -0,0 +1,103 @@
+package com.softinite.spam.encrdecr;
+
+import com.softinite.spam.index.MerkleTree;
+import org.bouncycastle.crypto.InvalidCipherTextException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+/**
+ * Responsible for the sealed file holding the account digests of a vault, kept next to it as '&lt;vault&gt;.merkle'.
+ * It is written together with every snapshot and describes that snapshot, the journal replayed on open brings it up
+ * to date like the accounts themselves. The file starts with a fingerprint of the snapshot it belongs to, the length and
+ * a hash of the tail of the vault file; a sidecar left behind by a snapshot that was replaced since is ignored.
+ */
+public class VaultDigests {
+
+    public static final String FILE_SUFFIX = ".merkle";
+    private static final int FINGERPRINT_TAIL = 4096;
+    static final int FINGERPRINT_LENGTH = Long.BYTES + MerkleTree.DIGEST_LENGTH;
+    private static final Logger LOG = Logger.getLogger(VaultDigests.class.getName());
+
+    private final FileProxy digestFile;
+    private final EncryptionManager encryptionManager;
+
+    public VaultDigests(FileProxy digestFile, EncryptionManager encryptionManager) {
+        this.digestFile = digestFile;
+        this.encryptionManager = encryptionManager;
+    }
+
+    public static VaultDigests forVault(String vaultFileName, EncryptionManager encryptionManager) {
+        FileProxy digestFile = new FileProxy();
+        digestFile.setInternal(new File(vaultFileName + FILE_SUFFIX));
+        return new VaultDigests(digestFile, encryptionManager);
+    }
+
+    public Boolean exists() {
+        return digestFile.exists();
+    }
+
+    /**
+     * The digests of the snapshot in the vault file, null when there are none or they belong to another snapshot.
+     */
+    public MerkleTree read(FileProxy vaultFile, String password) throws IOException, NoSuchAlgorithmException {
+        if (!exists()) {
+            return null;
+        }
+        try {
+            byte[] content = encryptionManager.unseal(Files.readAllBytes(digestFile.getInternal().toPath()), password);
+            if (content.length < FINGERPRINT_LENGTH
+                    || !MessageDigest.isEqual(Arrays.copyOf(content, FINGERPRINT_LENGTH), fingerprint(vaultFile))) {
+                LOG.info("Ignoring the digests in " + digestFile.getName() + ", they belong to another version of the vault.");
+                return null;
+            }
+            return MerkleTree.fromBytes(Arrays.copyOfRange(content, FINGERPRINT_LENGTH, content.length));
+        } catch (InvalidCipherTextException | IOException e) {
+            LOG.warning("Ignoring unreadable digests in " + digestFile.getName() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Stores the digests of the snapshot that was just written to the vault file.
+     */
+    public void write(FileProxy vaultFile, byte[] digests, String password) throws IOException, NoSuchAlgorithmException, InvalidCipherTextException {
+        byte[] content = new byte[FINGERPRINT_LENGTH + digests.length];
+        System.arraycopy(fingerprint(vaultFile), 0, content, 0, FINGERPRINT_LENGTH);
+        System.arraycopy(digests, 0, content, FINGERPRINT_LENGTH, digests.length);
+        digestFile.write(encryptionManager.seal(content, password));
+    }
+
+    public void delete() {
+        if (exists()) {
+            digestFile.delete();
+        }
+    }
+
+    /**
+     * The last block of a legacy vault chains over its whole content and the other layouts are encrypted under fresh
+     * random IVs, either way the length and the last bytes tell one snapshot apart from another.
+     */
+    static byte[] fingerprint(FileProxy vaultFile) throws IOException, NoSuchAlgorithmException {
+        try (FileChannel channel = vaultFile.openReadChannel()) {
+            long length = channel.size();
+            ByteBuffer tail = ByteBuffer.allocate((int) Math.min(length, FINGERPRINT_TAIL));
+            long position = length - tail.capacity();
+            while (tail.hasRemaining()) {
+                if (channel.read(tail, position + tail.position()) < 0) {
+                    throw new IOException("Vault file " + vaultFile.getName() + " shrank while reading it.");
+                }
+            }
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(tail.array());
+            return ByteBuffer.allocate(FINGERPRINT_LENGTH).putLong(length).put(digest.digest()).array();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.softinite.spam.encrdecr;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Responsible for identifying the layout of a vault file.
+ * The original format is a bare cipher text; every newer format starts with the 'SPAM' magic followed by a version byte.
+ */
+public enum VaultFormat {
+    LEGACY((byte) 1),
+    DIRECTORY((byte) 2),
+    CHUNKED((byte) 3);
+
+    public static final byte[] MAGIC = {'S', 'P', 'A', 'M'};
+    public static final int HEADER_LENGTH = MAGIC.length + 1;
+
+    private final byte version;
+
+    VaultFormat(byte version) {
+        this.version = version;
+    }
+
+    public byte getVersion() {
+        return version;
+    }
+
+    public void writeHeader(OutputStream out) throws IOException {
+        out.write(MAGIC);
+        out.write(version);
+    }
+
+    public static VaultFormat detect(FileProxy vaultFile) throws IOException {
+        if (vaultFile.length() < HEADER_LENGTH) {
+            return LEGACY;
+        }
+        byte[] header = new byte[HEADER_LENGTH];
+        try (DataInputStream in = new DataInputStream(vaultFile.openInputStream())) {
+            in.readFully(header);
+        } catch (EOFException e) {
+            return LEGACY;
+        }
+        if (Arrays.equals(header, 0, MAGIC.length, MAGIC, 0, MAGIC.length)) {
+            for (VaultFormat format : values()) {
+                if (format != LEGACY && format.getVersion() == header[MAGIC.length]) {
+                    return format;
+                }
+            }
+        }
+        return LEGACY;
+    }
+
+    public static VaultFormat from(String name) {
+        for (VaultFormat format : values()) {
+            if (format.name().equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        throw new RuntimeException("Unknown vault format " + name);
+    }
+}
@@ -0,0 +1,227 @@
+package com.softinite.spam.encrdecr;
+
+import com.softinite.spam.store.SecretArena;
+import org.bouncycastle.crypto.InvalidCipherTextException;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Responsible for the append-only journal kept next to a vault file.
+ * Every save appends one sealed record holding the operations performed since the previous save,
+ * so editing a single account costs the same regardless of the number of accounts in the vault.
+ * A record is framed as a 4 byte length followed by the sealed operations. Every operation is a type byte followed by
+ * length prefixed fields, so names and secrets may hold any character: '+' with the UTF-8 name and secret stores an
+ * account, '-' with the UTF-8 name removes it.
+ * Before a new snapshot is moved over the vault, a record holding '=' and the fingerprint of that snapshot retires
+ * the journal; should the journal survive the snapshot, because the process died before deleting it, the records
+ * up to the retire record are recognized as already folded into the vault and skipped on open.
+ * The journal is read through a plain stream, a mapping would keep it from being truncated where mapped files are locked.
+ */
+public class VaultJournal {
+
+    public static final String FILE_SUFFIX = ".journal";
+    public static final long MIN_COMPACTION_THRESHOLD = 64 * 1024;
+    public static final byte PUT = '+';
+    public static final byte REMOVE = '-';
+    public static final byte RETIRE = '=';
+
+    private static final Logger LOG = Logger.getLogger(VaultJournal.class.getName());
+
+    private final FileProxy journalFile;
+    private final FileProxy vaultFile;
+    private final EncryptionManager encryptionManager;
+
+    public VaultJournal(FileProxy journalFile, FileProxy vaultFile, EncryptionManager encryptionManager) {
+        this.journalFile = journalFile;
+        this.vaultFile = vaultFile;
+        this.encryptionManager = encryptionManager;
+    }
+
+    public static VaultJournal forVault(String vaultFileName, EncryptionManager encryptionManager) {
+        FileProxy journalFile = new FileProxy();
+        journalFile.setInternal(new File(vaultFileName + FILE_SUFFIX));
+        FileProxy vaultFile = new FileProxy();
+        vaultFile.setInternal(new File(vaultFileName));
+        return new VaultJournal(journalFile, vaultFile, encryptionManager);
+    }
+
+    /**
+     * The operation holds the secret, it is the caller's to wipe once it is no longer needed.
+     */
+    public static byte[] putOperation(String accountName, String secret) {
+        byte[] secretBytes = secret.getBytes(EncryptionManager.UTF8);
+        try {
+            return operation(PUT, accountName.getBytes(EncryptionManager.UTF8), secretBytes);
+        } finally {
+            SecretArena.wipe(secretBytes);
+        }
+    }
+
+    public static byte[] removeOperation(String accountName) {
+        return operation(REMOVE, accountName.getBytes(EncryptionManager.UTF8));
+    }
+
+    private static byte[] operation(byte type, byte[]... fields) {
+        int length = 1;
+        for (byte[] field : fields) {
+            length += Integer.BYTES + field.length;
+        }
+        ByteBuffer operation = ByteBuffer.allocate(length).put(type);
+        for (byte[] field : fields) {
+            operation.putInt(field.length).put(field);
+        }
+        return operation.array();
+    }
+
+    public Boolean exists() {
+        return journalFile.exists();
+    }
+
+    public long size() {
+        return exists() ? journalFile.length() : 0L;
+    }
+
+    /**
+     * The journal is folded back into the snapshot once it outgrows the snapshot itself (but never below a minimum),
+     * which keeps the amortized cost of an edit constant.
+     */
+    public Boolean needsCompaction(long snapshotSize, long pendingBytes) {
+        return size() + pendingBytes > Math.max(MIN_COMPACTION_THRESHOLD, snapshotSize);
+    }
+
+    public void append(List<byte[]> operations, String password) throws IOException, NoSuchAlgorithmException, InvalidCipherTextException {
+        ByteBuffer operationBytes = ByteBuffer.allocate(operations.stream().mapToInt(operation -> operation.length).sum());
+        operations.forEach(operationBytes::put);
+        byte[] record;
+        try {
+            record = encryptionManager.seal(operationBytes.array(), password);
+        } finally {
+            SecretArena.wipe(operationBytes.array());
+        }
+        ByteBuffer framed = ByteBuffer.allocate(Integer.BYTES + record.length);
+        framed.putInt(record.length).put(record).flip();
+        journalFile.appendDurably(framed);
+    }
+
+    /**
+     * Marks every record written so far as part of the snapshot about to replace the vault, see the class comment.
+     * Without a journal there is nothing to retire.
+     */
+    public void retire(FileProxy snapshot, String password) throws IOException {
+        if (!exists()) {
+            return;
+        }
+        try {
+            append(List.of(operation(RETIRE, VaultDigests.fingerprint(snapshot))), password);
+        } catch (NoSuchAlgorithmException | InvalidCipherTextException e) {
+            throw new IOException("Could not retire journal " + journalFile.getName(), e);
+        }
+    }
+
+    public void replay(String password, PasswordContainer target) throws IOException, NoSuchAlgorithmException, InvalidCipherTextException {
+        if (!exists()) {
+            return;
+        }
+        LOG.info("Replaying journal " + journalFile.getName());
+        List<byte[]> records = new ArrayList<>();
+        long validLength = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(journalFile.openInputStream(), FileProxy.IO_BUFFER_SIZE))) {
+            while (true) {
+                int recordLength = in.readInt();
+                if (recordLength <= 0 || validLength + Integer.BYTES + recordLength > journalFile.length()) {
+                    throw new EOFException("Incomplete journal record.");
+                }
+                byte[] record = new byte[recordLength];
+                in.readFully(record);
+                records.add(encryptionManager.unseal(record, password));
+                validLength += Integer.BYTES + recordLength;
+            }
+        } catch (EOFException e) {
+            if (validLength < journalFile.length()) {
+                LOG.warning("Discarding incomplete journal tail after " + validLength + " bytes: " + e.getMessage());
+                journalFile.truncate(validLength);
+            }
+        }
+        int retired = retiredRecords(records);
+        if (retired == records.size()) {
+            LOG.info("Deleting journal " + journalFile.getName() + ", the vault already holds all of its records.");
+            delete();
+            return;
+        }
+        if (retired > 0) {
+            LOG.info("Skipping " + retired + " journal records the vault already holds.");
+        }
+        for (byte[] record : records.subList(retired, records.size())) {
+            applyRecord(record, target);
+        }
+    }
+
+    /**
+     * How many leading records the snapshot in the vault file already holds: all the records up to the last retire
+     * record naming that snapshot. A retire record naming another snapshot belongs to a snapshot that never made it.
+     */
+    private int retiredRecords(List<byte[]> records) throws IOException, NoSuchAlgorithmException {
+        byte[] vaultFingerprint = null;
+        for (int i = records.size() - 1; i >= 0; i--) {
+            ByteBuffer record = ByteBuffer.wrap(records.get(i));
+            if (record.hasRemaining() && record.get() == RETIRE) {
+                if (vaultFingerprint == null) {
+                    if (!vaultFile.exists()) {
+                        return 0;
+                    }
+                    vaultFingerprint = VaultDigests.fingerprint(vaultFile);
+                }
+                if (MessageDigest.isEqual(readField(record), vaultFingerprint)) {
+                    return i + 1;
+                }
+            }
+        }
+        return 0;
+    }
+
+    protected void applyRecord(byte[] record, PasswordContainer target) throws IOException {
+        ByteBuffer operations = ByteBuffer.wrap(record);
+        while (operations.hasRemaining()) {
+            byte type = operations.get();
+            if (type == PUT) {
+                String accountName = new String(readField(operations), EncryptionManager.UTF8);
+                target.applyPut(accountName, new String(readField(operations), EncryptionManager.UTF8));
+            } else if (type == REMOVE) {
+                target.applyRemove(new String(readField(operations), EncryptionManager.UTF8));
+            } else if (type == RETIRE) {
+                readField(operations);
+            } else {
+                // the fields of an unknown operation cannot be told apart, nothing after it can be trusted
+                LOG.warning("Ignoring unknown journal operation " + type + " and the rest of its record.");
+                return;
+            }
+        }
+    }
+
+    private static byte[] readField(ByteBuffer operations) throws IOException {
+        int length = operations.remaining() < Integer.BYTES ? -1 : operations.getInt();
+        if (length < 0 || length > operations.remaining()) {
+            throw new IOException("Corrupt journal operation.");
+        }
+        byte[] field = new byte[length];
+        operations.get(field);
+        return field;
+    }
+
+    public void delete() {
+        if (exists()) {
+            journalFile.delete();
+        }
+    }
+
+}
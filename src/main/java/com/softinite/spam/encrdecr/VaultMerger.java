@@ -0,0 +1,146 @@
+package com.softinite.spam.encrdecr;
+
+import com.softinite.spam.metrics.Metrics;
+import com.softinite.spam.metrics.Phase;
+import com.softinite.spam.metrics.Stopwatch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Responsible for merging any number of opened vaults into a container in a single pass.
+ * The names of all the sources are partitioned by hash and every partition is reconciled on its own core: a name missing
+ * from the container is added with the secret of the first source holding it, the same secret is never added twice and
+ * every other secret gets the first free '_n' suffix, looking at the sources in the order given. Partitions only decide,
+ * the accounts are then added in one step, so the outcome does not depend on how the partitions were scheduled.
+ */
+public class VaultMerger {
+
+    private static final Logger LOG = Logger.getLogger(VaultMerger.class.getName());
+
+    private final PasswordContainer container;
+    private final int partitions;
+
+    public VaultMerger(PasswordContainer container) {
+        this(container, 4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    public VaultMerger(PasswordContainer container, int partitions) {
+        this.container = container;
+        this.partitions = Math.max(1, partitions);
+    }
+
+    public MergeReport merge(List<PasswordContainer> sources) {
+        Stopwatch stopwatch = Metrics.start(Phase.MERGE);
+        List<List<List<String>>> partitioned = sources.parallelStream()
+                .map(this::partition)
+                .collect(Collectors.toList());
+        // suffixes are only derived from names of their own partition, but have to stay clear of every source name
+        Set<String> sourceNames = new HashSet<>();
+        sources.forEach(source -> sourceNames.addAll(source.loadKeys()));
+        Reconciled merged;
+        synchronized (container) {
+            List<Reconciled> reconciled = IntStream.range(0, partitions).parallel()
+                    .mapToObj(partition -> reconcile(sources, partitioned, partition, sourceNames))
+                    .collect(Collectors.toList());
+            merged = new Reconciled();
+            reconciled.forEach(merged::addAll);
+            container.getStore().reserve(merged.namesAndSecrets.size() / 2);
+            container.atomically(() -> {
+                for (int i = 0; i < merged.namesAndSecrets.size(); i += 2) {
+                    container.addAccount(merged.namesAndSecrets.get(i), merged.namesAndSecrets.get(i + 1));
+                }
+            });
+        }
+        long elapsed = stopwatch.stop(0, merged.accounts);
+        MergeReport report = new MergeReport(sources.size(), merged.accounts,
+                merged.added, merged.renamed, merged.identical, partitions, elapsed / 1_000_000);
+        LOG.info(report.toString());
+        return report;
+    }
+
+    /**
+     * The names of one source split by partition.
+     */
+    private List<List<String>> partition(PasswordContainer source) {
+        List<List<String>> names = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            names.add(new ArrayList<>());
+        }
+        for (String name : source.loadKeys()) {
+            names.get(partitionOf(name)).add(name);
+        }
+        return names;
+    }
+
+    private int partitionOf(String name) {
+        int hash = name.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), partitions);
+    }
+
+    /**
+     * Decides what one partition adds, only reading the container and the sources.
+     */
+    private Reconciled reconcile(List<PasswordContainer> sources, List<List<List<String>>> partitioned, int partition,
+                                 Set<String> sourceNames) {
+        Reconciled reconciled = new Reconciled();
+        Map<String, Set<String>> secretsByName = new HashMap<>();
+        Map<String, Integer> nextSuffix = new HashMap<>();
+        Set<String> suffixed = new HashSet<>();
+        for (int s = 0; s < sources.size(); s++) {
+            PasswordContainer source = sources.get(s);
+            for (String name : partitioned.get(s).get(partition)) {
+                reconciled.accounts++;
+                String secret = source.loadSecret(name);
+                Set<String> secrets = secretsByName.computeIfAbsent(name, ignored -> new HashSet<>());
+                if (secrets.isEmpty() && container.doesAccountExist(name)) {
+                    secrets.add(container.loadSecret(name));
+                }
+                if (!secrets.add(secret)) {
+                    reconciled.identical++;
+                } else if (secrets.size() == 1) {
+                    reconciled.add(name, secret);
+                    reconciled.added++;
+                } else {
+                    String free = BulkImporter.freeName(name, nextSuffix, candidate -> suffixed.contains(candidate)
+                            || sourceNames.contains(candidate) || container.doesAccountExist(candidate));
+                    suffixed.add(free);
+                    reconciled.add(free, secret);
+                    reconciled.renamed++;
+                }
+            }
+        }
+        return reconciled;
+    }
+
+    /**
+     * The accounts a partition adds, names and secrets alternating in a single list.
+     */
+    private static final class Reconciled {
+        private final List<String> namesAndSecrets = new ArrayList<>();
+        private long accounts;
+        private long added;
+        private long renamed;
+        private long identical;
+
+        private void add(String name, String secret) {
+            namesAndSecrets.add(name);
+            namesAndSecrets.add(secret);
+        }
+
+        private void addAll(Reconciled other) {
+            namesAndSecrets.addAll(other.namesAndSecrets);
+            accounts += other.accounts;
+            added += other.added;
+            renamed += other.renamed;
+            identical += other.identical;
+        }
+    }
+}
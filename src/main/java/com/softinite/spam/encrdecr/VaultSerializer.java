@@ -0,0 +1,85 @@
+package com.softinite.spam.encrdecr;
+
+import com.softinite.spam.store.VaultStore;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.logging.Logger;
+
+/**
+ * Responsible for converting the accounts to and from the plaintext 'key=value' vault format.
+ * Entries are streamed through a single buffer straight into the given output (usually the cipher),
+ * so the cost of serialization grows linearly with the number of accounts.
+ * Parsing works the same way, record by record, so only the buffer and the resulting accounts are kept in memory.
+ */
+public class VaultSerializer {
+
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    public static final String SEPARATOR = "=";
+
+    private static final Logger LOG = Logger.getLogger(VaultSerializer.class.getName());
+
+    private final int bufferSize;
+
+    public VaultSerializer() {
+        this(DEFAULT_BUFFER_SIZE);
+    }
+
+    public VaultSerializer(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    public void serialize(VaultStore privateContent, OutputStream target) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(target, EncryptionManager.UTF8), bufferSize);
+        if (privateContent != null) {
+            for (String accountName : privateContent.names()) {
+                writeEntry(writer, accountName, privateContent.get(accountName));
+            }
+        }
+        writer.flush();
+    }
+
+    public void deserialize(InputStream source, VaultStore target) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(source, EncryptionManager.UTF8), bufferSize);
+        Boolean ivRead = Boolean.FALSE;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (StringUtils.isNotBlank(line)) {
+                int splitIdx = line.indexOf(SEPARATOR);
+                if (splitIdx > 0) {
+                    target.set(line.substring(0, splitIdx), line.substring(splitIdx + 1));
+                } else if (ivRead) {
+                    LOG.warning("Invalid entry " + line);
+                } else {
+                    ivRead = Boolean.TRUE;
+                }
+            }
+        }
+    }
+
+    /**
+     * Whether an account survives a round trip through this format: every entry is one line split at its first separator.
+     */
+    public static boolean isStorable(String accountName, String secret) {
+        return !accountName.isEmpty() && !accountName.contains(SEPARATOR) && !hasLineBreak(accountName) && !hasLineBreak(secret);
+    }
+
+    private static boolean hasLineBreak(String text) {
+        return text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0;
+    }
+
+    protected void writeEntry(Writer writer, String accountName, String secret) throws IOException {
+        writer.write(accountName);
+        writer.write(SEPARATOR);
+        writer.write(secret);
+        writer.write(System.lineSeparator());
+    }
+
+}
@@ -0,0 +1,68 @@
+package com.softinite.spam.encrdecr;
+
+import com.softinite.spam.index.MerkleTree;
+import com.softinite.spam.metrics.Metrics;
+import com.softinite.spam.metrics.Phase;
+import com.softinite.spam.metrics.Stopwatch;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * Responsible for bringing two copies of a vault, such as a laptop and a server copy, to the same content.
+ * The digest trees of both are compared from the root down, so only the accounts that differ are ever decrypted or
+ * written. An account missing from one copy is copied into it. An account holding different secrets keeps the secret of
+ * this copy under its name in both, the other secret is kept in both under the first '_n' suffix free in either of them.
+ * Nothing is ever removed, an account deleted from one copy only is copied back into it.
+ */
+public class VaultSync {
+
+    private static final Logger LOG = Logger.getLogger(VaultSync.class.getName());
+
+    private final PasswordContainer here;
+    private final PasswordContainer there;
+
+    public VaultSync(PasswordContainer here, PasswordContainer there) {
+        this.here = here;
+        this.there = there;
+    }
+
+    public SyncReport sync() {
+        Stopwatch stopwatch = Metrics.start(Phase.SYNC);
+        SyncReport report;
+        synchronized (here) {
+            synchronized (there) {
+                int accounts = here.getStore().size();
+                MerkleTree.Difference difference = here.digests().diff(there.digests());
+                if (!difference.isEmpty()) {
+                    here.atomically(() -> there.atomically(() -> apply(difference)));
+                }
+                long elapsed = stopwatch.stop(0, difference.getComparedEntries());
+                report = new SyncReport(accounts, difference.getComparedNodes(), difference.getComparedEntries(),
+                        difference.getOnlyThere().size(), difference.getOnlyHere().size(), difference.getChanged().size(),
+                        elapsed / 1_000_000);
+            }
+        }
+        LOG.info(report.toString());
+        return report;
+    }
+
+    /**
+     * Missing accounts go first, the suffixes of conflicting ones must not collide with any of them.
+     */
+    private void apply(MerkleTree.Difference difference) {
+        difference.getOnlyThere().forEach(name -> here.addAccount(name, there.loadSecret(name)));
+        difference.getOnlyHere().forEach(name -> there.addAccount(name, here.loadSecret(name)));
+        Map<String, Integer> nextSuffix = new HashMap<>();
+        for (String name : difference.getChanged()) {
+            String ours = here.loadSecret(name);
+            String theirs = there.loadSecret(name);
+            String free = BulkImporter.freeName(name, nextSuffix, candidate -> here.doesAccountExist(candidate) || there.doesAccountExist(candidate));
+            LOG.fine("Account " + name + " differs between the copies, keeping the other secret as " + free);
+            here.addAccount(free, theirs);
+            there.addAccount(free, theirs);
+            there.addAccount(name, ours);
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package com.softinite.spam.index;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Responsible for summarizing the content of a vault so two copies can be compared without reading every account.
+ * Every account has a SHA-256 digest of its name and secret and lands in one of a fixed number of leaves picked by its
+ * name; a leaf hashes to the XOR of its digests, so updating an account costs a constant amount of work, and every inner
+ * node hashes its children. Two trees holding the same accounts have the same root, comparing them only descends into
+ * the subtrees whose hashes differ. The shape is the same for every vault, trees of any two vaults can be compared.
+ * Not thread safe.
+ */
+public class MerkleTree {
+
+    public static final int FANOUT = 16;
+    public static final int DEPTH = 3;
+    public static final int LEAVES = 1 << (4 * DEPTH);
+    public static final int DIGEST_LENGTH = 32;
+    private static final int FORMAT_VERSION = 1;
+
+    private final Map<String, byte[]>[] leaves;
+    /**
+     * Node hashes by level, the root level holds a single node and the last level holds the leaves.
+     */
+    private final byte[][][] levels = new byte[DEPTH + 1][][];
+    private final boolean[] dirtyLeaves = new boolean[LEAVES];
+    private boolean dirty;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public MerkleTree() {
+        leaves = (Map<String, byte[]>[]) new Map<?, ?>[LEAVES];
+        for (int level = 0, width = 1; level <= DEPTH; level++, width *= FANOUT) {
+            levels[level] = new byte[width][];
+        }
+        for (int leaf = 0; leaf < LEAVES; leaf++) {
+            levels[DEPTH][leaf] = new byte[DIGEST_LENGTH];
+        }
+        dirty = true;
+    }
+
+    public void put(String name, String secret) {
+        put(name, digest(name, secret));
+    }
+
+    public void put(String name, byte[] digest) {
+        int leaf = leafOf(name);
+        if (leaves[leaf] == null) {
+            leaves[leaf] = new HashMap<>();
+        }
+        byte[] previous = leaves[leaf].put(name, digest);
+        if (previous == null) {
+            size++;
+        } else {
+            xor(levels[DEPTH][leaf], previous);
+        }
+        xor(levels[DEPTH][leaf], digest);
+        markDirty(leaf);
+    }
+
+    public void remove(String name) {
+        int leaf = leafOf(name);
+        byte[] previous = leaves[leaf] == null ? null : leaves[leaf].remove(name);
+        if (previous != null) {
+            size--;
+            xor(levels[DEPTH][leaf], previous);
+            markDirty(leaf);
+        }
+    }
+
+    public byte[] get(String name) {
+        Map<String, byte[]> leaf = leaves[leafOf(name)];
+        return leaf == null ? null : leaf.get(name);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public byte[] root() {
+        rehash();
+        return levels[0][0].clone();
+    }
+
+    /**
+     * Compares the two trees top down, only visiting the nodes and accounts below differing hashes.
+     */
+    public Difference diff(MerkleTree other) {
+        rehash();
+        other.rehash();
+        Difference difference = new Difference();
+        descend(other, 0, 0, difference);
+        Collections.sort(difference.onlyHere);
+        Collections.sort(difference.onlyThere);
+        Collections.sort(difference.changed);
+        return difference;
+    }
+
+    private void descend(MerkleTree other, int level, int node, Difference difference) {
+        difference.comparedNodes++;
+        if (Arrays.equals(levels[level][node], other.levels[level][node])) {
+            return;
+        }
+        if (level == DEPTH) {
+            compareLeaf(other, node, difference);
+            return;
+        }
+        for (int child = node * FANOUT; child < (node + 1) * FANOUT; child++) {
+            descend(other, level + 1, child, difference);
+        }
+    }
+
+    private void compareLeaf(MerkleTree other, int leaf, Difference difference) {
+        Map<String, byte[]> here = leaves[leaf] == null ? Map.of() : leaves[leaf];
+        Map<String, byte[]> there = other.leaves[leaf] == null ? Map.of() : other.leaves[leaf];
+        here.forEach((name, digest) -> {
+            difference.comparedEntries++;
+            byte[] otherDigest = there.get(name);
+            if (otherDigest == null) {
+                difference.onlyHere.add(name);
+            } else if (!Arrays.equals(digest, otherDigest)) {
+                difference.changed.add(name);
+            }
+        });
+        there.keySet().forEach(name -> {
+            if (!here.containsKey(name)) {
+                difference.comparedEntries++;
+                difference.onlyThere.add(name);
+            }
+        });
+    }
+
+    public byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + size * (DIGEST_LENGTH + 24));
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(size);
+            for (Map<String, byte[]> leaf : leaves) {
+                if (leaf == null) {
+                    continue;
+                }
+                for (Map.Entry<String, byte[]> entry : leaf.entrySet()) {
+                    byte[] name = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(name.length);
+                    out.write(name);
+                    out.write(entry.getValue());
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not serialize the digests.", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static MerkleTree fromBytes(byte[] bytes) throws IOException {
+        MerkleTree tree = new MerkleTree();
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            int version = in.readInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unknown digest format " + version);
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                byte[] name = new byte[in.readInt()];
+                in.readFully(name);
+                byte[] digest = new byte[DIGEST_LENGTH];
+                in.readFully(digest);
+                tree.put(new String(name, StandardCharsets.UTF_8), digest);
+            }
+        }
+        return tree;
+    }
+
+    /**
+     * The name is length prefixed, so no split of the same characters between name and secret gives the same digest.
+     */
+    public static byte[] digest(String name, String secret) {
+        MessageDigest digest = sha256();
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        digest.update(new byte[]{(byte) (nameBytes.length >>> 24), (byte) (nameBytes.length >>> 16),
+                (byte) (nameBytes.length >>> 8), (byte) nameBytes.length});
+        digest.update(nameBytes);
+        return digest.digest(secret.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * String.hashCode is part of its specification, every JVM puts a name in the same leaf.
+     */
+    private static int leafOf(String name) {
+        int hash = name.hashCode();
+        return (hash ^ (hash >>> 16)) & (LEAVES - 1);
+    }
+
+    private void markDirty(int leaf) {
+        dirtyLeaves[leaf] = true;
+        dirty = true;
+    }
+
+    /**
+     * Recomputes the inner nodes above changed leaves only.
+     */
+    private void rehash() {
+        if (!dirty) {
+            return;
+        }
+        MessageDigest digest = sha256();
+        boolean[] dirtyNodes = dirtyLeaves.clone();
+        for (int level = DEPTH - 1; level >= 0; level--) {
+            byte[][] children = levels[level + 1];
+            boolean[] dirtyParents = new boolean[levels[level].length];
+            for (int node = 0; node < levels[level].length; node++) {
+                boolean changed = levels[level][node] == null;
+                for (int child = node * FANOUT; child < (node + 1) * FANOUT && !changed; child++) {
+                    changed = dirtyNodes[child];
+                }
+                if (changed) {
+                    for (int child = node * FANOUT; child < (node + 1) * FANOUT; child++) {
+                        digest.update(children[child]);
+                    }
+                    levels[level][node] = digest.digest();
+                    dirtyParents[node] = true;
+                }
+            }
+            dirtyNodes = dirtyParents;
+        }
+        Arrays.fill(dirtyLeaves, false);
+        dirty = false;
+    }
+
+    private static void xor(byte[] target, byte[] digest) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] ^= digest[i];
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+    }
+
+    /**
+     * Accounts that differ between two trees, every list in name order.
+     */
+    public static final class Difference {
+        private final List<String> onlyHere = new ArrayList<>();
+        private final List<String> onlyThere = new ArrayList<>();
+        private final List<String> changed = new ArrayList<>();
+        private int comparedNodes;
+        private int comparedEntries;
+
+        public List<String> getOnlyHere() {
+            return onlyHere;
+        }
+
+        public List<String> getOnlyThere() {
+            return onlyThere;
+        }
+
+        /**
+         * Accounts present in both trees with a different secret.
+         */
+        public List<String> getChanged() {
+            return changed;
+        }
+
+        public int getComparedNodes() {
+            return comparedNodes;
+        }
+
+        public int getComparedEntries() {
+            return comparedEntries;
+        }
+
+        public boolean isEmpty() {
+            return onlyHere.isEmpty() && onlyThere.isEmpty() && changed.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.softinite.spam.index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Responsible for keeping the account names in case insensitive order as they change, so listing them never sorts.
+ * Names differing only in case are all kept, ordered among themselves by their natural order.
+ * Backed by a skip list, every update costs a logarithmic number of steps and readers may iterate while it changes.
+ */
+public class SortedNameIndex {
+
+    public static final Comparator<String> ORDER = String.CASE_INSENSITIVE_ORDER.thenComparing(Comparator.naturalOrder());
+
+    private final NavigableSet<String> names = new ConcurrentSkipListSet<>(ORDER);
+
+    public void add(String name) {
+        names.add(name);
+    }
+
+    public void remove(String name) {
+        names.remove(name);
+    }
+
+    public void addAll(Collection<String> names) {
+        this.names.addAll(names);
+    }
+
+    public void clear() {
+        names.clear();
+    }
+
+    public int size() {
+        return names.size();
+    }
+
+    /**
+     * Live, read only view of every name in order.
+     */
+    public NavigableSet<String> ordered() {
+        return Collections.unmodifiableNavigableSet(names);
+    }
+
+    /**
+     * Names starting with the prefix, ignoring case, in order. Only the matching range of the index is visited.
+     */
+    public List<String> withPrefix(String prefix) {
+        List<String> matches = new ArrayList<>();
+        // names equal to the prefix ignoring case may sort right before it
+        for (String name : names.headSet(prefix, false).descendingSet()) {
+            if (!name.equalsIgnoreCase(prefix)) {
+                break;
+            }
+            matches.add(0, name);
+        }
+        for (String name : names.tailSet(prefix, true)) {
+            if (!name.regionMatches(true, 0, prefix, 0, prefix.length())) {
+                break;
+            }
+            matches.add(name);
+        }
+        return matches;
+    }
+
+    /**
+     * Puts names found elsewhere, such as search results, in the order of this index.
+     */
+    public static List<String> sort(Collection<String> names) {
+        List<String> sorted = new ArrayList<>(names);
+        sorted.sort(ORDER);
+        return sorted;
+    }
+}
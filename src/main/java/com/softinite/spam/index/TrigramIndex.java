@@ -0,0 +1,123 @@
+package com.softinite.spam.index;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Responsible for answering case insensitive substring queries over account names without scanning every name.
+ * Every name is posted under each of its case folded trigrams; a query intersects the posting lists of its own trigrams
+ * and verifies the few remaining candidates, so its cost follows the number of matches instead of the number of accounts.
+ * Queries shorter than a trigram fall back to a scan. Not thread safe.
+ */
+public class TrigramIndex {
+
+    public static final int GRAM_LENGTH = 3;
+
+    private final Map<Long, Set<String>> postings = new HashMap<>();
+    private final Set<String> names = new HashSet<>();
+
+    public void add(String name) {
+        if (names.add(name)) {
+            trigrams(name).forEach(trigram -> postings.computeIfAbsent(trigram, key -> new HashSet<>()).add(name));
+        }
+    }
+
+    public void remove(String name) {
+        if (names.remove(name)) {
+            for (Long trigram : trigrams(name)) {
+                Set<String> posting = postings.get(trigram);
+                if (posting != null && posting.remove(name) && posting.isEmpty()) {
+                    postings.remove(trigram);
+                }
+            }
+        }
+    }
+
+    public void addAll(Collection<String> names) {
+        names.forEach(this::add);
+    }
+
+    public void clear() {
+        postings.clear();
+        names.clear();
+    }
+
+    public int size() {
+        return names.size();
+    }
+
+    /**
+     * Names containing the pattern, ignoring case, in no particular order.
+     */
+    public List<String> search(String pattern) {
+        if (pattern.length() < GRAM_LENGTH) {
+            return verify(names, pattern);
+        }
+        List<Set<String>> lists = new ArrayList<>();
+        for (Long trigram : trigrams(pattern)) {
+            Set<String> posting = postings.get(trigram);
+            if (posting == null) {
+                return new ArrayList<>();
+            }
+            lists.add(posting);
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+        List<String> candidates = new ArrayList<>();
+        for (String candidate : lists.get(0)) {
+            if (inAll(candidate, lists)) {
+                candidates.add(candidate);
+            }
+        }
+        return verify(candidates, pattern);
+    }
+
+    private static boolean inAll(String candidate, List<Set<String>> lists) {
+        for (int i = 1; i < lists.size(); i++) {
+            if (!lists.get(i).contains(candidate)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Trigrams only narrow the candidates down, the final word belongs to the same comparison a scan would use.
+     */
+    private static List<String> verify(Collection<String> candidates, String pattern) {
+        List<String> matches = new ArrayList<>();
+        for (String candidate : candidates) {
+            if (StringUtils.containsIgnoreCase(candidate, pattern)) {
+                matches.add(candidate);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Packs every trigram into a long, 21 bits per character. Long.hashCode folds the upper half onto the lower one,
+     * with this spacing the folded characters do not overlap for ASCII names and the postings map stays collision free.
+     */
+    private static Set<Long> trigrams(String text) {
+        Set<Long> trigrams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+            trigrams.add(((long) fold(text.charAt(i + 2)) << 42) | ((long) fold(text.charAt(i + 1)) << 21) | fold(text.charAt(i)));
+        }
+        return trigrams;
+    }
+
+    /**
+     * Folds a character the way String.regionMatches does when it ignores case,
+     * so every pair of characters it considers equal ends up in the same trigram.
+     */
+    private static char fold(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+}
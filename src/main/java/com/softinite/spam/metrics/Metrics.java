@@ -0,0 +1,128 @@
+package com.softinite.spam.metrics;
+
+import com.softinite.spam.encrdecr.CipherBackends;
+import com.softinite.spam.encrdecr.SessionKeyCache;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Responsible for the counters of every phase of the process: how often it ran, the time it took, the bytes and the
+ * entries it went through. Recording is lock free and cheap enough to stay on all the time. The counters are printed
+ * by -stats, published as an MBean while an agent runs and every run is also a PhaseEvent for flight recordings.
+ */
+public final class Metrics {
+
+    public static final String OBJECT_NAME = "com.softinite.spam:type=Metrics";
+    private static final Logger LOG = Logger.getLogger(Metrics.class.getName());
+    private static final Map<Phase, Counters> COUNTERS = new EnumMap<>(Phase.class);
+
+    static {
+        for (Phase phase : Phase.values()) {
+            COUNTERS.put(phase, new Counters());
+        }
+    }
+
+    private Metrics() {
+    }
+
+    public static Stopwatch start(Phase phase) {
+        return new Stopwatch(phase);
+    }
+
+    public static void record(Phase phase, long nanos, long bytes, long entries) {
+        record(phase, nanos, bytes, entries, new PhaseEvent());
+    }
+
+    static void record(Phase phase, long nanos, long bytes, long entries, PhaseEvent event) {
+        long elapsed = Math.max(0, nanos);
+        COUNTERS.get(phase).add(elapsed, bytes, entries);
+        event.commit(phase, elapsed, bytes, entries);
+    }
+
+    /**
+     * Phases that ran at least once, in the order of Phase.
+     */
+    public static List<PhaseStatistics> statistics() {
+        List<PhaseStatistics> statistics = new ArrayList<>();
+        COUNTERS.forEach((phase, counters) -> {
+            if (counters.count.sum() > 0) {
+                statistics.add(counters.toStatistics(phase));
+            }
+        });
+        return statistics;
+    }
+
+    public static void reset() {
+        COUNTERS.values().forEach(Counters::reset);
+    }
+
+    /**
+     * The per phase breakdown printed by -stats, followed by the session key cache and the measured cipher throughput.
+     */
+    public static String report() {
+        StringBuilder report = new StringBuilder("Phase breakdown:");
+        List<PhaseStatistics> statistics = statistics();
+        if (statistics.isEmpty()) {
+            report.append(System.lineSeparator()).append("  nothing measured");
+        }
+        statistics.forEach(phase -> report.append(System.lineSeparator()).append("  ").append(phase));
+        report.append(System.lineSeparator()).append(SessionKeyCache.shared());
+        CipherBackends.getThroughput().forEach((backend, throughput) -> report.append(System.lineSeparator())
+                .append(String.format("AES throughput of %s: %.1f MB/s", backend, throughput)));
+        return report.toString();
+    }
+
+    /**
+     * Publishes the counters on the platform MBean server, registering twice is harmless.
+     */
+    public static synchronized void registerMBean() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.registerMBean(new MetricsBean(), new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            // registered by an earlier agent of this process
+        } catch (JMException e) {
+            LOG.log(Level.WARNING, "Could not publish the metrics over JMX.", e);
+        }
+    }
+
+    private static final class Counters {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder bytes = new LongAdder();
+        private final LongAdder entries = new LongAdder();
+
+        private void add(long elapsed, long addedBytes, long addedEntries) {
+            count.increment();
+            nanos.add(elapsed);
+            maxNanos.accumulate(elapsed);
+            bytes.add(addedBytes);
+            entries.add(addedEntries);
+        }
+
+        private PhaseStatistics toStatistics(Phase phase) {
+            return new PhaseStatistics(phase.getLabel(), count.sum(), nanos.sum(), maxNanos.get(), bytes.sum(), entries.sum());
+        }
+
+        private void reset() {
+            count.reset();
+            nanos.reset();
+            maxNanos.reset();
+            bytes.reset();
+            entries.reset();
+        }
+    }
+}
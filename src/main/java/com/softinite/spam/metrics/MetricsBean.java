@@ -0,0 +1,53 @@
+package com.softinite.spam.metrics;
+
+import com.softinite.spam.encrdecr.CipherBackends;
+import com.softinite.spam.encrdecr.SessionKeyCache;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Responsible for answering the MetricsMXBean from the process wide counters.
+ */
+class MetricsBean implements MetricsMXBean {
+
+    @Override
+    public List<PhaseStatistics> getPhases() {
+        return Metrics.statistics();
+    }
+
+    @Override
+    public long getKeyCacheHits() {
+        return SessionKeyCache.shared().getHits();
+    }
+
+    @Override
+    public long getKeyCacheMisses() {
+        return SessionKeyCache.shared().getMisses();
+    }
+
+    @Override
+    public long getKeyCacheEvictions() {
+        return SessionKeyCache.shared().getEvictions();
+    }
+
+    @Override
+    public int getCachedKeys() {
+        return SessionKeyCache.shared().size();
+    }
+
+    @Override
+    public Map<String, Double> getCipherThroughput() {
+        return CipherBackends.getThroughput();
+    }
+
+    @Override
+    public String getReport() {
+        return Metrics.report();
+    }
+
+    @Override
+    public void reset() {
+        Metrics.reset();
+    }
+}
@@ -0,0 +1,29 @@
+package com.softinite.spam.metrics;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Responsible for the management view of a running agent, readable with jconsole or any JMX client.
+ */
+public interface MetricsMXBean {
+
+    List<PhaseStatistics> getPhases();
+
+    long getKeyCacheHits();
+
+    long getKeyCacheMisses();
+
+    long getKeyCacheEvictions();
+
+    int getCachedKeys();
+
+    /**
+     * Megabytes per second of every cipher backend, only measured with -Dspam.cipher=auto.
+     */
+    Map<String, Double> getCipherThroughput();
+
+    String getReport();
+
+    void reset();
+}
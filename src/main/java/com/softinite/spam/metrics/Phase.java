@@ -0,0 +1,32 @@
+package com.softinite.spam.metrics;
+
+/**
+ * Responsible for naming the steps whose time, bytes and entries are measured, see Metrics.
+ * Opening a vault spends its time in key derivation, file read, decrypt and parse, saving it in serialize, encrypt
+ * and file write; each of these counts only its own time, so the phases of one operation add up to its duration.
+ */
+public enum Phase {
+    KEY_DERIVATION("key derivation"),
+    FILE_READ("file read"),
+    DECRYPT("decrypt"),
+    PARSE("parse"),
+    SERIALIZE("serialize"),
+    ENCRYPT("encrypt"),
+    FILE_WRITE("file write"),
+    IMPORT("import"),
+    EXPORT("export"),
+    MERGE("merge"),
+    SYNC("sync"),
+    SEARCH("search"),
+    AGENT_REQUEST("agent request");
+
+    private final String label;
+
+    Phase(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+}
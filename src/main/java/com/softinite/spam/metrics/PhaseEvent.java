@@ -0,0 +1,157 @@
+package com.softinite.spam.metrics;
+
+import jdk.jfr.AnnotationElement;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.EventFactory;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+import jdk.jfr.ValueDescriptor;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Responsible for showing every measured phase in a flight recording, next to the JVM's own events.
+ * Phases timed by a Stopwatch span their real duration; phases derived from nested streams only carry their elapsed time.
+ * javac cannot subclass jdk.jfr.Event when compiling for release 14, its internal superclass is missing from the
+ * release data, so the event type is declared through EventFactory and driven through method handles instead.
+ */
+final class PhaseEvent {
+
+    public static final String NAME = "com.softinite.spam.Phase";
+    private static final Logger LOG = Logger.getLogger(PhaseEvent.class.getName());
+    private static final int PHASE = 0;
+    private static final int ELAPSED = 1;
+    private static final int BYTES = 2;
+    private static final int ENTRIES = 3;
+
+    private final Object event;
+
+    /**
+     * Declaring the event type starts a good part of the flight recorder, a quarter of a second that short commands
+     * should not pay; it is only declared once a recording runs.
+     */
+    PhaseEvent() {
+        // a conditional expression would make javac look up the supertypes of the event
+        if (recording()) {
+            event = EventType.newEvent();
+        } else {
+            event = null;
+        }
+    }
+
+    void begin() {
+        if (event != null) {
+            invoke(EventType.BEGIN);
+        }
+    }
+
+    void end() {
+        if (event != null) {
+            invoke(EventType.END);
+        }
+    }
+
+    void commit(Phase phase, long elapsed, long bytes, long entries) {
+        if (event == null) {
+            return;
+        }
+        try {
+            if ((boolean) EventType.SHOULD_COMMIT.invoke(event)) {
+                EventType.SET.invoke(event, PHASE, (Object) phase.getLabel());
+                EventType.SET.invoke(event, ELAPSED, (Object) elapsed);
+                EventType.SET.invoke(event, BYTES, (Object) bytes);
+                EventType.SET.invoke(event, ENTRIES, (Object) entries);
+                EventType.COMMIT.invoke(event);
+            }
+        } catch (Throwable e) {
+            throw new IllegalStateException("Could not record a flight recorder event.", e);
+        }
+    }
+
+    private void invoke(MethodHandle method) {
+        try {
+            method.invoke(event);
+        } catch (Throwable e) {
+            throw new IllegalStateException("Could not record a flight recorder event.", e);
+        }
+    }
+
+    private static boolean recording() {
+        try {
+            return FlightRecorder.isInitialized();
+        } catch (LinkageError e) {
+            // a runtime image built without the jdk.jfr module
+            return false;
+        }
+    }
+
+    /**
+     * Declared on first use, the class is only initialized once a recording runs.
+     */
+    private static final class EventType {
+        private static final EventFactory FACTORY;
+        private static final MethodHandle BEGIN;
+        private static final MethodHandle END;
+        private static final MethodHandle SHOULD_COMMIT;
+        private static final MethodHandle SET;
+        private static final MethodHandle COMMIT;
+
+        static {
+            EventFactory factory = null;
+            MethodHandle begin = null;
+            MethodHandle end = null;
+            MethodHandle shouldCommit = null;
+            MethodHandle set = null;
+            MethodHandle commit = null;
+            try {
+                factory = EventFactory.create(List.of(
+                        new AnnotationElement(Name.class, NAME),
+                        new AnnotationElement(Label.class, "Vault Phase"),
+                        new AnnotationElement(Category.class, new String[]{"SPAM"}),
+                        new AnnotationElement(Description.class, "A step of opening, saving, importing, merging, syncing, exporting or searching a vault."),
+                        new AnnotationElement(StackTrace.class, false)
+                ), List.of(
+                        new ValueDescriptor(String.class, "phase", List.of(new AnnotationElement(Label.class, "Phase"))),
+                        new ValueDescriptor(long.class, "elapsed", List.of(new AnnotationElement(Label.class, "Elapsed"),
+                                new AnnotationElement(Timespan.class, Timespan.NANOSECONDS))),
+                        new ValueDescriptor(long.class, "bytes", List.of(new AnnotationElement(Label.class, "Bytes"),
+                                new AnnotationElement(DataAmount.class, DataAmount.BYTES))),
+                        new ValueDescriptor(long.class, "entries", List.of(new AnnotationElement(Label.class, "Entries")))
+                ));
+                Class<?> event = Class.forName("jdk.jfr.Event");
+                MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+                begin = lookup.findVirtual(event, "begin", MethodType.methodType(void.class));
+                end = lookup.findVirtual(event, "end", MethodType.methodType(void.class));
+                shouldCommit = lookup.findVirtual(event, "shouldCommit", MethodType.methodType(boolean.class));
+                set = lookup.findVirtual(event, "set", MethodType.methodType(void.class, int.class, Object.class));
+                commit = lookup.findVirtual(event, "commit", MethodType.methodType(void.class));
+            } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+                LOG.log(Level.WARNING, "Flight recorder events are not available.", e);
+                factory = null;
+            }
+            FACTORY = factory;
+            BEGIN = begin;
+            END = end;
+            SHOULD_COMMIT = shouldCommit;
+            SET = set;
+            COMMIT = commit;
+        }
+
+        private static Object newEvent() {
+            if (FACTORY == null) {
+                return null;
+            }
+            return FACTORY.newEvent();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.softinite.spam.metrics;
+
+import lombok.Value;
+
+/**
+ * Responsible for the totals of one phase since start or the last reset, as shown by -stats and the MBean.
+ */
+@Value
+public class PhaseStatistics {
+
+    String phase;
+    long count;
+    long totalNanos;
+    long maxNanos;
+    long bytes;
+    long entries;
+
+    public double getTotalMillis() {
+        return totalNanos / 1e6;
+    }
+
+    public double getMegabytesPerSecond() {
+        return totalNanos == 0 ? 0 : bytes / (1024.0 * 1024.0) / (totalNanos / 1e9);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-15s %6d x %10.1f ms (max %8.1f ms) %12d bytes %10d entries %8.1f MB/s",
+                phase, count, getTotalMillis(), maxNanos / 1e6, bytes, entries, getMegabytesPerSecond());
+    }
+}
@@ -0,0 +1,30 @@
+package com.softinite.spam.metrics;
+
+/**
+ * Responsible for timing one run of a phase, the flight recorder event starts and ends with it.
+ */
+public final class Stopwatch {
+
+    private final Phase phase;
+    private final long start = System.nanoTime();
+    private final PhaseEvent event = new PhaseEvent();
+
+    Stopwatch(Phase phase) {
+        this.phase = phase;
+        event.begin();
+    }
+
+    public long elapsedNanos() {
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Records the run, returns its duration in nanoseconds.
+     */
+    public long stop(long bytes, long entries) {
+        long elapsed = elapsedNanos();
+        event.end();
+        Metrics.record(phase, elapsed, bytes, entries, event);
+        return elapsed;
+    }
+}
@@ -0,0 +1,75 @@
+package com.softinite.spam.metrics;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Responsible for measuring the time spent in and the bytes coming out of the stream it wraps.
+ * Wrapping two stages of a pipeline tells how long the outer stage took on its own.
+ */
+public class TimedInputStream extends FilterInputStream {
+
+    private long nanos;
+    private long bytes;
+
+    public TimedInputStream(InputStream in) {
+        super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        long start = System.nanoTime();
+        try {
+            int read = super.read();
+            if (read >= 0) {
+                bytes++;
+            }
+            return read;
+        } finally {
+            nanos += System.nanoTime() - start;
+        }
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        long start = System.nanoTime();
+        try {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                bytes += read;
+            }
+            return read;
+        } finally {
+            nanos += System.nanoTime() - start;
+        }
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return super.skip(n);
+        } finally {
+            nanos += System.nanoTime() - start;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        long start = System.nanoTime();
+        try {
+            super.close();
+        } finally {
+            nanos += System.nanoTime() - start;
+        }
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+}
@@ -0,0 +1,74 @@
+package com.softinite.spam.metrics;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Responsible for measuring the time spent in and the bytes going into the stream it wraps, see TimedInputStream.
+ */
+public class TimedOutputStream extends FilterOutputStream {
+
+    private long nanos;
+    private long bytes;
+
+    public TimedOutputStream(OutputStream out) {
+        super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        long start = System.nanoTime();
+        try {
+            out.write(b);
+            bytes++;
+        } finally {
+            nanos += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * FilterOutputStream would hand the bytes over one at a time.
+     */
+    @Override
+    public void write(byte[] buffer, int offset, int length) throws IOException {
+        long start = System.nanoTime();
+        try {
+            out.write(buffer, offset, length);
+            bytes += length;
+        } finally {
+            nanos += System.nanoTime() - start;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        long start = System.nanoTime();
+        try {
+            out.flush();
+        } finally {
+            nanos += System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * FilterOutputStream would flush through this stream and count the time twice.
+     */
+    @Override
+    public void close() throws IOException {
+        long start = System.nanoTime();
+        try (OutputStream closing = out) {
+            closing.flush();
+        } finally {
+            nanos += System.nanoTime() - start;
+        }
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+}
@@ -0,0 +1,17 @@
+package com.softinite.spam.store;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Responsible for the store shared between threads, reads never block and writes only contend per bin.
+ */
+public class ConcurrentVaultStore extends MapVaultStore {
+
+    public ConcurrentVaultStore() {
+        super(new ConcurrentHashMap<>());
+    }
+
+    public ConcurrentVaultStore(int expectedSize) {
+        super(new ConcurrentHashMap<>(Math.max(16, expectedSize)));
+    }
+}
@@ -0,0 +1,34 @@
+package com.softinite.spam.store;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Responsible for the lean single threaded store, no synchronization is paid on any access.
+ */
+public class HashMapVaultStore extends MapVaultStore {
+
+    public HashMapVaultStore() {
+        super(new HashMap<>());
+    }
+
+    public HashMapVaultStore(int expectedSize) {
+        super(new HashMap<>(capacity(expectedSize)));
+    }
+
+    /**
+     * Rehashes once into a table big enough for all of them, instead of doubling repeatedly while they are added.
+     */
+    @Override
+    public void reserve(int additionalAccounts) {
+        if (additionalAccounts > size()) {
+            Map<String, String> presized = new HashMap<>(capacity(size() + additionalAccounts));
+            presized.putAll(getAccounts());
+            setAccounts(presized);
+        }
+    }
+
+    private static int capacity(int expectedSize) {
+        return Math.max(16, (int) (expectedSize / 0.75f) + 1);
+    }
+}
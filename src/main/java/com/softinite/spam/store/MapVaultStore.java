@@ -0,0 +1,81 @@
+package com.softinite.spam.store;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Responsible for the stores that keep the secrets as plain strings inside a map.
+ */
+public abstract class MapVaultStore implements VaultStore {
+
+    private Map<String, String> accounts;
+
+    protected MapVaultStore(Map<String, String> accounts) {
+        this.accounts = accounts;
+    }
+
+    protected Map<String, String> getAccounts() {
+        return accounts;
+    }
+
+    protected void setAccounts(Map<String, String> accounts) {
+        this.accounts = accounts;
+    }
+
+    @Override
+    public String get(String accountName) {
+        return accounts.get(accountName);
+    }
+
+    @Override
+    public String put(String accountName, String secret) {
+        return accounts.put(accountName, secret);
+    }
+
+    @Override
+    public String remove(String accountName) {
+        return accounts.remove(accountName);
+    }
+
+    @Override
+    public boolean containsKey(String accountName) {
+        return accounts.containsKey(accountName);
+    }
+
+    @Override
+    public Set<String> names() {
+        return accounts.keySet();
+    }
+
+    @Override
+    public int size() {
+        return accounts.size();
+    }
+
+    @Override
+    public void forEach(BiConsumer<String, String> action) {
+        accounts.forEach(action);
+    }
+
+    @Override
+    public void clear() {
+        accounts.clear();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof MapVaultStore && accounts.equals(((MapVaultStore) other).accounts);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(accounts);
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " with " + size() + " accounts";
+    }
+}
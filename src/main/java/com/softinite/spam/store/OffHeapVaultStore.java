@@ -0,0 +1,148 @@
+package com.softinite.spam.store;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Responsible for the store that keeps only the account names on the heap, every secret lives in a SecretArena.
+ * A secret only becomes a String when it is read; replaced and removed secrets are wiped from direct memory right away
+ * and close() wipes the whole arena. Access is synchronized, iterating names() is not.
+ */
+public class OffHeapVaultStore implements VaultStore {
+
+    private final Map<String, SecretArena.Handle> handles;
+    private SecretArena arena;
+
+    public OffHeapVaultStore() {
+        this(0);
+    }
+
+    public OffHeapVaultStore(int expectedSize) {
+        this(expectedSize, SecretArena.DEFAULT_SEGMENT_SIZE);
+    }
+
+    public OffHeapVaultStore(int expectedSize, int segmentSize) {
+        this.handles = new HashMap<>(Math.max(16, (int) (expectedSize / 0.75f) + 1));
+        this.arena = new SecretArena(segmentSize);
+    }
+
+    @Override
+    public synchronized String get(String accountName) {
+        SecretArena.Handle handle = handles.get(accountName);
+        return handle == null ? null : decode(arena.read(handle));
+    }
+
+    /**
+     * Decodes the replaced secret only to hand it back, set() frees it without ever turning it into a String.
+     */
+    @Override
+    public synchronized String put(String accountName, String secret) {
+        String replaced = get(accountName);
+        set(accountName, secret);
+        return replaced;
+    }
+
+    @Override
+    public synchronized String remove(String accountName) {
+        String removed = get(accountName);
+        delete(accountName);
+        return removed;
+    }
+
+    @Override
+    public synchronized void set(String accountName, String secret) {
+        byte[] secretBytes = secret.getBytes(StandardCharsets.UTF_8);
+        SecretArena.Handle previous;
+        try {
+            previous = handles.put(accountName, arena.allocate(secretBytes));
+        } finally {
+            SecretArena.wipe(secretBytes);
+        }
+        release(previous);
+    }
+
+    @Override
+    public synchronized void delete(String accountName) {
+        release(handles.remove(accountName));
+    }
+
+    @Override
+    public synchronized boolean containsKey(String accountName) {
+        return handles.containsKey(accountName);
+    }
+
+    @Override
+    public Set<String> names() {
+        return Collections.unmodifiableSet(handles.keySet());
+    }
+
+    @Override
+    public synchronized int size() {
+        return handles.size();
+    }
+
+    @Override
+    public synchronized void forEach(BiConsumer<String, String> action) {
+        handles.forEach((name, handle) -> action.accept(name, decode(arena.read(handle))));
+    }
+
+    @Override
+    public synchronized void clear() {
+        handles.clear();
+        arena.close();
+    }
+
+    @Override
+    public synchronized void close() {
+        clear();
+    }
+
+    public synchronized long getOffHeapBytes() {
+        return arena.getLiveBytes() + arena.getFreedBytes();
+    }
+
+    /**
+     * Frees the secret that was replaced or removed, once the arena holds more wiped than live bytes the live secrets
+     * are moved into a fresh arena so direct memory does not keep growing with every edit.
+     */
+    private void release(SecretArena.Handle handle) {
+        if (handle == null) {
+            return;
+        }
+        arena.free(handle);
+        if (arena.isFragmented()) {
+            compact();
+        }
+    }
+
+    private void compact() {
+        SecretArena compacted = new SecretArena(arena.getSegmentSize());
+        handles.replaceAll((name, handle) -> {
+            byte[] secret = arena.read(handle);
+            try {
+                return compacted.allocate(secret);
+            } finally {
+                SecretArena.wipe(secret);
+            }
+        });
+        arena.close();
+        arena = compacted;
+    }
+
+    private static String decode(byte[] secret) {
+        try {
+            return new String(secret, StandardCharsets.UTF_8);
+        } finally {
+            SecretArena.wipe(secret);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " with " + size() + " accounts";
+    }
+}
@@ -0,0 +1,334 @@
+package com.softinite.spam.store;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+
+/**
+ * Responsible for an immutable hash map whose updates return a new map sharing everything but the changed path.
+ * It is a hash array mapped trie: every level consumes five bits of the hash, so a put or remove copies
+ * a handful of small arrays instead of the whole map and an old version stays valid and unchanged for as long
+ * as somebody holds it. Keys with equal hashes share a collision node. Null keys and values are not supported.
+ */
+public final class PersistentMap<K, V> {
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final PersistentMap<?, ?> EMPTY = new PersistentMap<>(BitmapNode.EMPTY, 0);
+
+    private final Node root;
+    private final int size;
+
+    private PersistentMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentMap<K, V> empty() {
+        return (PersistentMap<K, V>) EMPTY;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+        return (V) root.find(0, hash(key), key);
+    }
+
+    public boolean containsKey(K key) {
+        return get(key) != null;
+    }
+
+    public PersistentMap<K, V> put(K key, V value) {
+        boolean[] added = new boolean[1];
+        Node updated = root.assoc(0, hash(key), key, value, added);
+        return updated == root ? this : new PersistentMap<>(updated, added[0] ? size + 1 : size);
+    }
+
+    public PersistentMap<K, V> remove(K key) {
+        Node updated = root.without(0, hash(key), key);
+        if (updated == root) {
+            return this;
+        }
+        return new PersistentMap<>(updated == null ? BitmapNode.EMPTY : updated, size - 1);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        root.forEach((BiConsumer<Object, Object>) action);
+    }
+
+    public Iterator<K> keys() {
+        return new KeyIterator<>(root);
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static int bit(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    /**
+     * Both kinds of nodes keep their entries in one array of key and value pairs, a null key marks a child node.
+     */
+    private interface Node {
+        Object find(int shift, int hash, Object key);
+
+        Node assoc(int shift, int hash, Object key, Object value, boolean[] added);
+
+        Node without(int shift, int hash, Object key);
+
+        Object[] entries();
+
+        @SuppressWarnings("unchecked")
+        default void forEach(BiConsumer<Object, Object> action) {
+            Object[] entries = entries();
+            for (int i = 0; i < entries.length; i += 2) {
+                if (entries[i] == null) {
+                    ((Node) entries[i + 1]).forEach(action);
+                } else {
+                    action.accept(entries[i], entries[i + 1]);
+                }
+            }
+        }
+    }
+
+    private static final class BitmapNode implements Node {
+
+        private static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+        private final int bitmap;
+        private final Object[] entries;
+
+        private BitmapNode(int bitmap, Object[] entries) {
+            this.bitmap = bitmap;
+            this.entries = entries;
+        }
+
+        private int index(int bit) {
+            return 2 * Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        public Object find(int shift, int hash, Object key) {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+            int index = index(bit);
+            Object entryKey = entries[index];
+            if (entryKey == null) {
+                return ((Node) entries[index + 1]).find(shift + BITS, hash, key);
+            }
+            return key.equals(entryKey) ? entries[index + 1] : null;
+        }
+
+        @Override
+        public Node assoc(int shift, int hash, Object key, Object value, boolean[] added) {
+            int bit = bit(hash, shift);
+            int index = index(bit);
+            if ((bitmap & bit) == 0) {
+                added[0] = true;
+                Object[] copy = new Object[entries.length + 2];
+                System.arraycopy(entries, 0, copy, 0, index);
+                copy[index] = key;
+                copy[index + 1] = value;
+                System.arraycopy(entries, index, copy, index + 2, entries.length - index);
+                return new BitmapNode(bitmap | bit, copy);
+            }
+            Object entryKey = entries[index];
+            Object entryValue = entries[index + 1];
+            if (entryKey == null) {
+                Node child = ((Node) entryValue).assoc(shift + BITS, hash, key, value, added);
+                return child == entryValue ? this : replace(index + 1, child);
+            }
+            if (key.equals(entryKey)) {
+                return value == entryValue ? this : replace(index + 1, value);
+            }
+            added[0] = true;
+            Node child = split(shift + BITS, entryKey, entryValue, hash, key, value);
+            Object[] copy = entries.clone();
+            copy[index] = null;
+            copy[index + 1] = child;
+            return new BitmapNode(bitmap, copy);
+        }
+
+        @Override
+        public Node without(int shift, int hash, Object key) {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int index = index(bit);
+            Object entryKey = entries[index];
+            if (entryKey == null) {
+                Node child = ((Node) entries[index + 1]).without(shift + BITS, hash, key);
+                if (child == entries[index + 1]) {
+                    return this;
+                }
+                return child == null ? drop(bit, index) : replace(index + 1, child);
+            }
+            return key.equals(entryKey) ? drop(bit, index) : this;
+        }
+
+        @Override
+        public Object[] entries() {
+            return entries;
+        }
+
+        private BitmapNode replace(int index, Object value) {
+            Object[] copy = entries.clone();
+            copy[index] = value;
+            return new BitmapNode(bitmap, copy);
+        }
+
+        private BitmapNode drop(int bit, int index) {
+            if (bitmap == bit) {
+                return null;
+            }
+            Object[] copy = new Object[entries.length - 2];
+            System.arraycopy(entries, 0, copy, 0, index);
+            System.arraycopy(entries, index + 2, copy, index, entries.length - index - 2);
+            return new BitmapNode(bitmap & ~bit, copy);
+        }
+
+        /**
+         * Two keys landed on the same slot, pushes both one level down. Different hashes always part ways
+         * within the 32 bits of the hash, equal ones end up in a collision node.
+         */
+        private static Node split(int shift, Object key1, Object value1, int hash2, Object key2, Object value2) {
+            int hash1 = hash(key1);
+            if (hash1 == hash2) {
+                return new CollisionNode(hash1, new Object[]{key1, value1, key2, value2});
+            }
+            boolean[] ignored = new boolean[1];
+            return EMPTY.assoc(shift, hash1, key1, value1, ignored).assoc(shift, hash2, key2, value2, ignored);
+        }
+    }
+
+    private static final class CollisionNode implements Node {
+
+        private final int hash;
+        private final Object[] entries;
+
+        private CollisionNode(int hash, Object[] entries) {
+            this.hash = hash;
+            this.entries = entries;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < entries.length; i += 2) {
+                if (key.equals(entries[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public Object find(int shift, int hash, Object key) {
+            int index = hash == this.hash ? indexOf(key) : -1;
+            return index < 0 ? null : entries[index + 1];
+        }
+
+        @Override
+        public Node assoc(int shift, int hash, Object key, Object value, boolean[] added) {
+            if (hash != this.hash) {
+                return new BitmapNode(bit(this.hash, shift), new Object[]{null, this}).assoc(shift, hash, key, value, added);
+            }
+            int index = indexOf(key);
+            if (index >= 0) {
+                if (entries[index + 1] == value) {
+                    return this;
+                }
+                Object[] copy = entries.clone();
+                copy[index + 1] = value;
+                return new CollisionNode(hash, copy);
+            }
+            added[0] = true;
+            Object[] copy = Arrays.copyOf(entries, entries.length + 2);
+            copy[entries.length] = key;
+            copy[entries.length + 1] = value;
+            return new CollisionNode(hash, copy);
+        }
+
+        @Override
+        public Node without(int shift, int hash, Object key) {
+            int index = hash == this.hash ? indexOf(key) : -1;
+            if (index < 0) {
+                return this;
+            }
+            if (entries.length == 2) {
+                return null;
+            }
+            Object[] copy = new Object[entries.length - 2];
+            System.arraycopy(entries, 0, copy, 0, index);
+            System.arraycopy(entries, index + 2, copy, index, entries.length - index - 2);
+            return new CollisionNode(hash, copy);
+        }
+
+        @Override
+        public Object[] entries() {
+            return entries;
+        }
+    }
+
+    /**
+     * Walks the trie depth first with an explicit stack, at most seven levels of bitmap nodes and a collision node.
+     */
+    private static final class KeyIterator<K> implements Iterator<K> {
+
+        private final Object[][] arrays = new Object[8][];
+        private final int[] positions = new int[8];
+        private int depth;
+        private Object next;
+
+        private KeyIterator(Node root) {
+            arrays[0] = root.entries();
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+            while (depth >= 0) {
+                Object[] entries = arrays[depth];
+                int position = positions[depth];
+                if (position >= entries.length) {
+                    depth--;
+                    continue;
+                }
+                positions[depth] += 2;
+                if (entries[position] != null) {
+                    next = entries[position];
+                    return;
+                }
+                depth++;
+                arrays[depth] = ((Node) entries[position + 1]).entries();
+                positions[depth] = 0;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public K next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            K key = (K) next;
+            advance();
+            return key;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.softinite.spam.store;
+
+import lombok.Value;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Responsible for keeping secret bytes in direct memory, outside of the reach of the garbage collector.
+ * Secrets are appended to fixed size segments and addressed through a handle holding segment, offset and length.
+ * Freed secrets are overwritten with zeros right away; the space itself is only reclaimed by copying the live
+ * secrets into a fresh arena, see OffHeapVaultStore. Not thread safe.
+ */
+public class SecretArena {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 1024 * 1024;
+
+    private final int segmentSize;
+    private final List<ByteBuffer> segments = new ArrayList<>();
+    private ByteBuffer current;
+    private int currentIndex;
+    private long liveBytes;
+    private long freedBytes;
+
+    public SecretArena() {
+        this(DEFAULT_SEGMENT_SIZE);
+    }
+
+    public SecretArena(int segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Copies the secret into direct memory, the caller remains responsible for wiping its own copy.
+     */
+    public Handle allocate(byte[] secret) {
+        int segmentIndex = segmentFor(secret.length);
+        ByteBuffer segment = segments.get(segmentIndex);
+        Handle handle = new Handle(segmentIndex, segment.position(), secret.length);
+        segment.put(secret);
+        liveBytes += secret.length;
+        return handle;
+    }
+
+    public byte[] read(Handle handle) {
+        byte[] secret = new byte[handle.getLength()];
+        segments.get(handle.getSegment()).get(handle.getOffset(), secret);
+        return secret;
+    }
+
+    public void free(Handle handle) {
+        zero(segments.get(handle.getSegment()), handle.getOffset(), handle.getLength());
+        liveBytes -= handle.getLength();
+        freedBytes += handle.getLength();
+    }
+
+    /**
+     * Worth copying the live secrets into a fresh arena once more space is wasted than used.
+     */
+    public boolean isFragmented() {
+        return freedBytes > segmentSize && freedBytes > liveBytes;
+    }
+
+    public long getLiveBytes() {
+        return liveBytes;
+    }
+
+    public long getFreedBytes() {
+        return freedBytes;
+    }
+
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    /**
+     * Wipes every segment and lets go of them, every handle becomes invalid.
+     */
+    public void close() {
+        segments.forEach(segment -> zero(segment, 0, segment.capacity()));
+        segments.clear();
+        current = null;
+        liveBytes = 0;
+        freedBytes = 0;
+    }
+
+    /**
+     * Overwrites a heap copy of a secret once it is no longer needed.
+     */
+    public static void wipe(byte[] secret) {
+        Arrays.fill(secret, (byte) 0);
+    }
+
+    /**
+     * Secrets larger than a segment get a segment of their own, the current segment stays open for the next ones.
+     */
+    private int segmentFor(int length) {
+        if (current != null && current.remaining() >= length) {
+            return currentIndex;
+        }
+        segments.add(ByteBuffer.allocateDirect(Math.max(segmentSize, length)));
+        int segmentIndex = segments.size() - 1;
+        if (length <= segmentSize) {
+            current = segments.get(segmentIndex);
+            currentIndex = segmentIndex;
+        }
+        return segmentIndex;
+    }
+
+    private static void zero(ByteBuffer segment, int offset, int length) {
+        ByteBuffer region = segment.duplicate();
+        region.position(offset);
+        byte[] zeros = new byte[Math.min(length, 4096)];
+        for (int written = 0; written < length; written += zeros.length) {
+            region.put(zeros, 0, Math.min(zeros.length, length - written));
+        }
+    }
+
+    /**
+     * Position of a secret inside the arena.
+     */
+    @Value
+    public static class Handle {
+        int segment;
+        int offset;
+        int length;
+    }
+}
@@ -0,0 +1,152 @@
+package com.softinite.spam.store;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Responsible for the store whose readers never block: every write publishes a new PersistentMap through a volatile field,
+ * so a reader always works on one consistent version while writers, serialized among themselves, prepare the next one.
+ * Edits made within atomically() are published together, and snapshot() hands out the current version for free.
+ */
+public class SnapshotVaultStore implements VaultStore {
+
+    private volatile PersistentMap<String, String> published;
+    private volatile Thread batchOwner;
+    private PersistentMap<String, String> working;
+
+    public SnapshotVaultStore() {
+        this(PersistentMap.empty());
+    }
+
+    public SnapshotVaultStore(int expectedSize) {
+        this();
+    }
+
+    protected SnapshotVaultStore(PersistentMap<String, String> published) {
+        this.published = published;
+    }
+
+    /**
+     * The thread running a batch sees its own edits, everybody else keeps seeing the last published version.
+     */
+    private PersistentMap<String, String> current() {
+        return batchOwner == Thread.currentThread() ? working : published;
+    }
+
+    private void update(PersistentMap<String, String> version) {
+        if (batchOwner == Thread.currentThread()) {
+            working = version;
+        } else {
+            published = version;
+        }
+    }
+
+    @Override
+    public String get(String accountName) {
+        return current().get(accountName);
+    }
+
+    @Override
+    public synchronized String put(String accountName, String secret) {
+        PersistentMap<String, String> version = current();
+        update(version.put(accountName, secret));
+        return version.get(accountName);
+    }
+
+    @Override
+    public synchronized String remove(String accountName) {
+        PersistentMap<String, String> version = current();
+        update(version.remove(accountName));
+        return version.get(accountName);
+    }
+
+    @Override
+    public synchronized void set(String accountName, String secret) {
+        update(current().put(accountName, secret));
+    }
+
+    @Override
+    public synchronized void delete(String accountName) {
+        update(current().remove(accountName));
+    }
+
+    @Override
+    public boolean containsKey(String accountName) {
+        return current().containsKey(accountName);
+    }
+
+    /**
+     * Live view, every iteration walks the version published when it started.
+     */
+    @Override
+    public Set<String> names() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<String> iterator() {
+                return current().keys();
+            }
+
+            @Override
+            public int size() {
+                return current().size();
+            }
+
+            @Override
+            public boolean contains(Object name) {
+                return name instanceof String && current().containsKey((String) name);
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return current().size();
+    }
+
+    @Override
+    public void forEach(BiConsumer<String, String> action) {
+        current().forEach(action);
+    }
+
+    @Override
+    public synchronized void clear() {
+        update(PersistentMap.empty());
+    }
+
+    @Override
+    public boolean isAtomic() {
+        return true;
+    }
+
+    /**
+     * Publishes the edits all at once, or not at all when they fail. Other writers wait for the batch, readers do not.
+     */
+    @Override
+    public synchronized void atomically(Runnable edits) {
+        if (batchOwner == Thread.currentThread()) {
+            edits.run();
+            return;
+        }
+        working = published;
+        batchOwner = Thread.currentThread();
+        try {
+            edits.run();
+            published = working;
+        } finally {
+            batchOwner = null;
+            working = null;
+        }
+    }
+
+    @Override
+    public VaultStore snapshot() {
+        return new SnapshotVaultStore(current());
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + " with " + size() + " accounts";
+    }
+}
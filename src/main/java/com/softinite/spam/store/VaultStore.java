@@ -0,0 +1,82 @@
+package com.softinite.spam.store;
+
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Responsible for holding the accounts of an unlocked vault, mapping every account name to its secret.
+ * Implementations decide how the secrets are kept and which threading guarantees they offer, see VaultStoreType.
+ */
+public interface VaultStore extends AutoCloseable {
+
+    String get(String accountName);
+
+    String put(String accountName, String secret);
+
+    String remove(String accountName);
+
+    /**
+     * Like put, for callers that have no use for the secret it replaces; stores that pay to hand it back skip that.
+     */
+    default void set(String accountName, String secret) {
+        put(accountName, secret);
+    }
+
+    /**
+     * Like remove, for callers that have no use for the secret it removes.
+     */
+    default void delete(String accountName) {
+        remove(accountName);
+    }
+
+    boolean containsKey(String accountName);
+
+    /**
+     * Live view of the account names.
+     */
+    Set<String> names();
+
+    int size();
+
+    void forEach(BiConsumer<String, String> action);
+
+    void clear();
+
+    default void putAll(VaultStore source) {
+        source.forEach(this::set);
+    }
+
+    /**
+     * Makes room for that many more accounts ahead of a bulk insert, stores that cannot do better ignore it.
+     */
+    default void reserve(int additionalAccounts) {
+    }
+
+    /**
+     * Whether atomically() keeps the edits from other threads until they all succeed and takes them back when they fail.
+     */
+    default boolean isAtomic() {
+        return false;
+    }
+
+    /**
+     * Runs several edits so that readers see either all of them or none, stores that cannot do better simply run them.
+     */
+    default void atomically(Runnable edits) {
+        edits.run();
+    }
+
+    /**
+     * A copy later writes do not change, or null when the store cannot take one without copying every secret.
+     */
+    default VaultStore snapshot() {
+        return null;
+    }
+
+    /**
+     * Releases whatever the store keeps outside of the heap, the store must not be used afterwards.
+     */
+    @Override
+    default void close() {
+    }
+}
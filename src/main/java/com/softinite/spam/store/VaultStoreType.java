@@ -0,0 +1,39 @@
+package com.softinite.spam.store;
+
+import java.util.function.IntFunction;
+
+/**
+ * Responsible for choosing the store implementation that fits a use case.
+ */
+public enum VaultStoreType {
+    /**
+     * Command line usage, a single thread owns the vault.
+     */
+    SINGLE_THREADED(HashMapVaultStore::new),
+    /**
+     * Embedding in multi-threaded services.
+     */
+    CONCURRENT(ConcurrentVaultStore::new),
+    /**
+     * Readers that must never block, edits are published as consistent snapshots.
+     */
+    SNAPSHOT(SnapshotVaultStore::new),
+    /**
+     * Large vaults and long running embeddings, secrets are kept off the heap and wiped once they are no longer needed.
+     */
+    OFF_HEAP(OffHeapVaultStore::new);
+
+    private final IntFunction<VaultStore> factory;
+
+    VaultStoreType(IntFunction<VaultStore> factory) {
+        this.factory = factory;
+    }
+
+    public VaultStore create() {
+        return create(0);
+    }
+
+    public VaultStore create(int expectedSize) {
+        return factory.apply(expectedSize);
+    }
+}
@@ -0,0 +1,68 @@
+package com.softinite.spam.transfer;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Responsible for comma separated exports with a 'name,password' header, fields are quoted as RFC 4180 asks
+ * whenever they hold a comma, a quote, a line break or surrounding blanks.
+ */
+public class CsvExportFormat implements ExportFormat {
+
+    public static final String NAME = CsvImportFormat.NAME;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String[] getExtensions() {
+        return new String[]{"csv"};
+    }
+
+    @Override
+    public void writeHeader(Writer target) throws IOException {
+        target.write("name,password\r\n");
+    }
+
+    @Override
+    public void write(Writer target, String accountName, String secret) throws IOException {
+        writeField(target, accountName);
+        target.write(',');
+        writeField(target, secret);
+        target.write("\r\n");
+    }
+
+    private static void writeField(Writer target, String field) throws IOException {
+        if (!needsQuotes(field)) {
+            target.write(field);
+            return;
+        }
+        target.write('"');
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == '"') {
+                target.write('"');
+            }
+            target.write(c);
+        }
+        target.write('"');
+    }
+
+    private static boolean needsQuotes(String field) {
+        if (field.isEmpty()) {
+            return false;
+        }
+        if (Character.isWhitespace(field.charAt(0)) || Character.isWhitespace(field.charAt(field.length() - 1))) {
+            return true;
+        }
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,106 @@
+package com.softinite.spam.transfer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Responsible for comma separated exports as written by browsers, Bitwarden, LastPass or KeePass (RFC 4180 quoting,
+ * line breaks allowed inside quotes). When the first row names a name and a password column, such as 'name' or 'title'
+ * and 'password' or 'login_password', those columns are used; otherwise every row is data holding the name in the
+ * first column and the secret in the second.
+ */
+public class CsvImportFormat implements ImportFormat {
+
+    public static final String NAME = "csv";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String[] getExtensions() {
+        return new String[]{"csv"};
+    }
+
+    @Override
+    public void read(Reader source, RecordConsumer consumer) throws IOException {
+        BufferedReader reader = new BufferedReader(source);
+        List<String> record = nextRecord(reader);
+        if (record == null) {
+            return;
+        }
+        int nameColumn = ImportFormats.indexOfAny(record, ImportFormats.NAME_FIELDS);
+        int secretColumn = ImportFormats.indexOfAny(record, ImportFormats.SECRET_FIELDS);
+        if (nameColumn >= 0 && secretColumn >= 0) {
+            record = nextRecord(reader);
+        } else {
+            nameColumn = 0;
+            secretColumn = 1;
+        }
+        for (; record != null; record = nextRecord(reader)) {
+            if (record.size() == 1 && record.get(0).isEmpty()) {
+                continue;
+            }
+            String accountName = nameColumn < record.size() ? record.get(nameColumn) : "";
+            String secret = secretColumn < record.size() ? record.get(secretColumn) : "";
+            if (accountName.isEmpty() || secret.isEmpty()) {
+                consumer.ignore("missing name or password column");
+            } else {
+                consumer.accept(accountName, secret);
+            }
+        }
+    }
+
+    /**
+     * Reads the fields of the next record, null at the end of the input.
+     */
+    protected static List<String> nextRecord(BufferedReader reader) throws IOException {
+        int c = reader.read();
+        if (c < 0) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c < 0) {
+                    throw new IOException("Unterminated quoted field in CSV input.");
+                }
+                if (c == '"') {
+                    reader.mark(1);
+                    if (reader.read() == '"') {
+                        field.append('"');
+                    } else {
+                        reader.reset();
+                        quoted = false;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c < 0 || c == '\n') {
+                fields.add(field.toString());
+                return fields;
+            } else if (c == '\r') {
+                reader.mark(1);
+                if (reader.read() != '\n') {
+                    reader.reset();
+                }
+                fields.add(field.toString());
+                return fields;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else {
+                field.append((char) c);
+            }
+            c = reader.read();
+        }
+    }
+}
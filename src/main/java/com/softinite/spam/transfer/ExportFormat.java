@@ -0,0 +1,26 @@
+package com.softinite.spam.transfer;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Responsible for writing accounts in a plaintext format other tools, or SPAM itself, can read back.
+ * Accounts are written one at a time as they are handed over, nothing is kept between them.
+ */
+public interface ExportFormat {
+
+    String getName();
+
+    /**
+     * File extensions, without the dot, this format is picked for when none is given explicitly.
+     */
+    String[] getExtensions();
+
+    /**
+     * Written once before the first account.
+     */
+    default void writeHeader(Writer target) throws IOException {
+    }
+
+    void write(Writer target, String accountName, String secret) throws IOException;
+}
@@ -0,0 +1,44 @@
+package com.softinite.spam.transfer;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Responsible for finding the export format by name or by file extension.
+ */
+public final class ExportFormats {
+
+    private static final List<ExportFormat> FORMATS = List.of(
+            new PropertiesExportFormat(), new CsvExportFormat(), new JsonLinesExportFormat());
+
+    private ExportFormats() {
+    }
+
+    public static List<ExportFormat> all() {
+        return FORMATS;
+    }
+
+    public static ExportFormat byName(String name) {
+        for (ExportFormat format : FORMATS) {
+            if (format.getName().equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        throw new RuntimeException("Unknown export format " + name);
+    }
+
+    /**
+     * The format of the file judging by its extension, 'name=secret' lines for anything unknown.
+     */
+    public static ExportFormat forFile(String fileName) {
+        String lowerCaseName = fileName.toLowerCase(Locale.ROOT);
+        for (ExportFormat format : FORMATS) {
+            for (String extension : format.getExtensions()) {
+                if (lowerCaseName.endsWith("." + extension)) {
+                    return format;
+                }
+            }
+        }
+        return FORMATS.get(0);
+    }
+}
@@ -0,0 +1,23 @@
+package com.softinite.spam.transfer;
+
+import lombok.Value;
+
+/**
+ * Responsible for the counters of one export.
+ */
+@Value
+public class ExportReport {
+
+    long accounts;
+    long bytes;
+    long elapsedMillis;
+
+    public double getMegabytesPerSecond() {
+        return bytes / (1024.0 * 1024.0) / (Math.max(1, elapsedMillis) / 1000.0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Exported %d accounts (%d bytes), took %d ms (%.1f MB/s).", accounts, bytes, elapsedMillis, getMegabytesPerSecond());
+    }
+}
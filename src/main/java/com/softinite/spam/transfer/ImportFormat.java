@@ -0,0 +1,32 @@
+package com.softinite.spam.transfer;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Responsible for turning one kind of export of another password manager into account records.
+ * Implementations parse while they read and hand every record over right away, so they keep at most one record in memory.
+ */
+public interface ImportFormat {
+
+    String getName();
+
+    /**
+     * File extensions, without the dot, this format is picked for when none is given explicitly.
+     */
+    String[] getExtensions();
+
+    void read(Reader source, RecordConsumer consumer) throws IOException;
+
+    /**
+     * Receives the records in the order they appear in the source.
+     */
+    interface RecordConsumer {
+        void accept(String accountName, String secret);
+
+        /**
+         * A record that could not be used, such as one without a name or a secret.
+         */
+        void ignore(String reason);
+    }
+}
@@ -0,0 +1,64 @@
+package com.softinite.spam.transfer;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Responsible for finding the import format by name or by file extension.
+ */
+public final class ImportFormats {
+
+    /**
+     * Names other managers use for the account and the secret of an entry.
+     */
+    static final List<String> NAME_FIELDS = List.of("name", "title", "account");
+    static final List<String> SECRET_FIELDS = List.of("password", "login_password", "secret");
+
+    private static final List<ImportFormat> FORMATS = List.of(
+            new PropertiesImportFormat(), new CsvImportFormat(), new JsonLinesImportFormat(), new XmlImportFormat());
+
+    private ImportFormats() {
+    }
+
+    public static List<ImportFormat> all() {
+        return FORMATS;
+    }
+
+    public static ImportFormat byName(String name) {
+        for (ImportFormat format : FORMATS) {
+            if (format.getName().equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        throw new RuntimeException("Unknown import format " + name);
+    }
+
+    /**
+     * The format of the file judging by its extension, 'name=secret' lines for anything unknown.
+     */
+    public static ImportFormat forFile(String fileName) {
+        String lowerCaseName = fileName.toLowerCase(Locale.ROOT);
+        for (ImportFormat format : FORMATS) {
+            for (String extension : format.getExtensions()) {
+                if (lowerCaseName.endsWith("." + extension)) {
+                    return format;
+                }
+            }
+        }
+        return FORMATS.get(0);
+    }
+
+    /**
+     * The first of the candidates present among the column or field names, ignoring case, or -1.
+     */
+    static int indexOfAny(List<String> names, List<String> candidates) {
+        for (String candidate : candidates) {
+            for (int i = 0; i < names.size(); i++) {
+                if (names.get(i).trim().equalsIgnoreCase(candidate)) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,56 @@
+package com.softinite.spam.transfer;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Responsible for JSON Lines exports, one {"name": ..., "password": ...} object per line.
+ */
+public class JsonLinesExportFormat implements ExportFormat {
+
+    public static final String NAME = JsonLinesImportFormat.NAME;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String[] getExtensions() {
+        return new String[]{"jsonl", "ndjson"};
+    }
+
+    @Override
+    public void write(Writer target, String accountName, String secret) throws IOException {
+        target.write("{\"name\":");
+        writeString(target, accountName);
+        target.write(",\"password\":");
+        writeString(target, secret);
+        target.write("}\n");
+    }
+
+    private static void writeString(Writer target, String value) throws IOException {
+        target.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                target.write('\\');
+                target.write(c);
+            } else if (c == '\n') {
+                target.write("\\n");
+            } else if (c == '\r') {
+                target.write("\\r");
+            } else if (c == '\t') {
+                target.write("\\t");
+            } else if (c < 0x20) {
+                target.write("\\u00");
+                target.write(HEX[c >> 4]);
+                target.write(HEX[c & 0xf]);
+            } else {
+                target.write(c);
+            }
+        }
+        target.write('"');
+    }
+}
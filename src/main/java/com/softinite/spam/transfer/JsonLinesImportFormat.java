@@ -0,0 +1,187 @@
+package com.softinite.spam.transfer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Responsible for JSON Lines exports, one object per line such as {"name": "github", "password": "s3cret"}.
+ * The name is taken from 'name', 'title' or 'account' and the secret from 'password', 'login_password' or 'secret';
+ * other fields, nested values included, are skipped. Only the current line is ever held in memory.
+ */
+public class JsonLinesImportFormat implements ImportFormat {
+
+    public static final String NAME = "jsonl";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String[] getExtensions() {
+        return new String[]{"jsonl", "ndjson"};
+    }
+
+    @Override
+    public void read(Reader source, RecordConsumer consumer) throws IOException {
+        BufferedReader reader = new BufferedReader(source);
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            if (line.isBlank()) {
+                continue;
+            }
+            List<String> keys = new ArrayList<>();
+            List<String> values = new ArrayList<>();
+            try {
+                new ObjectParser(line).parse(keys, values);
+            } catch (IllegalArgumentException e) {
+                consumer.ignore(e.getMessage());
+                continue;
+            }
+            int name = ImportFormats.indexOfAny(keys, ImportFormats.NAME_FIELDS);
+            int secret = ImportFormats.indexOfAny(keys, ImportFormats.SECRET_FIELDS);
+            if (name < 0 || secret < 0 || values.get(name).isEmpty() || values.get(secret).isEmpty()) {
+                consumer.ignore("missing name or password field");
+            } else {
+                consumer.accept(values.get(name), values.get(secret));
+            }
+        }
+    }
+
+    /**
+     * Parses one object, keeping the top level fields holding strings, numbers or booleans.
+     */
+    private static final class ObjectParser {
+        private final String text;
+        private int position;
+
+        private ObjectParser(String text) {
+            this.text = text;
+        }
+
+        private void parse(List<String> keys, List<String> values) {
+            expect('{');
+            if (peek() == '}') {
+                position++;
+            } else {
+                do {
+                    skipWhitespace();
+                    String key = string();
+                    expect(':');
+                    String value = value();
+                    if (value != null) {
+                        keys.add(key);
+                        values.add(value);
+                    }
+                } while (next() == ',');
+                position--;
+                expect('}');
+            }
+            if (peek() != 0) {
+                throw new IllegalArgumentException("unexpected content after the object");
+            }
+        }
+
+        private String value() {
+            char c = peek();
+            if (c == '"') {
+                return string();
+            }
+            if (c == '{' || c == '[') {
+                skipNested();
+                return null;
+            }
+            int start = position;
+            while (position < text.length() && ",}] \t".indexOf(text.charAt(position)) < 0) {
+                position++;
+            }
+            String literal = text.substring(start, position);
+            if (literal.isEmpty()) {
+                throw new IllegalArgumentException("missing value at column " + start);
+            }
+            return "null".equals(literal) ? null : literal;
+        }
+
+        private String string() {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (position < text.length()) {
+                char c = text.charAt(position++);
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                if (position >= text.length()) {
+                    break;
+                }
+                char escaped = text.charAt(position++);
+                switch (escaped) {
+                    case 'b' -> value.append('\b');
+                    case 'f' -> value.append('\f');
+                    case 'n' -> value.append('\n');
+                    case 'r' -> value.append('\r');
+                    case 't' -> value.append('\t');
+                    case 'u' -> {
+                        if (position + 4 > text.length()) {
+                            throw new IllegalArgumentException("truncated unicode escape");
+                        }
+                        value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        position += 4;
+                    }
+                    default -> value.append(escaped);
+                }
+            }
+            throw new IllegalArgumentException("unterminated string");
+        }
+
+        private void skipNested() {
+            int depth = 0;
+            do {
+                char c = next();
+                if (c == 0) {
+                    throw new IllegalArgumentException("unterminated nested value");
+                } else if (c == '"') {
+                    position--;
+                    string();
+                } else if (c == '{' || c == '[') {
+                    depth++;
+                } else if (c == '}' || c == ']') {
+                    depth--;
+                }
+            } while (depth > 0);
+        }
+
+        private void expect(char expected) {
+            if (next() != expected) {
+                throw new IllegalArgumentException("expected '" + expected + "' at column " + position);
+            }
+        }
+
+        /**
+         * The next character that is not white space, consumed; 0 at the end of the line.
+         */
+        private char next() {
+            char c = peek();
+            if (c != 0) {
+                position++;
+            }
+            return c;
+        }
+
+        private char peek() {
+            skipWhitespace();
+            return position < text.length() ? text.charAt(position) : 0;
+        }
+
+        private void skipWhitespace() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+    }
+}
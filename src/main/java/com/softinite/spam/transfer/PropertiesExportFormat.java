@@ -0,0 +1,38 @@
+package com.softinite.spam.transfer;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.logging.Logger;
+
+/**
+ * Responsible for the native 'name=secret' lines, values are written as they are so the import reads them back unchanged.
+ * A name holding '=' or a value holding a line break cannot be read back from this format, CSV and JSON Lines keep them.
+ */
+public class PropertiesExportFormat implements ExportFormat {
+
+    public static final String NAME = PropertiesImportFormat.NAME;
+    private static final Logger LOG = Logger.getLogger(PropertiesExportFormat.class.getName());
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String[] getExtensions() {
+        return new String[]{"properties", "txt"};
+    }
+
+    @Override
+    public void write(Writer target, String accountName, String secret) throws IOException {
+        if (accountName.indexOf('=') >= 0 || StringUtils.containsAny(accountName, '\n', '\r') || StringUtils.containsAny(secret, '\n', '\r')) {
+            LOG.warning("Account " + accountName.replaceAll("[\r\n]", " ") + " cannot be read back from 'name=secret' lines, export to csv or jsonl to keep it intact.");
+        }
+        target.write(accountName);
+        target.write('=');
+        target.write(secret);
+        target.write('\n');
+    }
+}
@@ -0,0 +1,41 @@
+package com.softinite.spam.transfer;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Responsible for the native 'name=secret' lines, split at the first '='. Names containing '=' need one of the other formats.
+ */
+public class PropertiesImportFormat implements ImportFormat {
+
+    public static final String NAME = "properties";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String[] getExtensions() {
+        return new String[]{"properties", "txt"};
+    }
+
+    @Override
+    public void read(Reader source, RecordConsumer consumer) throws IOException {
+        BufferedReader reader = new BufferedReader(source);
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            if (StringUtils.isBlank(line)) {
+                continue;
+            }
+            int separator = line.indexOf('=');
+            if (separator > 0) {
+                consumer.accept(line.substring(0, separator), line.substring(separator + 1));
+            } else {
+                consumer.ignore("no '=' separator");
+            }
+        }
+    }
+}
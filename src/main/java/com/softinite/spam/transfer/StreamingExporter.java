@@ -0,0 +1,61 @@
+package com.softinite.spam.transfer;
+
+import com.softinite.spam.encrdecr.AtomicFileOutputStream;
+import com.softinite.spam.encrdecr.EncryptionManager;
+import com.softinite.spam.encrdecr.FileProxy;
+import com.softinite.spam.encrdecr.PasswordContainer;
+import com.softinite.spam.metrics.Metrics;
+import com.softinite.spam.metrics.Phase;
+import com.softinite.spam.metrics.Stopwatch;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.logging.Logger;
+
+/**
+ * Responsible for writing every account to a plaintext file in the chosen format.
+ * Accounts are written one at a time straight through a large buffer, secrets of a directory vault are decrypted one at
+ * a time as well, so memory does not grow with the number of accounts. Sorted exports walk the name index, which is
+ * always in order, so they do not sort either. The file only appears once it has been written completely.
+ */
+public class StreamingExporter {
+
+    public static final int BUFFER_SIZE = 256 * 1024;
+    private static final Logger LOG = Logger.getLogger(StreamingExporter.class.getName());
+
+    private final PasswordContainer container;
+    private final ExportFormat format;
+    private final boolean sorted;
+
+    public StreamingExporter(PasswordContainer container, ExportFormat format, boolean sorted) {
+        this.container = container;
+        this.format = format;
+        this.sorted = sorted;
+    }
+
+    public ExportReport exportTo(FileProxy target) throws IOException {
+        Stopwatch stopwatch = Metrics.start(Phase.EXPORT);
+        long accounts = 0;
+        AtomicFileOutputStream out = target.openAtomicOutputStream();
+        try {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, EncryptionManager.UTF8), BUFFER_SIZE);
+            format.writeHeader(writer);
+            synchronized (container) {
+                for (String accountName : sorted ? container.listAccounts() : container.loadKeys()) {
+                    format.write(writer, accountName, container.loadSecret(accountName));
+                    accounts++;
+                }
+            }
+            writer.flush();
+            out.commit();
+        } finally {
+            out.discard();
+        }
+        long bytes = target.length();
+        ExportReport report = new ExportReport(accounts, bytes, stopwatch.stop(bytes, accounts) / 1_000_000);
+        LOG.info(report.toString());
+        return report;
+    }
+}
@@ -0,0 +1,156 @@
+package com.softinite.spam.transfer;
+
+import com.softinite.spam.encrdecr.BulkImporter;
+import com.softinite.spam.encrdecr.EncryptionManager;
+import com.softinite.spam.encrdecr.FileProxy;
+import com.softinite.spam.encrdecr.ImportReport;
+import com.softinite.spam.encrdecr.PasswordContainer;
+import com.softinite.spam.encrdecr.VaultSerializer;
+import com.softinite.spam.metrics.Metrics;
+import com.softinite.spam.metrics.Phase;
+import com.softinite.spam.metrics.Stopwatch;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Responsible for importing the export of another password manager record by record, whatever its size.
+ * The file is read as a stream through its ImportFormat and every record goes straight into the container, so memory only
+ * grows with the accounts themselves. Taken names get the same '_n' suffixes BulkImporter gives them.
+ * Records the vault file cannot hold, like names with '=' or secrets spanning several lines, are ignored and counted.
+ * A dry run changes nothing: it only keeps the names it would have added, to report the conflicts and the throughput.
+ */
+public class StreamingImporter {
+
+    private static final Logger LOG = Logger.getLogger(StreamingImporter.class.getName());
+
+    private final PasswordContainer container;
+    private final ImportFormat format;
+    private final boolean dryRun;
+
+    public StreamingImporter(PasswordContainer container, ImportFormat format, boolean dryRun) {
+        this.container = container;
+        this.format = format;
+        this.dryRun = dryRun;
+    }
+
+    public ImportReport importFrom(FileProxy source) throws IOException {
+        Stopwatch stopwatch = Metrics.start(Phase.IMPORT);
+        Records records = new Records();
+        try (CountingInputStream input = new CountingInputStream(source.openInputStream());
+             Reader reader = new InputStreamReader(input, EncryptionManager.UTF8)) {
+            if (dryRun) {
+                format.read(reader, records);
+            } else {
+                synchronized (container) {
+                    readAtomically(reader, records);
+                }
+            }
+            records.bytes = input.count;
+        }
+        long elapsed = stopwatch.stop(records.bytes, records.imported);
+        ImportReport report = new ImportReport(records.lines, records.imported, records.renamed, records.ignored, 1,
+                records.bytes, elapsed / 1_000_000, dryRun);
+        LOG.info(report.toString());
+        return report;
+    }
+
+    /**
+     * Readers of the container see the imported accounts all at once, when the whole file has been read.
+     */
+    private void readAtomically(Reader reader, Records records) throws IOException {
+        try {
+            container.atomically(() -> {
+                try {
+                    format.read(reader, records);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private final class Records implements ImportFormat.RecordConsumer {
+        private final Map<String, Integer> nextSuffix = new HashMap<>();
+        private final Set<String> added = new HashSet<>();
+        private long lines;
+        private long imported;
+        private long renamed;
+        private long ignored;
+        private long bytes;
+
+        @Override
+        public void accept(String accountName, String secret) {
+            if (!VaultSerializer.isStorable(accountName, secret)) {
+                ignore("account " + accountName.strip() + " has a name or secret the vault cannot hold");
+                return;
+            }
+            lines++;
+            String name = accountName;
+            if (isTaken(name)) {
+                name = BulkImporter.freeName(name, nextSuffix, this::isTaken);
+                renamed++;
+                LOG.fine("Account " + accountName + " already exists, importing it as " + name);
+            }
+            if (dryRun) {
+                added.add(name);
+            } else {
+                container.addAccount(name, secret);
+            }
+            if (++imported % BulkImporter.PROGRESS_INTERVAL == 0) {
+                LOG.info((dryRun ? "Checked " : "Imported ") + imported + " accounts.");
+            }
+        }
+
+        @Override
+        public void ignore(String reason) {
+            lines++;
+            ignored++;
+            LOG.fine("Ignoring import record " + lines + ": " + reason);
+        }
+
+        private boolean isTaken(String name) {
+            return container.doesAccountExist(name) || added.contains(name);
+        }
+    }
+
+    /**
+     * Counts the bytes read so the report can tell the throughput of formats that decode the text themselves.
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = super.read();
+            if (read >= 0) {
+                count++;
+            }
+            return read;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.softinite.spam.transfer;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Locale;
+
+/**
+ * Responsible for XML exports in the KeePass style, read with StAX so only the current entry is held in memory.
+ * Both KeePass 2 entries (Entry elements holding String elements with a Key and a Value) and KeePassX entries
+ * (entry elements holding title and password elements) are understood. The History of a KeePass 2 entry is skipped,
+ * DTDs and external entities are never processed.
+ */
+public class XmlImportFormat implements ImportFormat {
+
+    public static final String NAME = "xml";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String[] getExtensions() {
+        return new String[]{"xml"};
+    }
+
+    @Override
+    public void read(Reader source, RecordConsumer consumer) throws IOException {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        try {
+            XMLStreamReader reader = factory.createXMLStreamReader(source);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT && "entry".equalsIgnoreCase(reader.getLocalName())) {
+                        readEntry(reader, consumer);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Could not parse the XML import: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads the entry the reader is positioned on up to its end tag.
+     */
+    private static void readEntry(XMLStreamReader reader, RecordConsumer consumer) throws XMLStreamException {
+        String accountName = null;
+        String secret = null;
+        String key = null;
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            } else if (event == XMLStreamConstants.START_ELEMENT) {
+                String element = reader.getLocalName().toLowerCase(Locale.ROOT);
+                if ("history".equals(element)) {
+                    skipElement(reader);
+                } else if ("key".equals(element)) {
+                    key = reader.getElementText();
+                } else if ("value".equals(element)) {
+                    String value = reader.getElementText();
+                    if ("title".equalsIgnoreCase(key)) {
+                        accountName = value;
+                    } else if ("password".equalsIgnoreCase(key)) {
+                        secret = value;
+                    }
+                } else if ("title".equals(element)) {
+                    accountName = reader.getElementText();
+                } else if ("password".equals(element)) {
+                    secret = reader.getElementText();
+                } else {
+                    depth++;
+                }
+            }
+        }
+        if (accountName == null || accountName.isEmpty() || secret == null || secret.isEmpty()) {
+            consumer.ignore("entry without a title or a password");
+        } else {
+            consumer.accept(accountName, secret);
+        }
+    }
+
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+}
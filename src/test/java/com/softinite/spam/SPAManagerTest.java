@@ -4,6 +4,7 @@ import com.softinite.spam.cli.CLIParameters;
 import com.softinite.spam.cli.UserInteraction;
 import com.softinite.spam.encrdecr.FileProxy;
 import com.softinite.spam.encrdecr.PasswordContainer;
+import com.softinite.spam.store.HashMapVaultStore;
 import org.bouncycastle.crypto.InvalidCipherTextException;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -12,11 +13,13 @@ import javax.crypto.BadPaddingException;
 import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.NoSuchPaddingException;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
-import java.util.Properties;
+import java.util.List;
 import java.util.logging.Logger;
 
 import static org.mockito.Mockito.doNothing;
@@ -45,14 +48,14 @@ public class SPAManagerTest {
 
     @Test
     public void ifMergeOptionsIsPassedThenFilesMergeIsInvoked() throws IOException, NoSuchAlgorithmException, InvalidCipherTextException, InvalidKeyException, InvalidAlgorithmParameterException, NoSuchPaddingException, BadPaddingException, NoSuchProviderException, IllegalBlockSizeException {
-        params.setMergeFile("anotherFile");
+        params.setMergeFiles(List.of("anotherFile", "yetAnotherFile"));
         SPAManager manager = spy(SPAManager.class);
 
-        doNothing().when(manager).mergeFiles(params.getMergeFile());
+        doNothing().when(manager).mergeFiles(params.getMergeFiles());
 
         manager.executeUserCommand(params);
 
-        verify(manager, times(1)).mergeFiles(params.getMergeFile());
+        verify(manager, times(1)).mergeFiles(params.getMergeFiles());
     }
 
     @Test
@@ -125,7 +128,7 @@ public class SPAManagerTest {
         UserInteraction userInteraction = mock(UserInteraction.class);
         manager.setUserInteraction(userInteraction);
         PasswordContainer container = new PasswordContainer();
-        container.setProperties(new Properties());
+        container.setStore(new HashMapVaultStore());
         manager.setPasswordContainer(container);
 
         String acctName = "abc";
@@ -216,4 +219,56 @@ public class SPAManagerTest {
         verify(manager, times(1)).showHelp();
     }
 
+    @Test
+    public void batchIsAppliedInMemoryAndSavedOnce() throws Exception {
+        SPAManager manager = new SPAManager();
+        UserInteraction userInteraction = mock(UserInteraction.class);
+        manager.setUserInteraction(userInteraction);
+        PasswordContainer container = spy(new PasswordContainer());
+        container.setStore(new HashMapVaultStore());
+        container.addAccount("old", "oldSecret");
+        doNothing().when(container).save();
+        manager.setPasswordContainer(container);
+
+        manager.executeBatch(writeBatch(
+                "# provisioning",
+                "add acct1=secret=with=equals",
+                "add my bank=bank secret",
+                "update acct1=changed",
+                "",
+                "rename old=renamed",
+                "get renamed",
+                "remove my bank"));
+
+        verify(container, times(1)).save();
+        verify(userInteraction, times(1)).showToUser("oldSecret");
+        assertEquals(container.loadSecret("acct1"), "changed");
+        assertEquals(container.loadSecret("renamed"), "oldSecret");
+        assertEquals(container.getStore().size(), 2);
+    }
+
+    @Test
+    public void failingBatchIsNotSaved() throws Exception {
+        SPAManager manager = new SPAManager();
+        manager.setUserInteraction(mock(UserInteraction.class));
+        PasswordContainer container = spy(new PasswordContainer());
+        container.setStore(new HashMapVaultStore());
+        doNothing().when(container).save();
+        manager.setPasswordContainer(container);
+
+        try {
+            manager.executeBatch(writeBatch("add acct1=secret1", "update missing=secret2"));
+            fail("Updating a missing account should abort the batch.");
+        } catch (RuntimeException e) {
+            assertEquals(e.getMessage(), "Line 2: " + SPAManager.ACCT_NOT_FOUND_MSG + "missing");
+        }
+        verify(container, times(0)).save();
+    }
+
+    private static String writeBatch(String... lines) throws IOException {
+        Path batchFile = Files.createTempFile("spam-batch", ".txt");
+        batchFile.toFile().deleteOnExit();
+        Files.write(batchFile, List.of(lines));
+        return batchFile.toString();
+    }
 }
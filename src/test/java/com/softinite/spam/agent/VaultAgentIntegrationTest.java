@@ -0,0 +1,131 @@
+package com.softinite.spam.agent;
+
+import com.softinite.spam.encrdecr.FileProxy;
+import com.softinite.spam.encrdecr.PasswordContainer;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.expectThrows;
+
+/**
+ * Responsible for testing the agent and its client over a real local socket
+ */
+public class VaultAgentIntegrationTest {
+
+    public static final String DATA_FILE_NAME = "agent.spam";
+    public static final String PASSWORD = "password";
+
+    private PasswordContainer container;
+    private VaultAgent agent;
+
+    @BeforeMethod
+    public void setup() throws Exception {
+        deleteDataFiles();
+        FileProxy vault = new FileProxy();
+        vault.setInternal(new File(DATA_FILE_NAME));
+        vault.touch();
+        container = new PasswordContainer();
+        container.init(PASSWORD, vault);
+        container.addAccount("github", "gh-secret");
+        container.addAccount("gitlab", "gl-secret");
+        container.addAccount("bank", "bank-secret");
+        container.save();
+        agent = new VaultAgent(container, Paths.get(DATA_FILE_NAME));
+        agent.start();
+    }
+
+    @AfterMethod
+    public void cleanup() throws IOException {
+        agent.stop();
+        container.close();
+        deleteDataFiles();
+    }
+
+    protected void deleteDataFiles() {
+        new File(DATA_FILE_NAME).delete();
+        new File(DATA_FILE_NAME + ".journal").delete();
+        new File(DATA_FILE_NAME + AgentEndpoint.FILE_SUFFIX).delete();
+        new File(DATA_FILE_NAME + AgentEndpoint.SOCKET_SUFFIX).delete();
+    }
+
+    @Test
+    public void clientLooksUpListsAndSearches() throws IOException {
+        try (AgentClient client = AgentClient.connect(Paths.get(DATA_FILE_NAME))) {
+            assertEquals(client.get("github"), "gh-secret");
+            assertNull(client.get("missing"));
+            assertEquals(client.list(null), List.of("bank", "github", "gitlab"));
+            assertEquals(client.list("GIT"), List.of("github", "gitlab"));
+            assertEquals(client.search("lab"), List.of("gitlab"));
+        }
+        assertEquals(agent.getServedRequests(), 5);
+    }
+
+    @Test
+    public void updatesAreSavedToTheVault() throws Exception {
+        try (AgentClient client = AgentClient.connect(Paths.get(DATA_FILE_NAME))) {
+            client.update("bank", "changed");
+            client.update("mail", "mail-secret");
+            assertEquals(client.get("bank"), "changed");
+        }
+        agent.stop();
+        container.close();
+
+        FileProxy vault = new FileProxy();
+        vault.setInternal(new File(DATA_FILE_NAME));
+        PasswordContainer reopened = new PasswordContainer();
+        reopened.init(PASSWORD, vault);
+        assertEquals(reopened.loadSecret("bank"), "changed");
+        assertEquals(reopened.loadSecret("mail"), "mail-secret");
+        reopened.close();
+    }
+
+    @Test
+    public void wrongTokenIsRejected() throws IOException {
+        Path agentFile = AgentEndpoint.agentFile(Paths.get(DATA_FILE_NAME));
+        AgentEndpoint endpoint = AgentEndpoint.read(agentFile);
+        Files.delete(agentFile);
+        new AgentEndpoint(endpoint.getTransport(), endpoint.getAddress(), AgentEndpoint.newToken()).write(agentFile);
+
+        expectThrows(RuntimeException.class, () -> AgentClient.connect(Paths.get(DATA_FILE_NAME)));
+    }
+
+    @Test
+    public void oversizedTokenIsRejectedBeforeItIsRead() throws IOException {
+        AgentEndpoint endpoint = AgentEndpoint.read(AgentEndpoint.agentFile(Paths.get(DATA_FILE_NAME)));
+        try (SocketChannel channel = endpoint.connect()) {
+            DataOutputStream out = new DataOutputStream(Channels.newOutputStream(channel));
+            out.writeByte(AgentProtocol.AUTH);
+            out.writeInt(AgentProtocol.MAX_STRING_LENGTH);
+            out.flush();
+
+            assertEquals(new DataInputStream(Channels.newInputStream(channel)).readByte(), AgentProtocol.UNAUTHORIZED);
+        }
+    }
+
+    @Test
+    public void stopRemovesTheAgentFile() throws Exception {
+        try (AgentClient client = AgentClient.connect(Paths.get(DATA_FILE_NAME))) {
+            client.stop();
+        }
+        agent.awaitStop();
+        assertFalse(new File(DATA_FILE_NAME + AgentEndpoint.FILE_SUFFIX).exists());
+        assertTrue(new File(DATA_FILE_NAME).exists());
+        expectThrows(IOException.class, () -> AgentClient.connect(Paths.get(DATA_FILE_NAME)));
+    }
+}
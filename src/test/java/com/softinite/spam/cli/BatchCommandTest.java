@@ -0,0 +1,44 @@
+package com.softinite.spam.cli;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.fail;
+
+/**
+ * Responsible for testing BatchCommand
+ */
+public class BatchCommandTest {
+
+    @Test
+    public void commandsAreSplitIntoVerbNameAndArgument() {
+        assertEquals(BatchCommand.parse("add my bank=s3cr=t", 1), new BatchCommand(1, BatchCommand.Verb.ADD, "my bank", "s3cr=t"));
+        assertEquals(BatchCommand.parse("  RENAME old=new name", 2), new BatchCommand(2, BatchCommand.Verb.RENAME, "old", "new name"));
+        assertEquals(BatchCommand.parse("get my bank", 3), new BatchCommand(3, BatchCommand.Verb.GET, "my bank", null));
+        assertEquals(BatchCommand.parse("update acct=", 4).getArgument(), "");
+    }
+
+    @Test
+    public void blankLinesAndCommentsAreSkipped() {
+        assertNull(BatchCommand.parse("", 1));
+        assertNull(BatchCommand.parse("   ", 2));
+        assertNull(BatchCommand.parse("# add acct=secret", 3));
+    }
+
+    @Test
+    public void malformedLinesAreRejectedWithTheirLineNumber() {
+        assertRejected("add acct", "Line 7: expected 'add name=value'.");
+        assertRejected("remove", "Line 7: " + UserInteraction.BLANK_NAME_NOT_ALLOWED);
+        assertRejected("delete acct", "Line 7: unknown command 'delete'.");
+    }
+
+    private static void assertRejected(String line, String message) {
+        try {
+            BatchCommand.parse(line, 7);
+            fail("Line '" + line + "' should have been rejected.");
+        } catch (RuntimeException e) {
+            assertEquals(e.getMessage(), message);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.softinite.spam.encrdecr;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+
+/**
+ * Responsible for testing AtomicFileOutputStream
+ */
+public class AtomicFileOutputStreamIntegrationTest {
+
+    public static final String DATA_FILE_NAME = "atomic.bin";
+
+    private FileProxy target;
+
+    @BeforeMethod
+    public void setup() throws IOException {
+        target = new FileProxy();
+        target.setInternal(new File(DATA_FILE_NAME));
+        Files.writeString(new File(DATA_FILE_NAME).toPath(), "original");
+    }
+
+    @AfterMethod
+    public void cleanup() {
+        new File(DATA_FILE_NAME).delete();
+        new File(DATA_FILE_NAME + AtomicFileOutputStream.TEMP_FILE_SUFFIX).delete();
+    }
+
+    @Test
+    public void committedContentReplacesTarget() throws IOException {
+        AtomicFileOutputStream out = target.openAtomicOutputStream();
+        out.write("replaced".getBytes(EncryptionManager.UTF8));
+        out.commit();
+        out.discard();
+
+        assertEquals(Files.readString(new File(DATA_FILE_NAME).toPath()), "replaced");
+        assertFalse(new File(DATA_FILE_NAME + AtomicFileOutputStream.TEMP_FILE_SUFFIX).exists());
+    }
+
+    @Test
+    public void discardedContentLeavesTargetUntouched() throws IOException {
+        AtomicFileOutputStream out = target.openAtomicOutputStream();
+        out.write("partial".getBytes(EncryptionManager.UTF8));
+        out.close();
+        out.discard();
+
+        assertEquals(Files.readString(new File(DATA_FILE_NAME).toPath()), "original");
+        assertFalse(new File(DATA_FILE_NAME + AtomicFileOutputStream.TEMP_FILE_SUFFIX).exists());
+    }
+
+}
@@ -0,0 +1,88 @@
+package com.softinite.spam.encrdecr;
+
+import com.softinite.spam.store.HashMapVaultStore;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Responsible for testing BulkImporter against real import files
+ */
+public class BulkImporterIntegrationTest {
+
+    public static final String IMPORT_FILE_NAME = "bulk.import";
+
+    @AfterMethod
+    public void cleanup() {
+        new File(IMPORT_FILE_NAME).delete();
+    }
+
+    private FileProxy importFile(String content) throws IOException {
+        Files.write(new File(IMPORT_FILE_NAME).toPath(), content.getBytes(StandardCharsets.UTF_8));
+        FileProxy fileProxy = new FileProxy();
+        fileProxy.setInternal(new File(IMPORT_FILE_NAME));
+        return fileProxy;
+    }
+
+    private PasswordContainer container() {
+        PasswordContainer container = new PasswordContainer();
+        container.setStore(new HashMapVaultStore());
+        return container;
+    }
+
+    private static Map<String, String> accounts(PasswordContainer container) {
+        Map<String, String> accounts = new HashMap<>();
+        container.getStore().forEach(accounts::put);
+        return accounts;
+    }
+
+    @Test
+    public void importsEveryKindOfLine() throws IOException {
+        PasswordContainer container = container();
+        container.addAccount("taken", "old");
+
+        ImportReport report = new BulkImporter(container).importFrom(importFile(
+                "taken=new\r\n\n   \nno separator\n=no name\nb\u00e4nk=s\u00e9cret=with=equals\r\ntaken=newer\nlast=line"));
+
+        assertEquals(report.getLines(), 8);
+        assertEquals(report.getImported(), 4);
+        assertEquals(report.getRenamed(), 2);
+        assertEquals(report.getIgnored(), 2);
+        assertEquals(accounts(container), Map.of(
+                "taken", "old",
+                "taken_1", "new",
+                "taken_2", "newer",
+                "b\u00e4nk", "s\u00e9cret=with=equals",
+                "last", "line"));
+        assertTrue(container.searchAccounts("taken").contains("taken_2"));
+    }
+
+    @Test
+    public void rangesGiveTheSameResultAsASinglePass() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            content.append("acct").append(i % 1500).append('=').append("secret").append(i).append('\n');
+        }
+        FileProxy file = importFile(content.toString());
+
+        PasswordContainer single = container();
+        new BulkImporter(single, 1, BulkImporter.MIN_RANGE_SIZE).importFrom(file);
+        PasswordContainer split = container();
+        ImportReport report = new BulkImporter(split, 16, 1024).importFrom(file);
+
+        assertEquals(report.getRanges(), 16);
+        assertEquals(report.getImported(), 5000);
+        assertEquals(report.getRenamed(), 3500);
+        assertEquals(accounts(split), accounts(single));
+        assertEquals(split.loadSecret("acct7_3"), "secret4507");
+    }
+}
@@ -0,0 +1,144 @@
+package com.softinite.spam.encrdecr;
+
+import org.bouncycastle.crypto.io.InvalidCipherTextIOException;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/**
+ * Responsible for testing ChunkedCipherOutputStream and ChunkedCipherInputStream
+ */
+public class ChunkedCipherStreamTest {
+
+    private static final KeyParameter KEY = new KeyParameter(new byte[32]);
+    private static final int CHUNK_SIZE = 1024;
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterClass
+    public void shutdownPool() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void contentSpanningManyChunksIsReadBackInOrder() throws Exception {
+        byte[] plainText = new byte[CHUNK_SIZE * 20 + 17];
+        new Random(42).nextBytes(plainText);
+
+        assertEquals(decrypt(encrypt(plainText)), plainText);
+        assertEquals(decrypt(encrypt(new byte[0])), new byte[0]);
+        assertEquals(decrypt(encrypt(new byte[CHUNK_SIZE])), new byte[CHUNK_SIZE]);
+    }
+
+    @Test
+    public void truncatedVaultIsRejected() throws Exception {
+        byte[] vault = encrypt(new byte[CHUNK_SIZE * 3]);
+        int lastRecordLength = 4 + ChunkCipher.RECORD_OVERHEAD;
+
+        assertCorrupted(Arrays.copyOf(vault, vault.length - lastRecordLength));
+    }
+
+    @Test
+    public void tamperedOrReorderedChunksAreRejected() throws Exception {
+        byte[] vault = encrypt(new byte[CHUNK_SIZE * 3]);
+        byte[] tampered = vault.clone();
+        tampered[ChunkedCipherOutputStream.HEADER_LENGTH + 40] ^= 1;
+        assertCorrupted(tampered);
+
+        int recordLength = 4 + CHUNK_SIZE + ChunkCipher.RECORD_OVERHEAD;
+        int first = ChunkedCipherOutputStream.HEADER_LENGTH;
+        byte[] swapped = vault.clone();
+        System.arraycopy(vault, first, swapped, first + recordLength, recordLength);
+        System.arraycopy(vault, first + recordLength, swapped, first, recordLength);
+        assertCorrupted(swapped);
+    }
+
+    @Test
+    public void dataAfterTheLastChunkIsRejected() throws Exception {
+        byte[] vault = encrypt(new byte[10]);
+        assertCorrupted(Arrays.copyOf(vault, vault.length + 1));
+    }
+
+    @Test
+    public void compressedContentIsSmallerAndReadBack() throws Exception {
+        byte[] plainText = "github.com=correct horse battery staple\n".repeat(CHUNK_SIZE).getBytes(EncryptionManager.UTF8);
+
+        byte[] vault = encrypt(plainText, 6);
+
+        assertTrue(vault.length < plainText.length / 4, "compressed size " + vault.length);
+        assertEquals(decrypt(vault), plainText);
+        assertEquals(decrypt(encrypt(new byte[0], 1)), new byte[0]);
+    }
+
+    @Test
+    public void incompressibleChunksAreStoredAsTheyAre() throws Exception {
+        byte[] plainText = new byte[CHUNK_SIZE * 5 + 3];
+        new Random(7).nextBytes(plainText);
+
+        byte[] vault = encrypt(plainText, 9);
+
+        assertEquals(vault.length, encrypt(plainText).length + 6);
+        assertEquals(decrypt(vault), plainText);
+    }
+
+    @Test
+    public void levelIsReadFromTheHeader() throws Exception {
+        try (ChunkedCipherInputStream in = new ChunkedCipherInputStream(new ByteArrayInputStream(encrypt(new byte[10], 3)), KEY, pool)) {
+            assertEquals(in.getCompressionLevel(), 3);
+        }
+        try (ChunkedCipherInputStream in = new ChunkedCipherInputStream(new ByteArrayInputStream(encrypt(new byte[10])), KEY, pool)) {
+            assertEquals(in.getCompressionLevel(), ChunkCompression.OFF);
+        }
+    }
+
+    @Test
+    public void tamperedCompressionFlagsAreRejected() throws Exception {
+        byte[] vault = encrypt(new byte[CHUNK_SIZE], 6);
+        vault[VaultFormat.HEADER_LENGTH] = 0;
+        assertCorrupted(vault);
+    }
+
+    @Test(expectedExceptions = RuntimeException.class)
+    public void levelOutOfRangeIsRefused() {
+        ChunkCompression.checkLevel(10);
+    }
+
+    private byte[] encrypt(byte[] plainText) throws IOException {
+        return encrypt(plainText, ChunkCompression.OFF);
+    }
+
+    private byte[] encrypt(byte[] plainText, int compressionLevel) throws IOException {
+        ByteArrayOutputStream vault = new ByteArrayOutputStream();
+        try (OutputStream out = new ChunkedCipherOutputStream(vault, KEY, CHUNK_SIZE, pool, compressionLevel)) {
+            out.write(plainText);
+        }
+        return vault.toByteArray();
+    }
+
+    private byte[] decrypt(byte[] vault) throws IOException {
+        try (InputStream in = new ChunkedCipherInputStream(new ByteArrayInputStream(vault), KEY, pool)) {
+            return in.readAllBytes();
+        }
+    }
+
+    private void assertCorrupted(byte[] vault) throws IOException {
+        try {
+            decrypt(vault);
+            fail("A corrupted vault should not be read.");
+        } catch (InvalidCipherTextIOException e) {
+            // expected
+        }
+    }
+}
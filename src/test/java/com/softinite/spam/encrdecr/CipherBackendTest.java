@@ -0,0 +1,85 @@
+package com.softinite.spam.encrdecr;
+
+import org.bouncycastle.crypto.InvalidCipherTextException;
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Responsible for testing that every CipherBackend reads what the others write
+ */
+public class CipherBackendTest {
+
+    private static final KeyParameter KEY = new KeyParameter(new byte[]{
+            1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20, 21, 22, 23, 24, 25, 26, 27, 28, 29, 30, 31, 32});
+    private static final byte[] IV = new byte[]{9, 8, 7, 6, 5, 4, 3, 2, 1, 0, 1, 2, 3, 4, 5, 6};
+
+    private final CipherBackend bouncyCastle = new BouncyCastleCipherBackend();
+    private final CipherBackend jce = new JceCipherBackend();
+
+    @Test
+    public void backendsProduceTheSameCipherText() throws Exception {
+        byte[] plainText = "acct1=secret1\nacct2=secret2 with more than one block\n".getBytes(EncryptionManager.UTF8);
+
+        byte[] fromBouncyCastle = bouncyCastle.encrypt(KEY, IV, plainText, 0, plainText.length);
+        byte[] fromJce = jce.encrypt(KEY, IV, plainText, 0, plainText.length);
+
+        assertEquals(fromJce, fromBouncyCastle);
+        assertEquals(bouncyCastle.decrypt(KEY, IV, fromJce, 0, fromJce.length), plainText);
+        assertEquals(jce.decrypt(KEY, IV, fromBouncyCastle, 0, fromBouncyCastle.length), plainText);
+    }
+
+    @Test
+    public void streamsOfOneBackendAreReadByTheOther() throws Exception {
+        byte[] plainText = new byte[100_000];
+        Arrays.fill(plainText, (byte) 'x');
+
+        assertEquals(readThrough(jce, writeThrough(bouncyCastle, plainText)), plainText);
+        assertEquals(readThrough(bouncyCastle, writeThrough(jce, plainText)), plainText);
+    }
+
+    @Test
+    public void wrongKeyIsReportedAsInvalidCipherText() throws Exception {
+        byte[] plainText = "secret".getBytes(EncryptionManager.UTF8);
+        KeyParameter wrongKey = new KeyParameter(new byte[32]);
+        for (CipherBackend backend : new CipherBackend[]{bouncyCastle, jce}) {
+            byte[] cipherText = backend.encrypt(KEY, IV, plainText, 0, plainText.length);
+            try {
+                byte[] decrypted = backend.decrypt(wrongKey, IV, cipherText, 0, cipherText.length);
+                // a wrong key yields valid padding once in a while, but never the original plain text
+                assertTrue(!Arrays.equals(decrypted, plainText));
+            } catch (InvalidCipherTextException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void throughputIsMeasuredForAnyBackend() throws Exception {
+        assertTrue(CipherBackends.measure(jce, 16 * 1024, 1) > 0);
+        assertTrue(CipherBackends.measure(bouncyCastle, 16 * 1024, 1) > 0);
+        assertEquals(CipherBackends.byName("JCE").getName(), JceCipherBackend.NAME);
+    }
+
+    private static byte[] writeThrough(CipherBackend backend, byte[] plainText) throws Exception {
+        ByteArrayOutputStream cipherText = new ByteArrayOutputStream();
+        try (OutputStream out = backend.encryptingStream(cipherText, KEY, IV)) {
+            out.write(plainText);
+        }
+        return cipherText.toByteArray();
+    }
+
+    private static byte[] readThrough(CipherBackend backend, byte[] cipherText) throws Exception {
+        try (InputStream in = backend.decryptingStream(new ByteArrayInputStream(cipherText), KEY, IV, 4096)) {
+            return in.readAllBytes();
+        }
+    }
+}
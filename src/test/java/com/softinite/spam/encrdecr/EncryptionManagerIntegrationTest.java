@@ -1,5 +1,7 @@
 package com.softinite.spam.encrdecr;
 
+import com.softinite.spam.store.HashMapVaultStore;
+import com.softinite.spam.store.VaultStore;
 import org.bouncycastle.crypto.InvalidCipherTextException;
 import org.testng.Assert;
 import org.testng.annotations.AfterMethod;
@@ -17,7 +19,6 @@ import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
-import java.util.Properties;
 
 /**
  * Responsible for testing EncryptionManager
@@ -47,7 +48,7 @@ public class EncryptionManagerIntegrationTest {
     @Test
     public void checkEncryption() throws IOException, NoSuchPaddingException, InvalidKeyException, NoSuchAlgorithmException, IllegalBlockSizeException, BadPaddingException, NoSuchProviderException, InvalidAlgorithmParameterException, InvalidCipherTextException {
         EncryptionManager encryptionManager = new EncryptionManager();
-        Properties secret = new Properties();
+        VaultStore secret = new HashMapVaultStore();
         String acctName = "abc";
         String acctSecret = "mySecret";
         String password = "password";
@@ -58,8 +59,8 @@ public class EncryptionManagerIntegrationTest {
         System.out.println("Preparing to read " + name);
         String content = new String(Files.readAllBytes(Paths.get(name)));
         System.out.println(content);
-        Properties decryptedProps = encryptionManager.decrypt(encryptedFile, password);
-        Assert.assertEquals(decryptedProps.getProperty(acctName), acctSecret);
+        VaultStore decryptedProps = encryptionManager.decrypt(encryptedFile, password);
+        Assert.assertEquals(decryptedProps.get(acctName), acctSecret);
     }
 
 }
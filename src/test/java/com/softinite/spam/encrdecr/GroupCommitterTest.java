@@ -0,0 +1,109 @@
+package com.softinite.spam.encrdecr;
+
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/**
+ * Responsible for testing GroupCommitter
+ */
+public class GroupCommitterTest {
+
+    @Test
+    public void withoutWindowEveryRequestIsCommitted() throws IOException {
+        AtomicInteger commits = new AtomicInteger();
+        GroupCommitter committer = new GroupCommitter(0, commits::incrementAndGet);
+
+        committer.request();
+        committer.request();
+
+        assertEquals(commits.get(), 2);
+    }
+
+    @Test
+    public void burstOfRequestsIsCoalesced() throws Exception {
+        AtomicInteger commits = new AtomicInteger();
+        GroupCommitter committer = new GroupCommitter(200, commits::incrementAndGet);
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] requesters = new Thread[20];
+        AtomicInteger failures = new AtomicInteger();
+        for (int i = 0; i < requesters.length; i++) {
+            requesters[i] = new Thread(() -> {
+                try {
+                    start.await();
+                    committer.request();
+                } catch (Exception e) {
+                    failures.incrementAndGet();
+                }
+            });
+            requesters[i].start();
+        }
+        start.countDown();
+        for (Thread requester : requesters) {
+            requester.join();
+        }
+        committer.close();
+
+        assertEquals(failures.get(), 0);
+        assertTrue(commits.get() <= 2, "Expected at most two commits but got " + commits.get());
+        assertTrue(commits.get() >= 1);
+    }
+
+    @Test
+    public void requestReturnsOnceItsWindowIsCommitted() throws IOException {
+        AtomicInteger commits = new AtomicInteger();
+        GroupCommitter committer = new GroupCommitter(50, commits::incrementAndGet);
+
+        committer.request();
+        committer.request();
+
+        assertEquals(commits.get(), 2);
+        committer.close();
+    }
+
+    @Test
+    public void failedWindowIsReportedToItsCaller() throws IOException {
+        GroupCommitter committer = new GroupCommitter(50, () -> {
+            throw new IOException("disk full");
+        });
+
+        try {
+            committer.request();
+            fail("Failure of the commit should be reported.");
+        } catch (IOException e) {
+            assertEquals(e.getMessage(), "disk full");
+        }
+        committer.close();
+    }
+
+    @Test
+    public void flushWithoutPendingRequestDoesNotCommit() throws IOException {
+        AtomicInteger commits = new AtomicInteger();
+        GroupCommitter committer = new GroupCommitter(60_000, commits::incrementAndGet);
+
+        committer.flush();
+
+        assertEquals(commits.get(), 0);
+    }
+
+    @Test
+    public void failedCommitIsReportedByFlush() {
+        GroupCommitter committer = new GroupCommitter(0, () -> {
+            throw new IOException("disk full");
+        });
+
+        try {
+            committer.request();
+            fail("Failure of the commit should be reported.");
+        } catch (IOException e) {
+            assertEquals(e.getMessage(), "disk full");
+        }
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.softinite.spam.encrdecr;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.expectThrows;
+
+/**
+ * Responsible for testing MappedFileInputStream
+ */
+public class MappedFileInputStreamIntegrationTest {
+
+    public static final String DATA_FILE_NAME = "mapped.bin";
+
+    private byte[] content;
+
+    @BeforeMethod
+    public void setup() throws IOException {
+        content = new byte[1000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        Files.write(new File(DATA_FILE_NAME).toPath(), content);
+    }
+
+    @AfterMethod
+    public void cleanup() {
+        new File(DATA_FILE_NAME).delete();
+    }
+
+    protected InputStream open(long windowSize) throws IOException {
+        return new MappedFileInputStream(FileChannel.open(new File(DATA_FILE_NAME).toPath(), StandardOpenOption.READ), windowSize);
+    }
+
+    @Test
+    public void readsWholeFileAcrossWindows() throws IOException {
+        try (InputStream in = open(64)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[100];
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                out.write(buffer, 0, read);
+            }
+            assertEquals(out.toByteArray(), content);
+        }
+    }
+
+    @Test
+    public void skipMovesAcrossWindows() throws IOException {
+        try (InputStream in = open(64)) {
+            assertEquals(in.skip(10), 10);
+            assertEquals(in.read(), 10);
+            assertEquals(in.skip(200), 200);
+            assertEquals(in.read(), 211 & 0xFF);
+            assertEquals(in.skip(5000), 1000 - 212);
+            assertEquals(in.read(), -1);
+        }
+    }
+
+    @Test
+    public void closedStreamReleasesTheFile() throws IOException {
+        InputStream in = open(64);
+        assertEquals(in.read(), 0);
+        in.close();
+
+        expectThrows(IOException.class, in::read);
+        FileProxy file = new FileProxy();
+        file.setInternal(new File(DATA_FILE_NAME));
+        file.truncate(10);
+        assertEquals(new File(DATA_FILE_NAME).length(), 10);
+    }
+}
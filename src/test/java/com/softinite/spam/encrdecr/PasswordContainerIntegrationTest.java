@@ -0,0 +1,436 @@
+package com.softinite.spam.encrdecr;
+
+import org.bouncycastle.crypto.InvalidCipherTextException;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertThrows;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/**
+ * Responsible for testing PasswordContainer against real vault files
+ */
+public class PasswordContainerIntegrationTest {
+
+    public static final String DATA_FILE_NAME = "container.spam";
+    public static final String PASSWORD = "password";
+
+    @BeforeMethod
+    public void setup() {
+        deleteDataFiles();
+    }
+
+    @AfterMethod
+    public void cleanup() {
+        deleteDataFiles();
+    }
+
+    protected void deleteDataFiles() {
+        new File(DATA_FILE_NAME).delete();
+        new File(DATA_FILE_NAME + VaultJournal.FILE_SUFFIX).delete();
+    }
+
+    protected FileProxy fileProxy() {
+        FileProxy vault = new FileProxy();
+        vault.setInternal(new File(DATA_FILE_NAME));
+        return vault;
+    }
+
+    protected PasswordContainer open(String password) throws Exception {
+        FileProxy vault = fileProxy();
+        if (!vault.exists()) {
+            vault.touch();
+        }
+        PasswordContainer container = new PasswordContainer();
+        container.init(password, vault);
+        return container;
+    }
+
+    @Test
+    public void editsAreAppendedToTheJournalAndReplayedOnOpen() throws Exception {
+        PasswordContainer container = open(PASSWORD);
+        container.addAccount("acct1", "secret1");
+        container.addAccount("acct2", "secret2");
+        container.save();
+        long snapshotLength = new File(DATA_FILE_NAME).length();
+
+        container.modify("acct1", "changed");
+        container.save();
+        container.rename("acct2", "acct3");
+        container.save();
+
+        assertEquals(new File(DATA_FILE_NAME).length(), snapshotLength);
+        assertTrue(new File(DATA_FILE_NAME + VaultJournal.FILE_SUFFIX).exists());
+
+        PasswordContainer reopened = open(PASSWORD);
+        assertEquals(reopened.loadSecret("acct1"), "changed");
+        assertEquals(reopened.loadSecret("acct3"), "secret2");
+        assertFalse(reopened.doesAccountExist("acct2"));
+    }
+
+    @Test
+    public void journaledOperationsKeepTheirSeparators() throws Exception {
+        PasswordContainer container = open(PASSWORD);
+        container.addAccount("acct", "secret");
+        container.save();
+        container.addAccount("m\u00fcnchen bank", "+victim=x");
+        container.addAccount("victim", "kept");
+        container.save();
+
+        PasswordContainer reopened = open(PASSWORD);
+
+        assertTrue(new File(DATA_FILE_NAME + VaultJournal.FILE_SUFFIX).exists());
+        assertEquals(reopened.loadSecret("m\u00fcnchen bank"), "+victim=x");
+        assertEquals(reopened.loadSecret("victim"), "kept");
+        assertEquals(reopened.loadKeys().size(), 3);
+    }
+
+    @Test
+    public void journaledOperationsAreWipedOnceWritten() throws Exception {
+        PasswordContainer container = open(PASSWORD);
+        container.addAccount("acct", "secret");
+        container.save();
+        List<byte[]> written = new ArrayList<>();
+        FileProxy journalProxy = new FileProxy();
+        journalProxy.setInternal(new File(DATA_FILE_NAME + VaultJournal.FILE_SUFFIX));
+        container.setJournal(new VaultJournal(journalProxy, fileProxy(), container.getEncryptionManager()) {
+            @Override
+            public void append(List<byte[]> operations, String password) throws IOException, NoSuchAlgorithmException, InvalidCipherTextException {
+                super.append(operations, password);
+                written.addAll(operations);
+            }
+        });
+        container.addAccount("bank", "s3cret");
+        container.remove("acct");
+        container.save();
+
+        assertEquals(written.size(), 2);
+        written.forEach(operation -> assertEquals(operation, new byte[operation.length]));
+        PasswordContainer reopened = open(PASSWORD);
+        assertEquals(reopened.loadSecret("bank"), "s3cret");
+        assertFalse(reopened.doesAccountExist("acct"));
+    }
+
+    @Test
+    public void accountsTheVaultCannotHoldAreRejected() throws Exception {
+        PasswordContainer container = open(PASSWORD);
+        container.addAccount("acct", "secret");
+
+        assertThrows(IllegalArgumentException.class, () -> container.addAccount("db=prod", "secret1"));
+        assertThrows(IllegalArgumentException.class, () -> container.addAccount("db", "line1\n-acct"));
+        assertThrows(IllegalArgumentException.class, () -> container.rename("acct", "two\rlines"));
+
+        container.save();
+        PasswordContainer reopened = open(PASSWORD);
+        assertEquals(reopened.loadKeys().size(), 1);
+        assertEquals(reopened.loadSecret("acct"), "secret");
+    }
+
+    @Test
+    public void largeChangesAreCompactedIntoTheSnapshot() throws Exception {
+        PasswordContainer container = open(PASSWORD);
+        container.addAccount("acct", "secret");
+        container.save();
+        assertTrue(new File(DATA_FILE_NAME + VaultJournal.FILE_SUFFIX).exists());
+
+        String longSecret = "x".repeat(1024);
+        for (int i = 0; i < 100; i++) {
+            container.addAccount("bulk" + i, longSecret);
+        }
+        container.save();
+
+        assertFalse(new File(DATA_FILE_NAME + VaultJournal.FILE_SUFFIX).exists());
+        PasswordContainer reopened = open(PASSWORD);
+        assertEquals(reopened.loadKeys().size(), 101);
+        assertEquals(reopened.loadSecret("bulk99"), longSecret);
+    }
+
+    @Test
+    public void incompleteJournalTailIsDiscarded() throws Exception {
+        PasswordContainer container = open(PASSWORD);
+        container.addAccount("acct1", "secret1");
+        container.save();
+        container.addAccount("acct2", "secret2");
+        container.save();
+        File journalFile = new File(DATA_FILE_NAME + VaultJournal.FILE_SUFFIX);
+        long validLength = journalFile.length();
+        try (FileOutputStream out = new FileOutputStream(journalFile, true)) {
+            out.write(new byte[]{0, 0, 1, 0, 42});
+        }
+
+        PasswordContainer reopened = open(PASSWORD);
+
+        assertEquals(reopened.loadSecret("acct2"), "secret2");
+        assertEquals(journalFile.length(), validLength);
+    }
+
+    @Test
+    public void journalSurvivingItsSnapshotIsNotReplayed() throws Exception {
+        PasswordContainer container = open(PASSWORD);
+        File journalFile = new File(DATA_FILE_NAME + VaultJournal.FILE_SUFFIX);
+        FileProxy journalProxy = new FileProxy();
+        journalProxy.setInternal(journalFile);
+        container.setJournal(new VaultJournal(journalProxy, fileProxy(), container.getEncryptionManager()) {
+            @Override
+            public void delete() {
+                // the process dies between moving the snapshot in place and deleting the journal
+            }
+        });
+        container.addAccount("acct1", "secret1");
+        container.save();
+        container.addAccount("acct2", "secret2");
+        container.save();
+        container.modify("acct1", "changed");
+        container.remove("acct2");
+        container.compact();
+        assertTrue(journalFile.exists());
+
+        PasswordContainer reopened = open(PASSWORD);
+
+        assertEquals(reopened.loadSecret("acct1"), "changed");
+        assertFalse(reopened.doesAccountExist("acct2"));
+        assertFalse(journalFile.exists());
+    }
+
+    @Test
+    public void directoryVaultDecryptsSecretsOnDemand() throws Exception {
+        PasswordContainer container = open(PASSWORD);
+        container.setFormat(VaultFormat.DIRECTORY);
+        container.addAccount("acct1", "secret1");
+        container.addAccount("acct2", "secret2");
+        container.save();
+        assertEquals(VaultFormat.detect(fileProxy()), VaultFormat.DIRECTORY);
+
+        PasswordContainer reopened = open(PASSWORD);
+        assertEquals(reopened.getFormat(), VaultFormat.DIRECTORY);
+        assertEquals(reopened.getStore().get("acct1"), "");
+        assertEquals(reopened.loadKeys().size(), 2);
+        assertEquals(reopened.loadSecret("acct1"), "secret1");
+        assertEquals(reopened.loadSecret("acct2"), "secret2");
+    }
+
+    @Test
+    public void batchOfSealedAccountsIsInvisibleUntilPublished() throws Exception {
+        PasswordContainer container = open(PASSWORD);
+        container.setFormat(VaultFormat.DIRECTORY);
+        container.addAccount("acct1", "secret1");
+        container.addAccount("acct2", "secret2");
+        container.save();
+        PasswordContainer reopened = open(PASSWORD);
+        List<Object> seenDuringBatch = new ArrayList<>();
+
+        reopened.atomically(() -> {
+            reopened.addAccount("acct3", reopened.loadSecret("acct2"));
+            reopened.remove("acct2");
+            assertEquals(reopened.loadSecret("acct3"), "secret2");
+            assertNull(reopened.loadSecret("acct2"));
+            Thread reader = new Thread(() -> {
+                seenDuringBatch.add(reopened.listAccounts());
+                seenDuringBatch.add(reopened.loadSecret("acct2"));
+            });
+            reader.start();
+            try {
+                reader.join();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        assertEquals(seenDuringBatch, List.of(List.of("acct1", "acct2"), "secret2"));
+        assertEquals(reopened.listAccounts(), List.of("acct1", "acct3"));
+        assertEquals(reopened.loadSecret("acct3"), "secret2");
+    }
+
+    @Test
+    public void failedBatchChangesNothing() throws Exception {
+        PasswordContainer container = open(PASSWORD);
+        container.addAccount("acct1", "secret1");
+        container.save();
+
+        try {
+            container.atomically(() -> {
+                container.addAccount("acct2", "secret2");
+                container.remove("acct1");
+                throw new IllegalStateException("malformed input");
+            });
+            fail("The failure of the batch should be reported.");
+        } catch (IllegalStateException e) {
+            assertEquals(e.getMessage(), "malformed input");
+        }
+        container.save();
+
+        assertEquals(container.listAccounts(), List.of("acct1"));
+        assertEquals(container.loadSecret("acct1"), "secret1");
+        PasswordContainer reopened = open(PASSWORD);
+        assertEquals(reopened.listAccounts(), List.of("acct1"));
+        assertFalse(reopened.doesAccountExist("acct2"));
+    }
+
+    @Test
+    public void chunkedVaultIsReadBackAfterConversion() throws Exception {
+        PasswordContainer container = open(PASSWORD);
+        container.addAccount("acct1", "secret1");
+        container.save();
+        container.setFormat(VaultFormat.CHUNKED);
+        container.addAccount("acct2", "secret2");
+        container.save();
+        assertEquals(VaultFormat.detect(fileProxy()), VaultFormat.CHUNKED);
+
+        PasswordContainer reopened = open(PASSWORD);
+        assertEquals(reopened.getFormat(), VaultFormat.CHUNKED);
+        assertEquals(reopened.loadSecret("acct1"), "secret1");
+        assertEquals(reopened.loadSecret("acct2"), "secret2");
+    }
+
+    @Test
+    public void compressedChunkedVaultKeepsItsLevelWhenReopened() throws Exception {
+        PasswordContainer container = open(PASSWORD);
+        container.setFormat(VaultFormat.CHUNKED);
+        for (int i = 0; i < 500; i++) {
+            container.addAccount("https://accounts.example.com/user" + i, "secret-secret-secret-" + i);
+        }
+        container.save();
+        long uncompressed = fileProxy().length();
+        container.setCompressionLevel(6);
+        container.save();
+        assertTrue(fileProxy().length() < uncompressed / 2, "compressed size " + fileProxy().length());
+
+        PasswordContainer reopened = open(PASSWORD);
+        assertEquals(reopened.getCompressionLevel(), 6);
+        reopened.modify("https://accounts.example.com/user7", "changed");
+        reopened.compact();
+
+        PasswordContainer compacted = open(PASSWORD);
+        assertEquals(compacted.getCompressionLevel(), 6);
+        assertEquals(compacted.loadSecret("https://accounts.example.com/user7"), "changed");
+        assertEquals(compacted.loadSecret("https://accounts.example.com/user499"), "secret-secret-secret-499");
+    }
+
+    @Test
+    public void directoryVaultKeepsSealedSecretsWhenRewritten() throws Exception {
+        PasswordContainer container = open(PASSWORD);
+        container.setFormat(VaultFormat.DIRECTORY);
+        container.addAccount("acct1", "secret1");
+        container.addAccount("acct2", "secret2");
+        container.save();
+
+        PasswordContainer reopened = open(PASSWORD);
+        reopened.modify("acct1", "changed");
+        reopened.rename("acct2", "acct3");
+        reopened.compact();
+
+        PasswordContainer compacted = open(PASSWORD);
+        assertFalse(new File(DATA_FILE_NAME + VaultJournal.FILE_SUFFIX).exists());
+        assertEquals(compacted.loadSecret("acct1"), "changed");
+        assertEquals(compacted.loadSecret("acct3"), "secret2");
+        assertFalse(compacted.doesAccountExist("acct2"));
+    }
+
+    @Test
+    public void legacyVaultIsConvertedBackAndForth() throws Exception {
+        PasswordContainer container = open(PASSWORD);
+        container.addAccount("acct1", "secret1");
+        container.compact();
+        assertEquals(VaultFormat.detect(fileProxy()), VaultFormat.LEGACY);
+
+        PasswordContainer directory = open(PASSWORD);
+        directory.setFormat(VaultFormat.DIRECTORY);
+        directory.save();
+        assertEquals(VaultFormat.detect(fileProxy()), VaultFormat.DIRECTORY);
+
+        PasswordContainer legacy = open(PASSWORD);
+        legacy.setFormat(VaultFormat.LEGACY);
+        legacy.save();
+        assertEquals(VaultFormat.detect(fileProxy()), VaultFormat.LEGACY);
+        assertEquals(open(PASSWORD).loadSecret("acct1"), "secret1");
+    }
+
+    @Test
+    public void groupCommitMakesEverySaveDurableBeforeReturning() throws Exception {
+        PasswordContainer container = open(PASSWORD);
+        container.setCommitWindow(100);
+        Thread[] writers = new Thread[10];
+        AtomicInteger failures = new AtomicInteger();
+        for (int i = 0; i < writers.length; i++) {
+            int writer = i;
+            writers[i] = new Thread(() -> {
+                try {
+                    container.addAccount("acct" + writer, "secret" + writer);
+                    container.save();
+                } catch (Exception e) {
+                    failures.incrementAndGet();
+                }
+            });
+            writers[i].start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        assertEquals(failures.get(), 0);
+
+        PasswordContainer reopened = open(PASSWORD);
+        assertEquals(reopened.loadKeys().size(), 10);
+        assertEquals(reopened.loadSecret("acct9"), "secret9");
+        container.close();
+    }
+
+    @Test
+    public void journalIsKeptWhenPasswordIsWrong() throws Exception {
+        PasswordContainer container = open(PASSWORD);
+        container.save();
+        container.addAccount("acct1", "secret1");
+        container.save();
+        File journalFile = new File(DATA_FILE_NAME + VaultJournal.FILE_SUFFIX);
+        long journalLength = journalFile.length();
+
+        try {
+            open("wrong");
+            fail("Opening the vault with a wrong password should fail.");
+        } catch (IOException | InvalidCipherTextException e) {
+            assertEquals(journalFile.length(), journalLength);
+        }
+    }
+
+    @Test
+    public void savesRunWhileOtherThreadsKeepWriting() throws Exception {
+        PasswordContainer container = open(PASSWORD);
+        container.save();
+        Thread[] writers = new Thread[4];
+        for (int w = 0; w < writers.length; w++) {
+            int writer = w;
+            writers[w] = new Thread(() -> {
+                for (int i = 0; i < 200; i++) {
+                    container.addAccount("acct" + writer + "_" + i, "secret" + i);
+                    container.rename("acct" + writer + "_" + i, "renamed" + writer + "_" + i);
+                }
+            });
+            writers[w].start();
+        }
+        while (writers[0].isAlive() || writers[writers.length - 1].isAlive()) {
+            container.save();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        container.save();
+        container.close();
+
+        PasswordContainer reopened = open(PASSWORD);
+        assertEquals(reopened.loadKeys().size(), 800);
+        assertEquals(reopened.loadSecret("renamed3_199"), "secret199");
+        assertFalse(reopened.doesAccountExist("acct0_0"));
+    }
+}
@@ -1,15 +1,20 @@
 package com.softinite.spam.encrdecr;
 
+import com.softinite.spam.store.HashMapVaultStore;
 import org.bouncycastle.crypto.InvalidCipherTextException;
 import org.testng.annotations.Test;
 
 import javax.crypto.BadPaddingException;
 import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.NoSuchPaddingException;
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.NoSuchAlgorithmException;
-import java.util.Properties;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
 
 import static org.mockito.Mockito.*;
 import static org.testng.Assert.*;
@@ -22,10 +27,10 @@ public class PasswordContainerTest {
 
     @Test
     public void verifyMergeAccounts() {
-        PasswordContainer container = spy(new PasswordContainer());
-        container.setProperties(new Properties());
+        PasswordContainer container = new PasswordContainer();
+        container.setStore(new HashMapVaultStore());
         PasswordContainer anotherContainer = new PasswordContainer();
-        anotherContainer.setProperties(new Properties());
+        anotherContainer.setStore(new HashMapVaultStore());
 
         String acct1 = "acct1";
         String secret1 = "secret1";
@@ -45,23 +50,78 @@ public class PasswordContainerTest {
         anotherContainer.addAccount(acct2, secret2);
         anotherContainer.addAccount(acct3, secret5);
 
-        String uniqueSuffix = "123";
-        doReturn(uniqueSuffix).when(container).generateUniqueSuffix();
+        MergeReport report = container.mergeFrom(anotherContainer);
+
+        assertEquals(container.getStore().size(), 5);
+        assertEquals(container.getStore().get(acct1), secret1);
+        assertEquals(container.getStore().get(acct2), secret2);
+        assertEquals(container.getStore().get(acct3), secret3);
+        assertEquals(container.getStore().get(acct4), secret4);
+        assertEquals(container.getStore().get(acct3 + "_1"), secret5);
+        assertEquals(report.getAdded(), 1);
+        assertEquals(report.getRenamed(), 1);
+        assertEquals(report.getIdentical(), 1);
+    }
+
+    @Test
+    public void verifyMergeReservesRoomForTheMergedAccountsOnly() {
+        HashMapVaultStore store = spy(new HashMapVaultStore());
+        PasswordContainer container = new PasswordContainer();
+        container.setStore(store);
+        for (int i = 0; i < 100; i++) {
+            container.addAccount("acct" + i, "secret" + i);
+        }
+        PasswordContainer anotherContainer = new PasswordContainer();
+        anotherContainer.setStore(new HashMapVaultStore());
+        anotherContainer.addAccount("new", "secret");
 
         container.mergeFrom(anotherContainer);
 
-        assertEquals(container.getProperties().size(), 5);
-        assertEquals(container.getProperties().getProperty(acct1), secret1);
-        assertEquals(container.getProperties().getProperty(acct2), secret2);
-        assertEquals(container.getProperties().getProperty(acct3), secret3);
-        assertEquals(container.getProperties().getProperty(acct4), secret4);
-        assertEquals(container.getProperties().getProperty(acct3 + "_" + uniqueSuffix), secret5);
+        verify(store).reserve(1);
+        assertEquals(container.getStore().size(), 101);
+    }
+
+    @Test
+    public void verifyMergeOfSeveralContainersIsDeterministic() {
+        PasswordContainer first = new PasswordContainer();
+        first.setStore(new HashMapVaultStore());
+        first.addAccount("shared", "a");
+        first.addAccount("mail", "m");
+        PasswordContainer second = new PasswordContainer();
+        second.setStore(new HashMapVaultStore());
+        second.addAccount("shared", "b");
+        second.addAccount("shared_1", "c");
+        second.addAccount("mail", "m");
+        PasswordContainer third = new PasswordContainer();
+        third.setStore(new HashMapVaultStore());
+        third.addAccount("shared", "b");
+        third.addAccount("bank", "d");
+
+        for (int partitions : new int[]{1, 3, 64}) {
+            PasswordContainer container = new PasswordContainer();
+            container.setStore(new HashMapVaultStore());
+            container.addAccount("shared", "old");
+
+            MergeReport report = new VaultMerger(container, partitions).merge(List.of(first, second, third));
+
+            assertEquals(container.getStore().size(), 6);
+            assertEquals(container.getStore().get("shared"), "old");
+            assertEquals(container.getStore().get("shared_2"), "a");
+            assertEquals(container.getStore().get("shared_3"), "b");
+            assertEquals(container.getStore().get("shared_1"), "c");
+            assertEquals(container.getStore().get("mail"), "m");
+            assertEquals(container.getStore().get("bank"), "d");
+            assertEquals(report.getAccounts(), 7);
+            assertEquals(report.getAdded(), 3);
+            assertEquals(report.getRenamed(), 2);
+            assertEquals(report.getIdentical(), 2);
+        }
     }
 
     @Test
     public void verifyRemoveAccount() {
         PasswordContainer container = new PasswordContainer();
-        container.setProperties(new Properties());
+        container.setStore(new HashMapVaultStore());
 
         container.addAccount("acct1", "secret1");
         container.addAccount("acct2", "secret2");
@@ -86,7 +146,7 @@ public class PasswordContainerTest {
     @Test
     public void verifyAccountExists() {
         PasswordContainer container = new PasswordContainer();
-        container.setProperties(new Properties());
+        container.setStore(new HashMapVaultStore());
 
         container.addAccount("acct1", "secret1");
         container.addAccount("acct2", "secret2");
@@ -103,7 +163,7 @@ public class PasswordContainerTest {
         String password = "myPassword";
 
         when(fileProxy.isEmpty()).thenReturn(Boolean.TRUE);
-        when(fileProxy.getName()).thenReturn("empty.file");
+        when(fileProxy.getPath()).thenReturn("empty.file");
         doNothing().when(passwordContainer).decrypt(password, fileProxy);
 
         passwordContainer.init(password, fileProxy);
@@ -111,4 +171,43 @@ public class PasswordContainerTest {
         verify(passwordContainer, times(0)).decrypt(password, fileProxy);
     }
 
+    @Test
+    public void verifySearchFollowsEdits() throws IOException {
+        PasswordContainer container = new PasswordContainer();
+        HashMapVaultStore store = new HashMapVaultStore();
+        store.put("GitHub", "secret1");
+        container.setStore(store);
+
+        container.addAccount("gitlab", "secret2");
+        container.addAccount("bank", "secret3");
+        container.rename("bank", "Digital bank");
+        File importFile = File.createTempFile("search", ".txt");
+        importFile.deleteOnExit();
+        Files.writeString(importFile.toPath(), "legit=secret4\n");
+        FileProxy source = new FileProxy();
+        source.setInternal(importFile);
+        container.importAccounts(source);
+        container.remove("gitlab");
+
+        assertEquals(new TreeSet<>(container.searchAccounts("GIT")), Set.of("GitHub", "Digital bank", "legit"));
+        assertTrue(container.searchAccounts("bank").contains("Digital bank"));
+        assertTrue(container.searchAccounts("gitlab").isEmpty());
+    }
+
+    @Test
+    public void verifyListingFollowsEdits() {
+        PasswordContainer container = new PasswordContainer();
+        HashMapVaultStore store = new HashMapVaultStore();
+        store.put("zebra", "secret1");
+        container.setStore(store);
+
+        container.addAccount("aws/prod", "secret2");
+        container.addAccount("Aws/dev", "secret3");
+        container.addAccount("bank", "secret4");
+        container.rename("bank", "aws/test");
+
+        assertEquals(List.copyOf(container.listAccounts()), List.of("Aws/dev", "aws/prod", "aws/test", "zebra"));
+        assertEquals(container.listAccounts("AWS/"), List.of("Aws/dev", "aws/prod", "aws/test"));
+        assertEquals(container.searchAccounts("/"), List.of("Aws/dev", "aws/prod", "aws/test"));
+    }
 }
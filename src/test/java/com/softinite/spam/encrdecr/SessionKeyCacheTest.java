@@ -0,0 +1,77 @@
+package com.softinite.spam.encrdecr;
+
+import org.bouncycastle.crypto.params.KeyParameter;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+/**
+ * Responsible for testing SessionKeyCache
+ */
+public class SessionKeyCacheTest {
+
+    private static byte[] key(int seed) {
+        byte[] key = new byte[32];
+        key[0] = (byte) seed;
+        key[1] = 1;
+        return key;
+    }
+
+    @Test
+    public void sessionKeyIsHandedOutUntilClosed() {
+        SessionKeyCache cache = new SessionKeyCache(60_000);
+        SessionKeyCache.Session session = cache.open("vault", key(7));
+        SessionKeyCache.Session other = cache.open("other vault", key(8));
+
+        KeyParameter first = cache.keyParameter(session);
+        KeyParameter second = cache.keyParameter(session);
+
+        assertEquals(second.getKey(), first.getKey());
+        assertEquals(first.getKey(), key(7));
+        assertEquals(cache.keyParameter(other).getKey(), key(8));
+        assertEquals(cache.getHits(), 3);
+        assertEquals(cache.getMisses(), 0);
+        assertEquals(cache.size(), 2);
+        cache.clear();
+    }
+
+    @Test
+    public void closedAndIdleKeysAreWiped() {
+        AtomicLong now = new AtomicLong();
+        SessionKeyCache cache = new SessionKeyCache(1_000, now::get);
+        byte[] closedKey = key(1);
+        byte[] idleKey = key(2);
+
+        SessionKeyCache.Session closed = cache.open("closed", closedKey);
+        SessionKeyCache.Session idle = cache.open("idle", idleKey);
+        cache.invalidate(closed);
+        assertEquals(closedKey, new byte[32]);
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1_000));
+        assertEquals(cache.evictIdle(), 1);
+        assertEquals(idleKey, new byte[32]);
+        assertEquals(cache.size(), 0);
+        assertEquals(cache.getEvictions(), 1);
+        assertNull(cache.keyParameter(idle));
+        assertEquals(cache.getMisses(), 1);
+    }
+
+    @Test
+    public void idleSessionIsBoundAgain() {
+        AtomicLong now = new AtomicLong();
+        SessionKeyCache cache = new SessionKeyCache(1_000, now::get);
+        SessionKeyCache.Session session = cache.open("vault", key(3));
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1_000));
+        cache.evictIdle();
+
+        cache.rebind(session, key(3));
+
+        assertEquals(cache.keyParameter(session).getKey(), key(3));
+        assertEquals(cache.size(), 1);
+        cache.clear();
+    }
+}
@@ -0,0 +1,85 @@
+package com.softinite.spam.encrdecr;
+
+import com.softinite.spam.store.HashMapVaultStore;
+import com.softinite.spam.store.VaultStore;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Responsible for testing VaultSerializer
+ */
+public class VaultSerializerTest {
+
+    @Test
+    public void serializedContentKeepsKeyValueLineFormat() throws IOException {
+        VaultStore content = new HashMapVaultStore();
+        content.put("acct1", "secret1");
+        content.put("my bank", "p@ss=w\u00f6rd");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new VaultSerializer().serialize(content, out);
+        String plainText = out.toString(EncryptionManager.UTF8);
+
+        assertTrue(plainText.contains("acct1=secret1" + System.lineSeparator()));
+        assertTrue(plainText.contains("my bank=p@ss=w\u00f6rd" + System.lineSeparator()));
+        assertEquals(plainText.length(), ("acct1=secret1" + "my bank=p@ss=w\u00f6rd").length() + 2 * System.lineSeparator().length());
+    }
+
+    @Test
+    public void entriesLargerThanTheBufferAreWrittenCompletely() throws IOException {
+        VaultStore content = new HashMapVaultStore();
+        String longSecret = "x".repeat(100);
+        for (int i = 0; i < 50; i++) {
+            content.put("acct" + i, longSecret);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new VaultSerializer(16).serialize(content, out);
+
+        int expectedLength = 0;
+        for (int i = 0; i < 50; i++) {
+            expectedLength += ("acct" + i + "=" + longSecret + System.lineSeparator()).length();
+        }
+        assertEquals(out.size(), expectedLength);
+    }
+
+    @Test
+    public void deserializedContentMatchesSerializedContent() throws IOException {
+        VaultStore content = new HashMapVaultStore();
+        content.put("acct1", "secret1");
+        content.put("my bank", "p@ss=w\u00f6rd");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new VaultSerializer(16).serialize(content, out);
+
+        VaultStore parsed = new HashMapVaultStore();
+        new VaultSerializer(16).deserialize(new ByteArrayInputStream(out.toByteArray()), parsed);
+
+        assertEquals(parsed, content);
+    }
+
+    @Test
+    public void deserializeSkipsBlankAndMalformedLines() throws IOException {
+        byte[] plainText = "acct1=secret1\r\n\r\nno separator\n=orphan\nacct2=secret2\n".getBytes(EncryptionManager.UTF8);
+
+        VaultStore parsed = new HashMapVaultStore();
+        new VaultSerializer().deserialize(new ByteArrayInputStream(plainText), parsed);
+
+        assertEquals(parsed.size(), 2);
+        assertEquals(parsed.get("acct1"), "secret1");
+        assertEquals(parsed.get("acct2"), "secret2");
+    }
+
+    @Test
+    public void missingContentProducesEmptyPlainText() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new VaultSerializer().serialize(null, out);
+        assertEquals(out.size(), 0);
+    }
+
+}
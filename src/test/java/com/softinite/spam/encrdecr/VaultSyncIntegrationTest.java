@@ -0,0 +1,141 @@
+package com.softinite.spam.encrdecr;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Responsible for testing VaultSync between two copies of a vault in different directories
+ */
+public class VaultSyncIntegrationTest {
+
+    public static final String DATA_FILE_NAME = "sync.spam";
+    public static final String PASSWORD = "password";
+    public static final String OTHER_PASSWORD = "other password";
+
+    private File laptop;
+    private File server;
+
+    @BeforeMethod
+    public void setup() throws IOException {
+        laptop = Files.createTempDirectory("laptop").toFile();
+        server = Files.createTempDirectory("server").toFile();
+    }
+
+    @AfterMethod
+    public void cleanup() {
+        for (File directory : new File[]{laptop, server}) {
+            File[] files = directory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            directory.delete();
+        }
+    }
+
+    private static PasswordContainer open(File directory, String password) throws Exception {
+        FileProxy vault = new FileProxy();
+        vault.setInternal(new File(directory, DATA_FILE_NAME));
+        if (!vault.exists()) {
+            vault.touch();
+        }
+        PasswordContainer container = new PasswordContainer();
+        container.init(password, vault);
+        return container;
+    }
+
+    private static Map<String, String> accounts(PasswordContainer container) {
+        Map<String, String> accounts = new HashMap<>();
+        container.loadKeys().forEach(name -> accounts.put(name, container.loadSecret(name)));
+        return accounts;
+    }
+
+    private void createCopies() throws Exception {
+        PasswordContainer here = open(laptop, PASSWORD);
+        PasswordContainer there = open(server, OTHER_PASSWORD);
+        for (int i = 0; i < 2000; i++) {
+            here.addAccount("account" + i, "secret" + i);
+            there.addAccount("account" + i, "secret" + i);
+        }
+        here.addAccount("laptop only", "l");
+        here.addAccount("shared", "laptop secret");
+        there.addAccount("server only", "s");
+        there.addAccount("shared", "server secret");
+        here.save();
+        there.save();
+        here.close();
+        there.close();
+    }
+
+    @Test
+    public void copiesMissingAccountsBothWaysAndKeepsBothConflictingSecrets() throws Exception {
+        createCopies();
+        PasswordContainer here = open(laptop, PASSWORD);
+        PasswordContainer there = open(server, OTHER_PASSWORD);
+
+        SyncReport report = here.syncWith(there);
+        here.save();
+        there.save();
+        here.close();
+        there.close();
+
+        assertEquals(report.getCopiedHere(), 1);
+        assertEquals(report.getCopiedThere(), 1);
+        assertEquals(report.getConflicts(), 1);
+        PasswordContainer laptopCopy = open(laptop, PASSWORD);
+        PasswordContainer serverCopy = open(server, OTHER_PASSWORD);
+        Map<String, String> synced = accounts(laptopCopy);
+        assertEquals(accounts(serverCopy), synced);
+        assertEquals(synced.get("shared"), "laptop secret");
+        assertEquals(synced.get("shared_1"), "server secret");
+        assertEquals(synced.get("laptop only"), "l");
+        assertEquals(synced.get("server only"), "s");
+        assertEquals(synced.size(), 2004);
+        assertTrue(new File(laptop, DATA_FILE_NAME + VaultDigests.FILE_SUFFIX).exists());
+        assertTrue(new File(server, DATA_FILE_NAME + VaultDigests.FILE_SUFFIX).exists());
+        assertFalse(new File(DATA_FILE_NAME).exists());
+
+        SyncReport again = laptopCopy.syncWith(serverCopy);
+        assertTrue(again.isInSync());
+        assertEquals(again.getComparedNodes(), 1);
+        assertEquals(again.getComparedEntries(), 0);
+    }
+
+    @Test
+    public void storedDigestsFollowJournaledEdits() throws Exception {
+        createCopies();
+        PasswordContainer here = open(laptop, PASSWORD);
+        PasswordContainer there = open(server, OTHER_PASSWORD);
+        here.syncWith(there);
+        here.save();
+        there.save();
+        there.addAccount("added later", "new");
+        there.modify("account7", "changed");
+        there.save();
+        here.close();
+        there.close();
+
+        PasswordContainer laptopCopy = open(laptop, PASSWORD);
+        PasswordContainer serverCopy = open(server, OTHER_PASSWORD);
+        SyncReport report = laptopCopy.syncWith(serverCopy);
+
+        assertEquals(report.getCopiedHere(), 1);
+        assertEquals(report.getConflicts(), 1);
+        assertTrue(report.getComparedEntries() < 20, "compared " + report.getComparedEntries());
+        assertEquals(laptopCopy.loadSecret("added later"), "new");
+        assertEquals(laptopCopy.loadSecret("account7_1"), "changed");
+        assertEquals(serverCopy.loadSecret("account7"), "secret7");
+    }
+}
@@ -0,0 +1,88 @@
+package com.softinite.spam.index;
+
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Responsible for testing MerkleTree
+ */
+public class MerkleTreeTest {
+
+    private static MerkleTree tree(int accounts) {
+        MerkleTree tree = new MerkleTree();
+        for (int i = 0; i < accounts; i++) {
+            tree.put("account" + i, "secret" + i);
+        }
+        return tree;
+    }
+
+    @Test
+    public void rootOnlyDependsOnTheContent() {
+        MerkleTree forward = tree(1000);
+        MerkleTree backward = new MerkleTree();
+        for (int i = 999; i >= 0; i--) {
+            backward.put("account" + i, "secret" + i);
+        }
+        byte[] root = forward.root();
+        assertEquals(backward.root(), root);
+
+        forward.put("extra", "secret");
+        forward.put("account1", "changed");
+        assertFalse(Arrays.equals(forward.root(), root));
+
+        forward.remove("extra");
+        forward.put("account1", "secret1");
+        assertEquals(forward.root(), root);
+        assertEquals(forward.size(), 1000);
+    }
+
+    @Test
+    public void digestsTellNameAndSecretApart() {
+        assertFalse(Arrays.equals(MerkleTree.digest("ab", "c"), MerkleTree.digest("a", "bc")));
+    }
+
+    @Test
+    public void diffOnlyVisitsDifferingSubtrees() {
+        MerkleTree here = tree(10000);
+        MerkleTree there = tree(10000);
+        here.put("only here", "secret");
+        there.put("only there", "secret");
+        there.put("account42", "changed");
+
+        MerkleTree.Difference difference = here.diff(there);
+
+        assertEquals(difference.getOnlyHere(), List.of("only here"));
+        assertEquals(difference.getOnlyThere(), List.of("only there"));
+        assertEquals(difference.getChanged(), List.of("account42"));
+        assertTrue(difference.getComparedEntries() < 30, "compared " + difference.getComparedEntries());
+        assertTrue(difference.getComparedNodes() <= 1 + 3 * MerkleTree.DEPTH * MerkleTree.FANOUT);
+    }
+
+    @Test
+    public void identicalTreesOnlyCompareTheirRoots() {
+        MerkleTree.Difference difference = tree(500).diff(tree(500));
+
+        assertTrue(difference.isEmpty());
+        assertEquals(difference.getComparedNodes(), 1);
+        assertEquals(difference.getComparedEntries(), 0);
+    }
+
+    @Test
+    public void treesSurviveSerialization() throws IOException {
+        MerkleTree tree = tree(300);
+        tree.put("b\u00e4nk", "s\u00e9cret");
+
+        MerkleTree copy = MerkleTree.fromBytes(tree.toBytes());
+
+        assertEquals(copy.size(), tree.size());
+        assertEquals(copy.root(), tree.root());
+        assertEquals(copy.get("b\u00e4nk"), MerkleTree.digest("b\u00e4nk", "s\u00e9cret"));
+    }
+}
@@ -0,0 +1,39 @@
+package com.softinite.spam.index;
+
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Responsible for testing SortedNameIndex
+ */
+public class SortedNameIndexTest {
+
+    @Test
+    public void namesStayInCaseInsensitiveOrder() {
+        SortedNameIndex index = new SortedNameIndex();
+        index.addAll(List.of("beta", "Alpha", "alpha", "Gamma"));
+        index.add("delta");
+        index.remove("Gamma");
+
+        assertEquals(List.copyOf(index.ordered()), List.of("Alpha", "alpha", "beta", "delta"));
+    }
+
+    @Test
+    public void prefixQueriesOnlyReturnTheMatchingRange() {
+        SortedNameIndex index = new SortedNameIndex();
+        index.addAll(List.of("aws/prod", "AWS/dev", "AWS/", "aws", "azure/prod", "github"));
+
+        assertEquals(index.withPrefix("aws/"), List.of("AWS/", "AWS/dev", "aws/prod"));
+        assertEquals(index.withPrefix("AWS"), List.of("aws", "AWS/", "AWS/dev", "aws/prod"));
+        assertTrue(index.withPrefix("gcp").isEmpty());
+    }
+
+    @Test
+    public void foreignNamesAreSortedTheSameWay() {
+        assertEquals(SortedNameIndex.sort(List.of("b", "B", "a")), List.of("a", "B", "b"));
+    }
+}
@@ -0,0 +1,64 @@
+package com.softinite.spam.index;
+
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Responsible for testing TrigramIndex
+ */
+public class TrigramIndexTest {
+
+    @Test
+    public void searchMatchesSubstringsIgnoringCase() {
+        TrigramIndex index = new TrigramIndex();
+        index.addAll(List.of("GitHub personal", "gitlab", "Work mail", "Mailbox", "bank"));
+
+        assertEquals(sorted(index.search("GIT")), Set.of("GitHub personal", "gitlab"));
+        assertEquals(sorted(index.search("mail")), Set.of("Work mail", "Mailbox"));
+        assertEquals(sorted(index.search("hub pers")), Set.of("GitHub personal"));
+        assertTrue(index.search("gitx").isEmpty());
+    }
+
+    @Test
+    public void trigramsOnlyNarrowCandidatesDown() {
+        TrigramIndex index = new TrigramIndex();
+        index.addAll(List.of("abcxbcd", "abcd"));
+
+        // both names hold the trigrams of "abcd", only one of them holds the whole pattern
+        assertEquals(index.search("abcd"), List.of("abcd"));
+    }
+
+    @Test
+    public void shortPatternsScanEveryName() {
+        TrigramIndex index = new TrigramIndex();
+        index.addAll(List.of("ab", "xAbx", "cd"));
+
+        assertEquals(sorted(index.search("aB")), Set.of("ab", "xAbx"));
+        assertEquals(index.search("").size(), 3);
+    }
+
+    @Test
+    public void removedNamesAreNoLongerFound() {
+        TrigramIndex index = new TrigramIndex();
+        index.add("account");
+        index.add("account");
+        index.add("accountant");
+
+        index.remove("account");
+
+        assertEquals(index.size(), 1);
+        assertEquals(index.search("acc"), List.of("accountant"));
+        index.remove("accountant");
+        assertTrue(index.search("acc").isEmpty());
+    }
+
+    private static Set<String> sorted(List<String> names) {
+        return new TreeSet<>(names);
+    }
+}
@@ -0,0 +1,124 @@
+package com.softinite.spam.metrics;
+
+import com.softinite.spam.encrdecr.EncryptionManager;
+import com.softinite.spam.encrdecr.FileProxy;
+import com.softinite.spam.store.HashMapVaultStore;
+import com.softinite.spam.store.VaultStore;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Responsible for testing Metrics together with the phases EncryptionManager records
+ */
+public class MetricsIntegrationTest {
+
+    private static final String DATA_FILE_NAME = "metrics.spam";
+    private static final String PASSWORD = "password";
+
+    @BeforeMethod
+    public void setup() {
+        Metrics.reset();
+        new File(DATA_FILE_NAME).delete();
+    }
+
+    @AfterMethod
+    public void cleanup() {
+        new File(DATA_FILE_NAME).delete();
+    }
+
+    @Test
+    public void recordedRunsAddUp() {
+        Metrics.record(Phase.SEARCH, 2_000_000, 0, 3);
+        Metrics.record(Phase.SEARCH, 5_000_000, 0, 4);
+
+        PhaseStatistics search = byPhase().get(Phase.SEARCH.getLabel());
+        assertEquals(search.getCount(), 2);
+        assertEquals(search.getTotalNanos(), 7_000_000);
+        assertEquals(search.getMaxNanos(), 5_000_000);
+        assertEquals(search.getEntries(), 7);
+        assertFalse(byPhase().containsKey(Phase.MERGE.getLabel()));
+        assertTrue(Metrics.report().contains("search"));
+
+        Metrics.reset();
+        assertTrue(Metrics.statistics().isEmpty());
+    }
+
+    @Test
+    public void savingAndOpeningAreSplitIntoPhases() throws Exception {
+        EncryptionManager encryptionManager = new EncryptionManager();
+        VaultStore store = new HashMapVaultStore();
+        for (int i = 0; i < 1000; i++) {
+            store.put("account" + i, "secret" + i);
+        }
+        FileProxy vault = encryptionManager.encryptChunked(store, PASSWORD, DATA_FILE_NAME);
+        encryptionManager.decryptChunked(vault, PASSWORD, new HashMapVaultStore());
+
+        Map<String, PhaseStatistics> phases = byPhase();
+        assertEquals(phases.get(Phase.SERIALIZE.getLabel()).getEntries(), 1000);
+        assertEquals(phases.get(Phase.PARSE.getLabel()).getEntries(), 1000);
+        assertEquals(phases.get(Phase.FILE_WRITE.getLabel()).getBytes(), vault.length());
+        assertEquals(phases.get(Phase.FILE_READ.getLabel()).getBytes(), vault.length());
+        assertEquals(phases.get(Phase.DECRYPT.getLabel()).getBytes(), phases.get(Phase.ENCRYPT.getLabel()).getBytes());
+        assertTrue(phases.get(Phase.KEY_DERIVATION.getLabel()).getCount() >= 1);
+    }
+
+    @Test
+    public void phasesArePublishedOverJmx() throws Exception {
+        Metrics.record(Phase.AGENT_REQUEST, 1_000, 0, 1);
+        Metrics.registerMBean();
+        Metrics.registerMBean();
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        CompositeData[] phases = (CompositeData[]) server.getAttribute(new ObjectName(Metrics.OBJECT_NAME), "Phases");
+
+        assertEquals(phases.length, 1);
+        assertEquals(phases[0].get("phase"), Phase.AGENT_REQUEST.getLabel());
+        assertEquals(phases[0].get("count"), 1L);
+        assertTrue(server.isRegistered(new ObjectName(Metrics.OBJECT_NAME)));
+    }
+
+    @Test
+    public void phasesShowUpInFlightRecordings() throws Exception {
+        Path recorded = Files.createTempFile("metrics", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(PhaseEvent.NAME);
+            recording.start();
+            Metrics.start(Phase.IMPORT).stop(1234, 5);
+            recording.stop();
+            recording.dump(recorded);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(recorded).stream()
+                .filter(event -> event.getEventType().getName().equals(PhaseEvent.NAME))
+                .collect(Collectors.toList());
+        Files.delete(recorded);
+
+        assertEquals(events.size(), 1);
+        assertEquals(events.get(0).getString("phase"), Phase.IMPORT.getLabel());
+        assertEquals(events.get(0).getLong("bytes"), 1234);
+        assertEquals(events.get(0).getLong("entries"), 5);
+    }
+
+    private static Map<String, PhaseStatistics> byPhase() {
+        return Metrics.statistics().stream().collect(Collectors.toMap(PhaseStatistics::getPhase, Function.identity()));
+    }
+}
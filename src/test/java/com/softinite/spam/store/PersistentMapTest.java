@@ -0,0 +1,85 @@
+package com.softinite.spam.store;
+
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+/**
+ * Responsible for testing PersistentMap against a HashMap doing the same work
+ */
+public class PersistentMapTest {
+
+    @Test
+    public void behavesLikeAHashMap() {
+        Random random = new Random(42);
+        Map<String, String> expected = new HashMap<>();
+        PersistentMap<String, String> map = PersistentMap.empty();
+        for (int i = 0; i < 20000; i++) {
+            String key = "acct" + random.nextInt(3000);
+            if (random.nextInt(4) == 0) {
+                expected.remove(key);
+                map = map.remove(key);
+            } else {
+                expected.put(key, "secret" + i);
+                map = map.put(key, "secret" + i);
+            }
+        }
+        assertEquals(map.size(), expected.size());
+        Map<String, String> visited = new HashMap<>();
+        map.forEach(visited::put);
+        assertEquals(visited, expected);
+        Set<String> keys = new HashSet<>();
+        map.keys().forEachRemaining(keys::add);
+        assertEquals(keys, expected.keySet());
+    }
+
+    @Test
+    public void oldVersionsStayUnchanged() {
+        PersistentMap<String, String> first = PersistentMap.<String, String>empty().put("acct1", "secret1");
+        PersistentMap<String, String> second = first.put("acct1", "changed").put("acct2", "secret2");
+        PersistentMap<String, String> third = second.remove("acct1");
+
+        assertEquals(first.get("acct1"), "secret1");
+        assertNull(first.get("acct2"));
+        assertEquals(second.get("acct1"), "changed");
+        assertEquals(second.size(), 2);
+        assertFalse(third.containsKey("acct1"));
+        assertEquals(third.size(), 1);
+        assertSame(third.remove("missing"), third);
+    }
+
+    @Test
+    public void keysWithEqualHashesAreKept() {
+        // "Aa" and "BB" share their hash code, as do all their concatenations
+        String[] colliding = {"AaAa", "AaBB", "BBAa", "BBBB"};
+        PersistentMap<String, Integer> map = PersistentMap.empty();
+        for (int i = 0; i < colliding.length; i++) {
+            map = map.put(colliding[i], i);
+        }
+        map = map.put("other", 9);
+        for (int i = 0; i < colliding.length; i++) {
+            assertEquals(map.get(colliding[i]), Integer.valueOf(i));
+        }
+        map = map.remove("AaBB").remove("BBBB");
+        assertEquals(map.size(), 3);
+        assertNull(map.get("AaBB"));
+        assertEquals(map.get("BBAa"), Integer.valueOf(2));
+        Iterator<String> keys = map.keys();
+        int count = 0;
+        while (keys.hasNext()) {
+            keys.next();
+            count++;
+        }
+        assertEquals(count, 3);
+    }
+}
@@ -0,0 +1,63 @@
+package com.softinite.spam.store;
+
+import org.testng.annotations.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Responsible for testing the off-heap secret arena and the store built on top of it
+ */
+public class SecretArenaTest {
+
+    @Test
+    public void freedSecretsAreWiped() {
+        SecretArena arena = new SecretArena(64);
+        SecretArena.Handle first = arena.allocate(bytes("secret1"));
+        SecretArena.Handle second = arena.allocate(bytes("secret2"));
+
+        arena.free(first);
+
+        assertEquals(arena.read(first), new byte[first.getLength()]);
+        assertEquals(arena.read(second), bytes("secret2"));
+        assertEquals(arena.getLiveBytes(), 7);
+        assertEquals(arena.getFreedBytes(), 7);
+    }
+
+    @Test
+    public void secretsLargerThanASegmentGetTheirOwnSegment() {
+        SecretArena arena = new SecretArena(8);
+        SecretArena.Handle small = arena.allocate(bytes("abc"));
+        SecretArena.Handle large = arena.allocate(bytes("a secret longer than a segment"));
+        SecretArena.Handle next = arena.allocate(bytes("def"));
+
+        assertEquals(next.getSegment(), small.getSegment());
+        assertEquals(arena.read(large), bytes("a secret longer than a segment"));
+        assertEquals(arena.read(next), bytes("def"));
+    }
+
+    @Test
+    public void storeMovesLiveSecretsOnceTheArenaIsFragmented() {
+        OffHeapVaultStore store = new OffHeapVaultStore(0, 16);
+        store.put("kept", "kept secret");
+        for (int i = 0; i < 20; i++) {
+            assertEquals(store.put("edited", "version " + i), i == 0 ? null : "version " + (i - 1));
+        }
+
+        assertTrue(store.getOffHeapBytes() <= 16 * 3);
+        assertEquals(store.get("kept"), "kept secret");
+        assertEquals(store.get("edited"), "version 19");
+
+        store.close();
+        assertEquals(store.size(), 0);
+        assertFalse(store.containsKey("kept"));
+        assertEquals(store.getOffHeapBytes(), 0);
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,137 @@
+package com.softinite.spam.store;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Responsible for testing every VaultStore implementation against the same contract
+ */
+public class VaultStoreTest {
+
+    @DataProvider
+    public Object[][] storeTypes() {
+        VaultStoreType[] types = VaultStoreType.values();
+        Object[][] data = new Object[types.length][];
+        for (int i = 0; i < types.length; i++) {
+            data[i] = new Object[]{types[i]};
+        }
+        return data;
+    }
+
+    @Test(dataProvider = "storeTypes")
+    public void storeKeepsAccounts(VaultStoreType type) {
+        VaultStore store = type.create(2);
+
+        assertNull(store.put("acct1", "secret1"));
+        assertEquals(store.put("acct1", "changed"), "secret1");
+        store.put("acct2", "secret2");
+
+        assertEquals(store.size(), 2);
+        assertEquals(store.get("acct1"), "changed");
+        assertTrue(store.containsKey("acct2"));
+        assertTrue(store.names().contains("acct1"));
+
+        assertEquals(store.remove("acct2"), "secret2");
+        assertFalse(store.containsKey("acct2"));
+        assertNull(store.get("acct2"));
+    }
+
+    @Test(dataProvider = "storeTypes")
+    public void setAndDeleteBehaveLikePutAndRemove(VaultStoreType type) {
+        VaultStore store = type.create(2);
+
+        store.set("acct1", "secret1");
+        store.set("acct1", "changed");
+        store.set("acct2", "secret2");
+        store.delete("acct2");
+        store.delete("missing");
+
+        assertEquals(store.size(), 1);
+        assertEquals(store.get("acct1"), "changed");
+        assertFalse(store.containsKey("acct2"));
+    }
+
+    @Test(dataProvider = "storeTypes")
+    public void forEachAndPutAllVisitEveryAccount(VaultStoreType type) {
+        VaultStore source = new HashMapVaultStore();
+        source.put("acct1", "secret1");
+        source.put("acct2", "secret2");
+
+        VaultStore store = type.create();
+        store.putAll(source);
+        Map<String, String> visited = new HashMap<>();
+        store.forEach(visited::put);
+
+        assertEquals(visited, Map.of("acct1", "secret1", "acct2", "secret2"));
+        store.clear();
+        assertEquals(store.size(), 0);
+    }
+
+    @Test(dataProvider = "storeTypes")
+    public void atomicEditsAreAllApplied(VaultStoreType type) {
+        VaultStore store = type.create();
+        store.put("old", "secret");
+
+        store.atomically(() -> {
+            store.put("new", store.get("old"));
+            store.remove("old");
+        });
+
+        assertEquals(store.get("new"), "secret");
+        assertFalse(store.containsKey("old"));
+    }
+
+    @Test
+    public void snapshotStorePublishesBatchesAtOnce() throws Exception {
+        VaultStore store = VaultStoreType.SNAPSHOT.create();
+        store.put("old", "secret");
+        VaultStore before = store.snapshot();
+        boolean[] seenByOtherThread = new boolean[2];
+
+        store.atomically(() -> {
+            store.put("new", "secret");
+            store.remove("old");
+            Thread reader = new Thread(() -> {
+                seenByOtherThread[0] = store.containsKey("old");
+                seenByOtherThread[1] = store.containsKey("new");
+            });
+            reader.start();
+            try {
+                reader.join();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        assertTrue(seenByOtherThread[0]);
+        assertFalse(seenByOtherThread[1]);
+        assertTrue(store.containsKey("new"));
+        assertEquals(before.get("old"), "secret");
+        assertFalse(before.containsKey("new"));
+    }
+
+    @Test
+    public void failedBatchIsNotPublished() {
+        VaultStore store = VaultStoreType.SNAPSHOT.create();
+        store.put("acct", "secret");
+
+        try {
+            store.atomically(() -> {
+                store.remove("acct");
+                throw new IllegalStateException("failed");
+            });
+        } catch (IllegalStateException expected) {
+            // the batch is dropped
+        }
+
+        assertEquals(store.get("acct"), "secret");
+    }
+}
@@ -0,0 +1,102 @@
+package com.softinite.spam.transfer;
+
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Responsible for testing the import formats on in memory input
+ */
+public class ImportFormatsTest {
+
+    private static List<String> read(ImportFormat format, String input) throws IOException {
+        List<String> records = new ArrayList<>();
+        format.read(new StringReader(input), new ImportFormat.RecordConsumer() {
+            @Override
+            public void accept(String accountName, String secret) {
+                records.add(accountName + " -> " + secret);
+            }
+
+            @Override
+            public void ignore(String reason) {
+                records.add("ignored");
+            }
+        });
+        return records;
+    }
+
+    @Test
+    public void formatsArePickedByExtension() {
+        assertEquals(ImportFormats.forFile("export.CSV").getName(), CsvImportFormat.NAME);
+        assertEquals(ImportFormats.forFile("export.ndjson").getName(), JsonLinesImportFormat.NAME);
+        assertEquals(ImportFormats.forFile("keepass.xml").getName(), XmlImportFormat.NAME);
+        assertEquals(ImportFormats.forFile("accounts").getName(), PropertiesImportFormat.NAME);
+        assertEquals(ImportFormats.byName("JSONL").getName(), JsonLinesImportFormat.NAME);
+    }
+
+    @Test(expectedExceptions = RuntimeException.class)
+    public void unknownFormatNamesAreRejected() {
+        ImportFormats.byName("pdf");
+    }
+
+    @Test
+    public void csvUsesTheHeaderColumns() throws IOException {
+        List<String> records = read(new CsvImportFormat(),
+                "url,username,password,name\r\n"
+                        + "https://a,me,\"p,w\"\"d\",bank=main\r\n"
+                        + "https://b,me,\"two\nlines\",mail\n"
+                        + "\n"
+                        + "https://c,me,,empty\n"
+                        + "https://d,me,x,b\u00e4nk");
+
+        assertEquals(records, List.of("bank=main -> p,w\"d", "mail -> two\nlines", "ignored", "b\u00e4nk -> x"));
+    }
+
+    @Test
+    public void csvWithoutHeaderTakesTheFirstTwoColumns() throws IOException {
+        assertEquals(read(new CsvImportFormat(), "mail,secret1\nbank,secret2,extra\n"),
+                List.of("mail -> secret1", "bank -> secret2"));
+    }
+
+    @Test
+    public void jsonLinesKeepsTheKnownFieldsOnly() throws IOException {
+        List<String> records = read(new JsonLinesImportFormat(),
+                "{\"title\": \"bank=main\", \"tags\": [\"a\", {\"b\": \"}\"}], \"password\": \"p\\\"w\\u00e9\\n\"}\n"
+                        + "\n"
+                        + "{\"name\":\"pin\",\"secret\":1234,\"notes\":null}\n"
+                        + "{\"name\": \"nopassword\"}\n"
+                        + "{\"name\": \"broken\n");
+
+        assertEquals(records, List.of("bank=main -> p\"w\u00e9\n", "pin -> 1234", "ignored", "ignored"));
+    }
+
+    @Test
+    public void xmlReadsKeePassEntriesWithoutTheirHistory() throws IOException {
+        List<String> records = read(new XmlImportFormat(),
+                "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                        + "<KeePassFile><Root><Group><Name>General</Name>"
+                        + "<Entry><String><Key>Title</Key><Value>mail</Value></String>"
+                        + "<String><Key>Password</Key><Value ProtectInMemory=\"True\">s&amp;cret</Value></String>"
+                        + "<History><Entry><String><Key>Title</Key><Value>old</Value></String>"
+                        + "<String><Key>Password</Key><Value>old</Value></String></Entry></History></Entry>"
+                        + "<Entry><String><Key>Title</Key><Value>no password</Value></String></Entry>"
+                        + "</Group></Root></KeePassFile>");
+
+        assertEquals(records, List.of("mail -> s&cret", "ignored"));
+    }
+
+    @Test
+    public void xmlReadsKeePassXEntries() throws IOException {
+        List<String> records = read(new XmlImportFormat(),
+                "<!DOCTYPE KEEPASSX_DATABASE><database><group><title>Internet</title>"
+                        + "<entry><title>b\u00e4nk</title><username>me</username><password>secret</password></entry>"
+                        + "</group></database>");
+
+        assertEquals(records, List.of("b\u00e4nk -> secret"));
+    }
+}
@@ -0,0 +1,120 @@
+package com.softinite.spam.transfer;
+
+import com.softinite.spam.encrdecr.FileProxy;
+import com.softinite.spam.encrdecr.ImportReport;
+import com.softinite.spam.encrdecr.PasswordContainer;
+import com.softinite.spam.encrdecr.VaultFormat;
+import com.softinite.spam.encrdecr.VaultJournal;
+import com.softinite.spam.store.HashMapVaultStore;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Responsible for testing StreamingImporter against real import files
+ */
+public class StreamingImporterIntegrationTest {
+
+    public static final String IMPORT_FILE_NAME = "streaming.import";
+    private static final String CSV = "name,password\nmail,new\nmail,newer\nbank,b\u00e4nk\n,ignored\n";
+
+    public static final String VAULT_FILE_NAME = "streaming.spam";
+    public static final String PASSWORD = "password";
+
+    @AfterMethod
+    public void cleanup() {
+        new File(IMPORT_FILE_NAME).delete();
+        new File(VAULT_FILE_NAME).delete();
+        new File(VAULT_FILE_NAME + VaultJournal.FILE_SUFFIX).delete();
+    }
+
+    private FileProxy importFile(String content) throws IOException {
+        Files.write(new File(IMPORT_FILE_NAME).toPath(), content.getBytes(StandardCharsets.UTF_8));
+        FileProxy fileProxy = new FileProxy();
+        fileProxy.setInternal(new File(IMPORT_FILE_NAME));
+        return fileProxy;
+    }
+
+    private PasswordContainer container() {
+        PasswordContainer container = new PasswordContainer();
+        container.setStore(new HashMapVaultStore());
+        container.addAccount("mail", "old");
+        return container;
+    }
+
+    private static PasswordContainer openVault() throws Exception {
+        FileProxy vault = new FileProxy();
+        vault.setInternal(new File(VAULT_FILE_NAME));
+        if (!vault.exists()) {
+            vault.touch();
+        }
+        PasswordContainer container = new PasswordContainer();
+        container.init(PASSWORD, vault);
+        return container;
+    }
+
+    private static Map<String, String> accounts(PasswordContainer container) {
+        Map<String, String> accounts = new HashMap<>();
+        container.getStore().forEach(accounts::put);
+        return accounts;
+    }
+
+    @Test
+    public void importsRecordsRenamingTakenNames() throws IOException {
+        PasswordContainer container = container();
+
+        ImportReport report = new StreamingImporter(container, new CsvImportFormat(), false).importFrom(importFile(CSV));
+
+        assertEquals(report.getImported(), 3);
+        assertEquals(report.getRenamed(), 2);
+        assertEquals(report.getIgnored(), 1);
+        assertEquals(report.getBytes(), CSV.getBytes(StandardCharsets.UTF_8).length);
+        assertEquals(accounts(container), Map.of("mail", "old", "mail_1", "new", "mail_2", "newer", "bank", "b\u00e4nk"));
+        assertTrue(container.searchAccounts("ail_").contains("mail_2"));
+    }
+
+    @Test
+    public void dryRunReportsTheSameWithoutChangingAnything() throws IOException {
+        PasswordContainer container = container();
+
+        ImportReport report = new StreamingImporter(container, new CsvImportFormat(), true).importFrom(importFile(CSV));
+
+        assertTrue(report.isDryRun());
+        assertEquals(report.getImported(), 3);
+        assertEquals(report.getRenamed(), 2);
+        assertEquals(report.getIgnored(), 1);
+        assertEquals(accounts(container), Map.of("mail", "old"));
+    }
+
+    @Test
+    public void recordsTheVaultCannotHoldAreIgnored() throws Exception {
+        PasswordContainer container = openVault();
+        container.addAccount("victim", "kept");
+        container.save();
+        String csv = "name,password\ndb=prod,secret1\nmulti,\"line1\n-victim\"\nok,fine=value\n";
+
+        ImportReport report = new StreamingImporter(container, new CsvImportFormat(), false).importFrom(importFile(csv));
+        container.save();
+        container.close();
+
+        assertEquals(report.getImported(), 1);
+        assertEquals(report.getIgnored(), 2);
+        PasswordContainer reopened = openVault();
+        assertEquals(accounts(reopened), Map.of("victim", "kept", "ok", "fine=value"));
+        reopened.setFormat(VaultFormat.CHUNKED);
+        reopened.save();
+        reopened.close();
+        PasswordContainer rewritten = openVault();
+        assertEquals(accounts(rewritten), Map.of("victim", "kept", "ok", "fine=value"));
+        rewritten.close();
+    }
+}